@@ -0,0 +1,79 @@
+package rbt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.CandidateBitmapIndex;
+import rbt.CandidateBitmapIndex.Attribute;
+import rbt.CandidateBitmapIndex.Filter;
+import rbt.RedBlackTree;
+
+/**
+ * "Female candidates from Morocco or Spain, aged 20 to 24, with a portfolio
+ * rating of at least 4" (about 1% of the candidates), answered by the
+ * CandidateBitmapIndex and by a scan of the tree testing the same filter.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class BitmapIndexBenchmark {
+
+    private static final Filter SCREENING = Filter.and(
+            Filter.equalTo(Attribute.GENDER, 'F'),
+            Filter.in(Attribute.NATIONALITY, "Morocco", "Spain"),
+            Filter.between(Attribute.AGE, 20, 24),
+            Filter.atLeast(Attribute.PORTFOLIO_RATING, 4));
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private RedBlackTree<Candidate> tree;
+    private CandidateBitmapIndex index;
+
+    @Setup
+    public void setUp() {
+        tree = RedBlackTree.fromSorted(Arrays.asList(SyntheticCandidates.generate(size, 42)).iterator(), size);
+        index = new CandidateBitmapIndex(tree);
+    }
+
+    @Benchmark
+    public List<Candidate> bitmapIndex() {
+        return index.select(SCREENING);
+    }
+
+    @Benchmark
+    public int bitmapIndexCount() {
+        return index.count(SCREENING);
+    }
+
+    @Benchmark
+    public List<Candidate> treeScan() {
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : tree) {
+            if (SCREENING.test(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+}
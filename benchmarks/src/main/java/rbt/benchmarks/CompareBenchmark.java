@@ -0,0 +1,58 @@
+package rbt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+
+/**
+ * Candidate.compareTo, which every tree operation calls O(log n) times: a
+ * comparison decided by the id (the common case during a search) and a
+ * comparison of two equal candidates, which goes through every field.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompareBenchmark {
+
+    private Candidate first;
+    private Candidate second;
+    private Candidate copyOfFirst;
+
+    @Setup
+    public void setUp() {
+        Candidate[] candidates = SyntheticCandidates.generate(2, 42);
+        first = candidates[0];
+        second = candidates[1];
+        copyOfFirst = new Candidate(first.getId(), new String(first.getFullName()), new String(first.getNationality()),
+                new String(first.getCity()), first.getLatitude(), first.getLongitude(), first.getGender(),
+                first.getAge(), first.getEnglishGrade(), first.getMathGrade(), first.getSciencesGrade(),
+                first.getLanguageGrade(), first.getPortfolioRating(), first.getCoverLetterRating(),
+                first.getReferenceLetterRating());
+    }
+
+    @Benchmark
+    public int differentIds() {
+        return first.compareTo(second);
+    }
+
+    @Benchmark
+    public int equalCandidates() {
+        return first.compareTo(copyOfFirst);
+    }
+}
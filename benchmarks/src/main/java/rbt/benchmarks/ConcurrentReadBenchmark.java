@@ -0,0 +1,115 @@
+package rbt.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.ConcurrentRedBlackTree;
+import rbt.RedBlackTree;
+
+/**
+ * Read throughput of a ConcurrentRedBlackTree while a writer keeps changing
+ * it. In the readWrite group, 3 threads look up random candidates with
+ * contains while one thread inserts a new candidate and removes it on its next
+ * call, so the size of the tree stays constant. The readOnly group runs the
+ * same 3 readers without the writer, as the baseline. The scores of the
+ * reader and writer threads are reported separately.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class ConcurrentReadBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private ConcurrentRedBlackTree<Candidate> tree;
+    private Candidate[] hits;
+    private Candidate[] fresh; // candidates the writer inserts, with ids past the tree
+    private int nextFresh; // only used by the writer thread
+    private Candidate inserted; // only used by the writer thread
+
+    @Setup
+    public void setUp() {
+        Candidate[] candidates = SyntheticCandidates.generate(size, 42);
+        tree = new ConcurrentRedBlackTree<>(RedBlackTree.fromSorted(Arrays.asList(candidates).iterator(), size));
+        hits = candidates.clone();
+        SyntheticCandidates.shuffle(hits, 7);
+        Random random = new Random(11);
+        fresh = new Candidate[1024];
+        for (int i = 0; i < fresh.length; i++) {
+            fresh[i] = SyntheticCandidates.generate(size + i, random);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public boolean contains(Reader reader) {
+        return tree.contains(hits[reader.next()]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public boolean write() {
+        if (inserted != null) {
+            Candidate removed = inserted;
+            inserted = null;
+            return tree.remove(removed);
+        }
+        inserted = fresh[nextFresh];
+        nextFresh = (nextFresh + 1 == fresh.length) ? 0 : nextFresh + 1;
+        return tree.insert(inserted);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(3)
+    public boolean containsWithoutWriter(Reader reader) {
+        return tree.contains(hits[reader.next()]);
+    }
+
+    /**
+     * The position of one reader thread in the shuffled hits, so readers do
+     * not share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private int position;
+        private int length;
+
+        @Setup
+        public void setUp(ConcurrentReadBenchmark benchmark) {
+            length = benchmark.hits.length;
+            position = (int) (Thread.currentThread().getId() * 7919 % length);
+        }
+
+        int next() {
+            int current = position;
+            position = (position + 1 == length) ? 0 : position + 1;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package rbt.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import rbt.Candidate;
+import rbt.CandidateLoader;
+import rbt.RedBlackTree;
+
+/**
+ * Loads a synthetic CSV export into a new tree with the streaming
+ * CandidateLoader, and with the row-by-row OpenCSV reading the tests use,
+ * as a baseline.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class CsvLoadBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = Files.createTempFile("candidates-" + size + "-", ".csv");
+        SyntheticCandidates.writeCsv(SyntheticCandidates.generate(size, 42), csv);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> candidateLoader() throws IOException {
+        RedBlackTree<Candidate> tree = new RedBlackTree<>();
+        new CandidateLoader().load(csv, tree);
+        return tree;
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> openCsv() throws IOException, CsvValidationException {
+        RedBlackTree<Candidate> tree = new RedBlackTree<>();
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+                CSVReader csvReader = new CSVReader(reader)) {
+            csvReader.readNext(); // skip the header
+            String[] values;
+            while ((values = csvReader.readNext()) != null) {
+                tree.insert(new Candidate(Integer.parseInt(values[0]), values[1], values[2], values[3],
+                        Double.parseDouble(values[4]), Double.parseDouble(values[5]), values[6].charAt(0),
+                        Integer.parseInt(values[7]), Double.parseDouble(values[8]), Double.parseDouble(values[9]),
+                        Double.parseDouble(values[10]), Double.parseDouble(values[11]), Integer.parseInt(values[12]),
+                        Integer.parseInt(values[13]), Integer.parseInt(values[14])));
+            }
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,59 @@
+package rbt.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import rbt.Candidate;
+import rbt.CandidateLoader;
+import rbt.CompactCandidate;
+import rbt.RedBlackTree;
+
+/**
+ * Measures the heap footprint of candidates with JOL: the field layout of
+ * Candidate and CompactCandidate, and the bytes per candidate of a tree
+ * loaded from a CSV export by CandidateLoader (so that every row has its own
+ * nationality and city strings, as in production) against the same tree of
+ * CompactCandidates. Run it with
+ *
+ * java -Djdk.attach.allowAttachSelf -cp target/benchmarks.jar rbt.benchmarks.FootprintReport [count]
+ *
+ * @author Naif Abdullah
+ */
+public final class FootprintReport {
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+        Path csv = Files.createTempFile("candidates", ".csv");
+        RedBlackTree<Candidate> candidates = new RedBlackTree<>();
+        try {
+            SyntheticCandidates.writeCsv(SyntheticCandidates.generate(count, 42), csv);
+            new CandidateLoader().load(csv, candidates);
+        } finally {
+            Files.delete(csv);
+        }
+        CompactCandidate.Factory factory = new CompactCandidate.Factory();
+        RedBlackTree<CompactCandidate> compacts = new RedBlackTree<>();
+        for (Candidate candidate : candidates) {
+            compacts.insert(factory.compact(candidate));
+        }
+
+        System.out.println(ClassLayout.parseClass(Candidate.class).toPrintable());
+        System.out.println(ClassLayout.parseClass(CompactCandidate.class).toPrintable());
+
+        long candidateBytes = GraphLayout.parseInstance(candidates).totalSize();
+        long compactBytes = GraphLayout.parseInstance(compacts, factory).totalSize();
+        System.out.printf("%d candidates loaded from CSV%n", candidates.size());
+        System.out.printf("RedBlackTree<Candidate>:        %,d bytes, %d per candidate%n",
+                candidateBytes, candidateBytes / count);
+        System.out.printf("RedBlackTree<CompactCandidate>: %,d bytes, %d per candidate (dictionary included)%n",
+                compactBytes, compactBytes / count);
+    }
+}
@@ -0,0 +1,80 @@
+package rbt.benchmarks;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.GeoIndex;
+import rbt.RedBlackTree;
+
+/**
+ * "The 50 strongest candidates (by math grade) within 100 km of Oakland",
+ * answered by the GeoIndex and by a brute-force haversine scan of the tree.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class GeoIndexBenchmark {
+
+    private static final double OAKLAND_LATITUDE = 37.80;
+    private static final double OAKLAND_LONGITUDE = -122.27;
+    private static final double RADIUS_KM = 100;
+    private static final int LIMIT = 50;
+    private static final Comparator<Candidate> BY_MATH_GRADE = Comparator.comparingDouble(Candidate::getMathGrade)
+            .thenComparing(Comparator.naturalOrder());
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private RedBlackTree<Candidate> tree;
+    private GeoIndex<Candidate> index;
+
+    @Setup
+    public void setUp() {
+        tree = RedBlackTree.fromSorted(Arrays.asList(SyntheticCandidates.generate(size, 42)).iterator(), size);
+        index = GeoIndex.ofCandidates(tree);
+    }
+
+    @Benchmark
+    public List<Candidate> geoIndex() {
+        return index.strongestWithinRadius(OAKLAND_LATITUDE, OAKLAND_LONGITUDE, RADIUS_KM, BY_MATH_GRADE, LIMIT);
+    }
+
+    @Benchmark
+    public List<Candidate> bruteForce() {
+        PriorityQueue<Candidate> strongest = new PriorityQueue<>(BY_MATH_GRADE);
+        for (Candidate candidate : tree) {
+            if (GeoIndex.distanceKm(OAKLAND_LATITUDE, OAKLAND_LONGITUDE,
+                    candidate.getLatitude(), candidate.getLongitude()) <= RADIUS_KM) {
+                strongest.add(candidate);
+                if (strongest.size() > LIMIT) {
+                    strongest.poll();
+                }
+            }
+        }
+        List<Candidate> result = new ArrayList<>(strongest);
+        result.sort(BY_MATH_GRADE.reversed());
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package rbt.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.RedBlackTree;
+
+/**
+ * Builds a tree of synthetic candidates with one insert per candidate, in
+ * random, ascending (our exports are sorted by id) or nearly ascending id
+ * order (one candidate in ten moved up to 16 places, as in our feeds), with
+ * the finger-based insertAll, and with the linear-time fromSorted bulk build
+ * for comparison.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class InsertBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"random", "sorted", "nearlySorted"})
+    public String order;
+
+    private Candidate[] candidates;
+
+    @Setup
+    public void setUp() {
+        candidates = SyntheticCandidates.generate(size, 42);
+        if (order.equals("random")) {
+            SyntheticCandidates.shuffle(candidates, 7);
+        } else if (order.equals("nearlySorted")) {
+            Random random = new Random(7);
+            for (int i = 0; i < size; i++) {
+                if (random.nextInt(10) == 0) {
+                    int j = Math.min(size - 1, i + 1 + random.nextInt(16));
+                    Candidate moved = candidates[i];
+                    candidates[i] = candidates[j];
+                    candidates[j] = moved;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> insert() {
+        RedBlackTree<Candidate> tree = new RedBlackTree<>();
+        for (Candidate candidate : candidates) {
+            tree.insert(candidate);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> insertAll() {
+        RedBlackTree<Candidate> tree = new RedBlackTree<>();
+        tree.insertAll(Arrays.asList(candidates));
+        return tree;
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> fromSorted() {
+        // Unsorted input is sorted first, which this benchmark includes
+        return RedBlackTree.fromSorted(Arrays.asList(candidates).iterator(), size);
+    }
+}
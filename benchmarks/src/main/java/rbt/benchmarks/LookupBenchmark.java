@@ -0,0 +1,111 @@
+package rbt.benchmarks;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rbt.Candidate;
+import rbt.RedBlackTree;
+
+/**
+ * Read paths over a filled tree: contains for values that are in the tree
+ * (hits) and values that are not (misses), both in random order so that the
+ * caches do not favor neighbouring lookups, the same hits by id alone in a
+ * tree made by keyedByInt, and a full in-order traversal with the iterator
+ * and with a sequential stream.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class LookupBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private RedBlackTree<Candidate> tree;
+    private RedBlackTree<Candidate> byId;
+    private int[] hitIds;
+    private Candidate[] hits;
+    private Candidate[] misses;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Candidate[] candidates = SyntheticCandidates.generate(size, 42);
+        tree = RedBlackTree.fromSorted(Arrays.asList(candidates).iterator(), size);
+        byId = RedBlackTree.keyedByInt(Candidate::getId);
+        for (Candidate candidate : candidates) {
+            byId.insert(candidate);
+        }
+        hits = candidates.clone();
+        SyntheticCandidates.shuffle(hits, 7);
+        hitIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            hitIds[i] = hits[i].getId();
+        }
+        // Same candidates with one grade changed: equal ids, so the search
+        // compares further fields before failing on the last node
+        misses = new Candidate[size];
+        for (int i = 0; i < size; i++) {
+            Candidate hit = hits[i];
+            misses[i] = new Candidate(hit.getId(), hit.getFullName(), hit.getNationality(), hit.getCity(),
+                    hit.getLatitude(), hit.getLongitude(), hit.getGender(), hit.getAge(), hit.getEnglishGrade(),
+                    hit.getMathGrade(), hit.getSciencesGrade(), hit.getLanguageGrade() + 10,
+                    hit.getPortfolioRating(), hit.getCoverLetterRating(), hit.getReferenceLetterRating());
+        }
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        Candidate candidate = hits[next];
+        next = (next + 1 == size) ? 0 : next + 1;
+        return tree.contains(candidate);
+    }
+
+    @Benchmark
+    public Candidate getById() {
+        int id = hitIds[next];
+        next = (next + 1 == size) ? 0 : next + 1;
+        return byId.get(id);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        Candidate candidate = misses[next];
+        next = (next + 1 == size) ? 0 : next + 1;
+        return tree.contains(candidate);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void iterate(Blackhole blackhole) {
+        Iterator<Candidate> treeNodeIterator = tree.iterator();
+        while (treeNodeIterator.hasNext()) {
+            blackhole.consume(treeNodeIterator.next());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double streamAverageMathGrade() {
+        return tree.stream().mapToDouble(Candidate::getMathGrade).average().orElse(0);
+    }
+}
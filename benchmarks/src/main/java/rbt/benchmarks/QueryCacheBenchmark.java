@@ -0,0 +1,90 @@
+package rbt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.QueryCache;
+import rbt.RedBlackTree;
+
+/**
+ * A filter request ("from Morocco, aged 20 to 24") repeated many times, with
+ * one insert of a matching candidate every mutationEvery requests: answered
+ * by a scan of the tree each time, and through a QueryCache that patches its
+ * cached result on every insert.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class QueryCacheBenchmark {
+
+    private static final Predicate<Candidate> FILTER = candidate -> candidate.getNationality().equals("Morocco")
+            && candidate.getAge() >= 20 && candidate.getAge() <= 24;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1000"})
+    public int mutationEvery;
+
+    private RedBlackTree<Candidate> tree;
+    private QueryCache<Candidate> cache;
+    private final Random random = new Random(42);
+    private int nextId;
+    private int requests;
+
+    @Setup
+    public void setUp() {
+        tree = RedBlackTree.fromSorted(Arrays.asList(SyntheticCandidates.generate(size, 42)).iterator(), size);
+        cache = new QueryCache<>(tree, 10L * size);
+        nextId = size;
+    }
+
+    @Benchmark
+    public List<Candidate> treeScan() {
+        mutateSometimes();
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : tree) {
+            if (FILTER.test(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Candidate> cached() {
+        mutateSometimes();
+        return cache.filter("moroccans in their early twenties", FILTER);
+    }
+
+    private void mutateSometimes() {
+        if (++requests % mutationEvery == 0) {
+            Candidate candidate = SyntheticCandidates.generate(nextId++, random);
+            candidate.setNationality("Morocco");
+            candidate.setAge(22);
+            tree.insert(candidate);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package rbt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.CandidateRanking;
+import rbt.RedBlackTree;
+import rbt.ScoringProfile;
+
+/**
+ * "The 100 best candidates by a weighted score of their grades and ratings",
+ * answered by the CandidateRanking and by scoring and sorting the whole tree,
+ * plus the cost of re-weighting the profile.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class RankingBenchmark {
+
+    private static final ScoringProfile PROFILE = new ScoringProfile("hiring", 1, 2, 1.5, 0.5, 3, 1, 2);
+    private static final int K = 100;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private RedBlackTree<Candidate> tree;
+    private CandidateRanking ranking;
+
+    @Setup
+    public void setUp() {
+        tree = RedBlackTree.fromSorted(Arrays.asList(SyntheticCandidates.generate(size, 42)).iterator(), size);
+        ranking = new CandidateRanking(tree);
+        ranking.register(PROFILE);
+    }
+
+    @Benchmark
+    public List<Candidate> topK() {
+        return ranking.topK(PROFILE.getName(), K);
+    }
+
+    @Benchmark
+    public List<Candidate> scanAndSort() {
+        List<Candidate> all = new ArrayList<>(tree.size());
+        for (Candidate candidate : tree) {
+            all.add(candidate);
+        }
+        all.sort(PROFILE.ranking());
+        return new ArrayList<>(all.subList(0, K));
+    }
+
+    @Benchmark
+    public CandidateRanking reweight() {
+        ranking.reweight(PROFILE);
+        return ranking;
+    }
+}
@@ -0,0 +1,85 @@
+package rbt.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.RedBlackTree;
+
+/**
+ * Merges a pool of candidates into a larger one with the join-based union,
+ * and with one insert per candidate of the smaller pool. The pools share no
+ * candidate. The target tree is rebuilt before every invocation, since both
+ * benchmarks modify it; the GC profiler figures include that rebuild.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class SetOperationsBenchmark {
+
+    private static final int TARGET_SIZE = 1_000_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Candidate[] target;
+    private RedBlackTree<Candidate> pool;
+    private RedBlackTree<Candidate> tree;
+
+    @Setup(Level.Trial)
+    public void setUpPools() {
+        Candidate[] candidates = SyntheticCandidates.generate(TARGET_SIZE + size, 42);
+        // Spread the smaller pool evenly over the id range of the target
+        int step = (TARGET_SIZE + size) / size;
+        Candidate[] merged = new Candidate[size];
+        target = new Candidate[TARGET_SIZE];
+        int m = 0;
+        int t = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (i % step == 0 && m < size) {
+                merged[m++] = candidates[i];
+            } else if (t < TARGET_SIZE) {
+                target[t++] = candidates[i];
+            }
+        }
+        pool = RedBlackTree.fromSorted(Arrays.asList(merged).iterator(), m);
+        target = Arrays.copyOf(target, t);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpTarget() {
+        tree = RedBlackTree.fromSorted(Arrays.asList(target).iterator(), target.length);
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> union() {
+        tree.union(pool);
+        return tree;
+    }
+
+    @Benchmark
+    public RedBlackTree<Candidate> insertEach() {
+        for (Candidate candidate : pool) {
+            tree.insert(candidate);
+        }
+        return tree;
+    }
+}
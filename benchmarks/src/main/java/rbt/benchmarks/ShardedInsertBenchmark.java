@@ -0,0 +1,89 @@
+package rbt.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.ConcurrentRedBlackTree;
+import rbt.ShardedRedBlackTree;
+
+/**
+ * Insert throughput of candidates with random ids from 4 threads, into one
+ * ConcurrentRedBlackTree and into a ShardedRedBlackTree. The speedup is
+ * bounded by the number of cores of the machine; run with -t to change the
+ * number of threads.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class ShardedInsertBenchmark {
+
+    private static final int MAX_ID = 1 << 30;
+
+    @Param({"1", "16"})
+    public int shards;
+
+    private ConcurrentRedBlackTree<Candidate> single;
+    private ShardedRedBlackTree<Candidate> sharded;
+    private Candidate[] pool;
+
+    @Setup(Level.Trial)
+    public void createPool() {
+        pool = SyntheticCandidates.generate(1024, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        single = new ConcurrentRedBlackTree<>();
+        sharded = ShardedRedBlackTree.ofCandidates(shards, MAX_ID);
+    }
+
+    @Benchmark
+    public boolean concurrentTree() {
+        try {
+            return single.insert(nextCandidate());
+        } catch (IllegalArgumentException duplicate) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean shardedTree() {
+        try {
+            return sharded.insert(nextCandidate());
+        } catch (IllegalArgumentException duplicate) {
+            return false;
+        }
+    }
+
+    private Candidate nextCandidate() {
+        // Random ids are unique with high probability; the rare duplicate is skipped
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Candidate template = pool[random.nextInt(pool.length)];
+        return new Candidate(random.nextInt(MAX_ID), template.getFullName(),
+                template.getNationality(), template.getCity(), template.getLatitude(), template.getLongitude(),
+                template.getGender(), template.getAge(), template.getEnglishGrade(), template.getMathGrade(),
+                template.getSciencesGrade(), template.getLanguageGrade(), template.getPortfolioRating(),
+                template.getCoverLetterRating(), template.getReferenceLetterRating());
+    }
+}
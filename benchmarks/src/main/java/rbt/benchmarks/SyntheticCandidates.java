@@ -0,0 +1,125 @@
+package rbt.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import rbt.Candidate;
+
+/**
+ * Generates reproducible synthetic candidates for the benchmarks. Ids are
+ * unique and dense (0 to count - 1); names, nationalities and cities are drawn
+ * from small pools, like in the real exports, so that repeated strings and
+ * ties on the later compareTo fields are realistic.
+ *
+ * @author Naif Abdullah
+ */
+public final class SyntheticCandidates {
+
+    private static final String[] FIRST_NAMES = {
+        "Kiana", "Joshua", "Haafiza", "Zachary", "Coleman", "Sean", "Melissa", "Kyle", "Mckayla", "Kayla",
+        "Brandy", "Kyler", "Amina", "Luis", "Mei", "Omar", "Sofia", "Yuki", "Priya", "Noah"
+    };
+    private static final String[] LAST_NAMES = {
+        "Lor", "Lonaker", "al-Attar", "Bradley", "Keelen", "Bruso", "Bickel", "Blanscet", "Dopler", "Sales",
+        "Waldner", "Grieshaber", "Okafor", "Garcia", "Chen", "Haddad", "Rossi", "Tanaka", "Sharma", "Smith"
+    };
+    private static final String[][] PLACES = {
+        {"China", "Suzhou", "31.31", "120.62"},
+        {"United States of America", "Oakland", "37.80", "-122.27"},
+        {"United States of America", "Santa Clarita", "34.39", "-118.54"},
+        {"Morocco", "Rabat", "34.01", "-6.84"},
+        {"Spain", "Madrid", "40.41", "-3.69"},
+        {"United Kingdom", "London", "51.51", "-0.09"},
+        {"Netherlands", "Kerkrade", "50.87", "6.07"},
+        {"Germany", "Berlin", "52.52", "13.40"},
+        {"India", "Pune", "18.52", "73.86"},
+        {"Brazil", "Recife", "-8.05", "-34.90"},
+        {"Japan", "Osaka", "34.69", "135.50"},
+        {"Nigeria", "Lagos", "6.52", "3.38"}
+    };
+
+    private SyntheticCandidates() {
+    }
+
+    /**
+     * @param count the number of candidates to generate
+     * @param seed the seed of the random generator
+     * @return candidates with ids 0 to count - 1, in ascending id order
+     */
+    public static Candidate[] generate(int count, long seed) {
+        Random random = new Random(seed);
+        Candidate[] candidates = new Candidate[count];
+        for (int id = 0; id < count; id++) {
+            candidates[id] = generate(id, random);
+        }
+        return candidates;
+    }
+
+    /**
+     * @param id the id of the candidate
+     * @param random the source of the other attributes
+     * @return a candidate with the given id
+     */
+    public static Candidate generate(int id, Random random) {
+        String[] place = PLACES[random.nextInt(PLACES.length)];
+        // Scatter positions up to about 100 km around the city
+        double latitude = Double.parseDouble(place[2]) + (random.nextDouble() - 0.5) * 2;
+        double longitude = Double.parseDouble(place[3]) + (random.nextDouble() - 0.5) * 2;
+        return new Candidate(id,
+                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                place[0], place[1], round(latitude), round(longitude),
+                random.nextBoolean() ? 'F' : 'M', 18 + random.nextInt(15),
+                grade(random), grade(random), grade(random), random.nextInt(6),
+                1 + random.nextInt(5), 1 + random.nextInt(5), 1 + random.nextInt(5));
+    }
+
+    /**
+     * Shuffles an array in place with the Fisher-Yates algorithm.
+     *
+     * @param values the array to shuffle
+     * @param seed the seed of the random generator
+     */
+    public static <T> void shuffle(T[] values, long seed) {
+        Random random = new Random(seed);
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            T value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * Writes candidates as a CSV export with the same header and columns as
+     * candidate-info.csv.
+     *
+     * @param candidates the candidates to write
+     * @param csv the file to create or replace
+     * @throws IOException when the file cannot be written
+     */
+    public static void writeCsv(Candidate[] candidates, Path csv) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("id,name,nationality,city,latitude,longitude,gender,age,english.grade,math.grade,"
+                    + "sciences.grade,language.grade,portfolio.rating,coverletter.rating,refletter.rating\n");
+            for (Candidate c : candidates) {
+                writer.write(c.getId() + "," + c.getFullName() + "," + c.getNationality() + "," + c.getCity() + ","
+                        + c.getLatitude() + "," + c.getLongitude() + "," + c.getGender() + "," + c.getAge() + ","
+                        + c.getEnglishGrade() + "," + c.getMathGrade() + "," + c.getSciencesGrade() + ","
+                        + c.getLanguageGrade() + "," + c.getPortfolioRating() + "," + c.getCoverLetterRating() + ","
+                        + c.getReferenceLetterRating() + "\n");
+            }
+        }
+    }
+
+    private static double grade(Random random) {
+        return (10 + random.nextInt(41)) / 10.0; // 1.0 to 5.0 in steps of 0.1
+    }
+
+    private static double round(double coordinate) {
+        return Math.round(coordinate * 100) / 100.0;
+    }
+}
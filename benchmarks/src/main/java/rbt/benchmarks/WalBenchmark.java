@@ -0,0 +1,88 @@
+package rbt.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rbt.Candidate;
+import rbt.CandidateCodec;
+import rbt.RedBlackTree;
+import rbt.WriteAheadLog;
+
+/**
+ * Insert throughput with every sync policy of the WriteAheadLog, against the
+ * same tree without a log. The log goes to a temporary directory, or below
+ * -p directory=... to measure a specific device; the numbers are only as
+ * meaningful as the fsync of that device.
+ *
+ * @author Naif Abdullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class WalBenchmark {
+
+    @Param({"NONE", "EVERY_WRITE", "GROUP_COMMIT", "OS_BUFFERED"})
+    public String policy;
+
+    @Param({""})
+    public String directory;
+
+    private Path logDirectory;
+    private WriteAheadLog<Candidate> wal;
+    private RedBlackTree<Candidate> tree;
+    private final Random random = new Random(42);
+    private int nextId;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        Path parent = directory.isEmpty() ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(directory);
+        logDirectory = Files.createTempDirectory(parent, "rbt-wal");
+        if (policy.equals("NONE")) {
+            tree = new RedBlackTree<>();
+        } else {
+            wal = WriteAheadLog.open(logDirectory, CandidateCodec.INSTANCE, WriteAheadLog.SyncPolicy.valueOf(policy));
+            tree = wal.getTree();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (wal != null) {
+            wal.close();
+            wal = null;
+        }
+        try (Stream<Path> files = Files.walk(logDirectory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean insert() {
+        return tree.insert(SyntheticCandidates.generate(nextId++, random));
+    }
+}
@@ -0,0 +1,461 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Bitmap index over the low-cardinality attributes of a tree of candidates,
+ * for screening queries such as
+ *
+ * gender == 'F' and nationality in {...} and age between 20 and 24 and
+ * portfolioRating >= 4
+ *
+ * Every indexed candidate gets a small int, its ordinal, and every distinct
+ * value of every attribute keeps the CompressedBitmap of the ordinals holding
+ * it. A filter is evaluated with bitmap AND / OR alone, and only the
+ * candidates left in the final bitmap are looked up and returned, where a scan
+ * of the tree would test every candidate against every predicate.
+ *
+ * The index listens to the tree and is updated with every insertion and
+ * removal. The ordinals of removed candidates are given to the next inserted
+ * ones, so that the bitmaps stay dense. Like the tree, the index must not be
+ * used by several threads at once, and indexed candidates must not be changed.
+ *
+ * @author Naif Abdullah
+ */
+public class CandidateBitmapIndex implements MutationListener<Candidate> {
+
+    /**
+     * The indexed attributes of a candidate.
+     */
+    public enum Attribute {
+        GENDER(Character.class, Candidate::getGender),
+        NATIONALITY(String.class, Candidate::getNationality),
+        CITY(String.class, Candidate::getCity),
+        AGE(Integer.class, Candidate::getAge),
+        PORTFOLIO_RATING(Integer.class, Candidate::getPortfolioRating),
+        COVER_LETTER_RATING(Integer.class, Candidate::getCoverLetterRating),
+        REFERENCE_LETTER_RATING(Integer.class, Candidate::getReferenceLetterRating);
+
+        private final Class<?> type;
+        private final Function<Candidate, Comparable<?>> extractor;
+
+        Attribute(Class<?> type, Function<Candidate, Comparable<?>> extractor) {
+            this.type = type;
+            this.extractor = extractor;
+        }
+
+        /**
+         * @return the class of the values of this attribute
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * @param candidate a candidate
+         * @return the value of this attribute for the candidate
+         */
+        public Comparable<?> valueOf(Candidate candidate) {
+            return extractor.apply(candidate);
+        }
+
+        private Comparable<?> check(Object value) throws NullPointerException, IllegalArgumentException {
+            if (value == null) {
+                throw new NullPointerException("A Filter cannot compare an attribute with null.");
+            }
+            if (!type.isInstance(value)) {
+                throw new IllegalArgumentException("The " + this + " attribute holds " + type.getSimpleName()
+                        + " values, not " + value.getClass().getSimpleName() + ".");
+            }
+            return (Comparable<?>) value;
+        }
+    }
+
+    /**
+     * Immutable predicate on candidates, built from attribute comparisons
+     * combined with and / or. A filter can be evaluated by any index, and
+     * tested on a single candidate.
+     */
+    public abstract static class Filter {
+
+        private Filter() {
+        }
+
+        /**
+         * @return a filter keeping the candidates whose attribute equals the
+         * value
+         * @throws NullPointerException when the value is null
+         * @throws IllegalArgumentException when the value does not have the
+         * type of the attribute
+         */
+        public static Filter equalTo(Attribute attribute, Object value)
+                throws NullPointerException, IllegalArgumentException {
+            return in(attribute, value);
+        }
+
+        /**
+         * @return a filter keeping the candidates whose attribute equals one
+         * of the values
+         * @throws NullPointerException when a value is null
+         * @throws IllegalArgumentException when there are no values, or a
+         * value does not have the type of the attribute
+         */
+        public static Filter in(Attribute attribute, Object... values)
+                throws NullPointerException, IllegalArgumentException {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("An in filter needs at least one value.");
+            }
+            Comparable<?>[] checked = new Comparable<?>[values.length];
+            for (int i = 0; i < values.length; i++) {
+                checked[i] = attribute.check(values[i]);
+            }
+            return new In(attribute, checked);
+        }
+
+        /**
+         * @return a filter keeping the candidates whose attribute lies between
+         * the bounds, both included
+         * @throws NullPointerException when a bound is null
+         * @throws IllegalArgumentException when a bound does not have the type
+         * of the attribute
+         */
+        public static Filter between(Attribute attribute, Object from, Object to)
+                throws NullPointerException, IllegalArgumentException {
+            return new Range(attribute, attribute.check(from), attribute.check(to));
+        }
+
+        /**
+         * @return a filter keeping the candidates whose attribute is at least
+         * the bound
+         * @throws NullPointerException when the bound is null
+         * @throws IllegalArgumentException when the bound does not have the
+         * type of the attribute
+         */
+        public static Filter atLeast(Attribute attribute, Object from)
+                throws NullPointerException, IllegalArgumentException {
+            return new Range(attribute, attribute.check(from), null);
+        }
+
+        /**
+         * @return a filter keeping the candidates whose attribute is at most
+         * the bound
+         * @throws NullPointerException when the bound is null
+         * @throws IllegalArgumentException when the bound does not have the
+         * type of the attribute
+         */
+        public static Filter atMost(Attribute attribute, Object to)
+                throws NullPointerException, IllegalArgumentException {
+            return new Range(attribute, null, attribute.check(to));
+        }
+
+        /**
+         * @return a filter keeping the candidates kept by every filter
+         * @throws IllegalArgumentException when there are no filters
+         */
+        public static Filter and(Filter... filters) throws IllegalArgumentException {
+            return new Combined(true, filters);
+        }
+
+        /**
+         * @return a filter keeping the candidates kept by any filter
+         * @throws IllegalArgumentException when there are no filters
+         */
+        public static Filter or(Filter... filters) throws IllegalArgumentException {
+            return new Combined(false, filters);
+        }
+
+        /**
+         * @param candidate a candidate
+         * @return true if the filter keeps the candidate
+         */
+        public abstract boolean test(Candidate candidate);
+
+        abstract CompressedBitmap evaluate(CandidateBitmapIndex index);
+    }
+
+    private static final class In extends Filter {
+
+        private final Attribute attribute;
+        private final Comparable<?>[] values;
+
+        In(Attribute attribute, Comparable<?>[] values) {
+            this.attribute = attribute;
+            this.values = values;
+        }
+
+        @Override
+        public boolean test(Candidate candidate) {
+            Comparable<?> value = attribute.valueOf(candidate);
+            for (Comparable<?> wanted : values) {
+                if (wanted.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        CompressedBitmap evaluate(CandidateBitmapIndex index) {
+            NavigableMap<Comparable<?>, CompressedBitmap> column = index.columns.get(attribute);
+            CompressedBitmap result = new CompressedBitmap();
+            for (Comparable<?> value : values) {
+                CompressedBitmap bitmap = column.get(value);
+                if (bitmap != null) {
+                    result.addAll(bitmap);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return attribute + " in " + Arrays.toString(values);
+        }
+    }
+
+    private static final class Range extends Filter {
+
+        private final Attribute attribute;
+        private final Comparable<?> from; // null when unbounded
+        private final Comparable<?> to; // null when unbounded
+
+        Range(Attribute attribute, Comparable<?> from, Comparable<?> to) {
+            this.attribute = attribute;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public boolean test(Candidate candidate) {
+            Comparable value = attribute.valueOf(candidate);
+            return (from == null || value.compareTo(from) >= 0) && (to == null || value.compareTo(to) <= 0);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompressedBitmap evaluate(CandidateBitmapIndex index) {
+            NavigableMap<Comparable<?>, CompressedBitmap> column = index.columns.get(attribute);
+            CompressedBitmap result = new CompressedBitmap();
+            if (from != null && to != null && ((Comparable) from).compareTo(to) > 0) {
+                return result;
+            }
+            if (from != null) {
+                column = column.tailMap(from, true);
+            }
+            if (to != null) {
+                column = column.headMap(to, true);
+            }
+            for (CompressedBitmap bitmap : column.values()) {
+                result.addAll(bitmap);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return attribute + " in [" + ((from == null) ? "" : from) + ", " + ((to == null) ? "" : to) + "]";
+        }
+    }
+
+    private static final class Combined extends Filter {
+
+        private final boolean conjunction;
+        private final Filter[] filters;
+
+        Combined(boolean conjunction, Filter[] filters) throws IllegalArgumentException {
+            if (filters.length == 0) {
+                throw new IllegalArgumentException("A combined filter needs at least one filter.");
+            }
+            for (Filter filter : filters) {
+                if (filter == null) {
+                    throw new NullPointerException("A combined filter cannot hold null filters.");
+                }
+            }
+            this.conjunction = conjunction;
+            this.filters = filters.clone();
+        }
+
+        @Override
+        public boolean test(Candidate candidate) {
+            for (Filter filter : filters) {
+                if (filter.test(candidate) != conjunction) {
+                    return !conjunction;
+                }
+            }
+            return conjunction;
+        }
+
+        @Override
+        CompressedBitmap evaluate(CandidateBitmapIndex index) {
+            CompressedBitmap[] bitmaps = new CompressedBitmap[filters.length];
+            for (int i = 0; i < filters.length; i++) {
+                bitmaps[i] = filters[i].evaluate(index);
+                if (conjunction && bitmaps[i].isEmpty()) {
+                    return bitmaps[i];
+                }
+            }
+            // The smallest bitmaps first, so that intersections shrink as early as possible
+            if (conjunction) {
+                Arrays.sort(bitmaps, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+            }
+            // Every bitmap was just computed for this query, so the union can grow the first one
+            CompressedBitmap result = bitmaps[0];
+            for (int i = 1; i < bitmaps.length && !(conjunction && result.isEmpty()); i++) {
+                if (conjunction) {
+                    result = result.and(bitmaps[i]);
+                } else {
+                    result.addAll(bitmaps[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("( ");
+            for (int i = 0; i < filters.length; i++) {
+                sb.append(filters[i]);
+                if (i + 1 < filters.length) {
+                    sb.append(conjunction ? " and " : " or ");
+                }
+            }
+            sb.append(" )");
+            return sb.toString();
+        }
+    }
+
+    private final RedBlackTree<Candidate> tree;
+    private final Map<Attribute, NavigableMap<Comparable<?>, CompressedBitmap>> columns = new EnumMap<>(Attribute.class);
+
+    private final List<Candidate> candidates = new ArrayList<>(); // by ordinal, null for free ordinals
+    private final Map<Candidate, Integer> ordinals = new IdentityHashMap<>();
+    private int[] freeOrdinals = new int[16];
+    private int freeCount = 0;
+
+    /**
+     * Creates an index holding the current candidates of the given tree, and
+     * keeps it in sync with the tree from then on.
+     *
+     * @param tree the tree to index
+     * @throws NullPointerException when the tree is null
+     */
+    public CandidateBitmapIndex(RedBlackTree<Candidate> tree) throws NullPointerException {
+        if (tree == null) {
+            throw new NullPointerException("The tree of a CandidateBitmapIndex cannot be null.");
+        }
+        this.tree = tree;
+        for (Attribute attribute : Attribute.values()) {
+            columns.put(attribute, new TreeMap<>());
+        }
+        Iterator<Candidate> treeNodeIterator = tree.iterator();
+        while (treeNodeIterator.hasNext()) {
+            inserted(treeNodeIterator.next());
+        }
+        tree.addMutationListener(this);
+    }
+
+    /**
+     * Get the size of the index (its number of candidates).
+     *
+     * @return the number of indexed candidates
+     */
+    public int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * @param attribute an attribute
+     * @return the number of distinct values of the attribute among the
+     * indexed candidates
+     */
+    public int distinctValues(Attribute attribute) {
+        return columns.get(attribute).size();
+    }
+
+    /**
+     * Counts the candidates kept by a filter, without looking any of them up.
+     *
+     * @param filter the filter to evaluate
+     * @return the number of matching candidates
+     * @throws NullPointerException when the filter is null
+     */
+    public int count(Filter filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("A CandidateBitmapIndex cannot evaluate a null filter.");
+        }
+        return filter.evaluate(this).cardinality();
+    }
+
+    /**
+     * Finds the candidates kept by a filter.
+     *
+     * @param filter the filter to evaluate
+     * @return the matching candidates, in the order of the tree
+     * @throws NullPointerException when the filter is null
+     */
+    public List<Candidate> select(Filter filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("A CandidateBitmapIndex cannot evaluate a null filter.");
+        }
+        CompressedBitmap matches = filter.evaluate(this);
+        List<Candidate> result = new ArrayList<>(matches.cardinality());
+        matches.forEach(ordinal -> result.add(candidates.get(ordinal)));
+        result.sort(tree::compare);
+        return result;
+    }
+
+    /**
+     * Stops listening to the tree. The index is no longer kept up to date.
+     */
+    public void close() {
+        tree.removeMutationListener(this);
+    }
+
+    @Override
+    public void inserted(Candidate value) {
+        int ordinal;
+        if (freeCount > 0) {
+            ordinal = freeOrdinals[--freeCount];
+            candidates.set(ordinal, value);
+        } else {
+            ordinal = candidates.size();
+            candidates.add(value);
+        }
+        ordinals.put(value, ordinal);
+        for (Map.Entry<Attribute, NavigableMap<Comparable<?>, CompressedBitmap>> column : columns.entrySet()) {
+            column.getValue().computeIfAbsent(column.getKey().valueOf(value), key -> new CompressedBitmap())
+                    .add(ordinal);
+        }
+    }
+
+    @Override
+    public void removed(Candidate value) {
+        Integer ordinal = ordinals.remove(value);
+        if (ordinal == null) {
+            return;
+        }
+        for (Map.Entry<Attribute, NavigableMap<Comparable<?>, CompressedBitmap>> column : columns.entrySet()) {
+            Comparable<?> key = column.getKey().valueOf(value);
+            CompressedBitmap bitmap = column.getValue().get(key);
+            if (bitmap != null && bitmap.remove(ordinal) && bitmap.isEmpty()) {
+                column.getValue().remove(key);
+            }
+        }
+        candidates.set(ordinal, null);
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, 2 * freeCount);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+    }
+}
@@ -0,0 +1,80 @@
+package rbt;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary record format of a Candidate: all 15 attributes in declaration
+ * order, with numbers in their fixed Java width (big-endian) and strings as
+ * their UTF-8 byte length followed by the bytes.
+ *
+ * @author Naif Abdullah
+ */
+public final class CandidateCodec implements SnapshotCodec<Candidate> {
+
+    /**
+     * The codec has no state, so a single instance is shared.
+     */
+    public static final CandidateCodec INSTANCE = new CandidateCodec();
+
+    private CandidateCodec() {
+    }
+
+    @Override
+    public void write(Candidate candidate, DataOutput out) throws IOException {
+        out.writeInt(candidate.getId());
+        writeString(candidate.getFullName(), out);
+        writeString(candidate.getNationality(), out);
+        writeString(candidate.getCity(), out);
+        out.writeDouble(candidate.getLatitude());
+        out.writeDouble(candidate.getLongitude());
+        out.writeChar(candidate.getGender());
+        out.writeInt(candidate.getAge());
+        out.writeDouble(candidate.getEnglishGrade());
+        out.writeDouble(candidate.getMathGrade());
+        out.writeDouble(candidate.getSciencesGrade());
+        out.writeDouble(candidate.getLanguageGrade());
+        out.writeInt(candidate.getPortfolioRating());
+        out.writeInt(candidate.getCoverLetterRating());
+        out.writeInt(candidate.getReferenceLetterRating());
+    }
+
+    @Override
+    public Candidate read(ByteBuffer in) {
+        return new Candidate(
+                in.getInt(),
+                readString(in),
+                readString(in),
+                readString(in),
+                in.getDouble(),
+                in.getDouble(),
+                in.getChar(),
+                in.getInt(),
+                in.getDouble(),
+                in.getDouble(),
+                in.getDouble(),
+                in.getDouble(),
+                in.getInt(),
+                in.getInt(),
+                in.getInt()
+        );
+    }
+
+    private static void writeString(String string, DataOutput out) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length in record: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
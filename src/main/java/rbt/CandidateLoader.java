@@ -0,0 +1,480 @@
+package rbt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming loader for candidate CSV exports with the same columns as
+ * candidate-info.csv. The file is read in fixed-size chunks cut at line
+ * boundaries, chunks are parsed on a pool of worker threads, and each parsed
+ * chunk is sorted and inserted into the tree in file order. Only a bounded
+ * number of chunks is in flight at any time, so memory use does not depend on
+ * the size of the file.
+ *
+ * Numeric columns are parsed straight from the bytes of the file, without
+ * creating a String per column. Rows that cannot be parsed, or that duplicate
+ * a candidate already in the tree, are skipped and reported with their line
+ * number. Quoted fields are supported as long as they do not span lines.
+ *
+ * @author Naif Abdullah
+ */
+public class CandidateLoader {
+
+    private static final int COLUMNS = 15;
+    private static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * A row that could not be loaded.
+     */
+    public static final class RowError {
+
+        private final long lineNumber;
+        private final String message;
+
+        RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /**
+         * @return the 1-based line number of the row within the file
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * @return why the row was rejected
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of loading a file. At most the first 1000 rejected rows are
+     * kept, so a file full of bad rows cannot exhaust memory.
+     */
+    public static final class LoadResult {
+
+        private long loaded = 0;
+        private long rejected = 0;
+        private final List<RowError> errors = new ArrayList<>();
+
+        private void reject(RowError error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        /**
+         * @return the number of rows inserted into the tree
+         */
+        public long getLoaded() {
+            return loaded;
+        }
+
+        /**
+         * @return the number of rows that were skipped
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return the first rejected rows, in file order
+         */
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        @Override
+        public String toString() {
+            return "LoadResult{loaded=" + loaded + ", rejected=" + rejected + ", errors=" + errors + '}';
+        }
+    }
+
+    private final int parallelism;
+    private final int chunkBytes;
+
+    /**
+     * Creates a loader using one worker per available processor and 4 MB
+     * chunks.
+     */
+    public CandidateLoader() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Creates a loader with the given number of workers and chunk size.
+     *
+     * @param parallelism the number of worker threads parsing chunks
+     * @param chunkBytes the number of bytes read per chunk; longer lines make
+     * their chunk grow as needed
+     * @throws IllegalArgumentException when either argument is not positive
+     */
+    public CandidateLoader(int parallelism, int chunkBytes) throws IllegalArgumentException {
+        if (parallelism <= 0 || chunkBytes <= 0) {
+            throw new IllegalArgumentException("The parallelism and chunk size must be positive.");
+        }
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Loads every candidate of a CSV file into the given tree. The first line
+     * of the file is a header and is skipped.
+     *
+     * @param csv the file to load
+     * @param tree the tree to insert the candidates into
+     * @return the number of loaded rows and the rejected ones
+     * @throws IOException when the file cannot be read
+     * @throws NullPointerException when the file or tree is null
+     */
+    public LoadResult load(Path csv, RedBlackTree<Candidate> tree) throws IOException, NullPointerException {
+        if (csv == null || tree == null) {
+            throw new NullPointerException("The CSV file and tree cannot be null.");
+        }
+        LoadResult result = new LoadResult();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        long[] nextLine = {1}; // line number of the first line of the next chunk to insert
+
+        try (InputStream in = Files.newInputStream(csv)) {
+            byte[] carry = new byte[0]; // the incomplete last line of the previous chunk
+            boolean firstChunk = true;
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                byte[] buffer = Arrays.copyOf(carry, Math.max(chunkBytes, carry.length * 2));
+                int length = carry.length;
+                int read;
+                while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+                    length += read;
+                }
+                endOfFile = length < buffer.length;
+
+                int cut = length;
+                if (!endOfFile) {
+                    cut = lastNewline(buffer, length) + 1;
+                    if (cut == 0) { // a single line longer than the buffer: read more of it
+                        carry = buffer;
+                        continue;
+                    }
+                }
+                carry = Arrays.copyOfRange(buffer, cut, length);
+
+                int chunkLength = cut;
+                boolean skipHeader = firstChunk;
+                firstChunk = false;
+                inFlight.add(workers.submit(() -> parseChunk(buffer, chunkLength, skipHeader)));
+                // Bound the number of chunks held in memory
+                while (inFlight.size() > 2 * parallelism) {
+                    insertChunk(inFlight.removeFirst(), tree, result, nextLine);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                insertChunk(inFlight.removeFirst(), tree, result, nextLine);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Waits for a chunk to be parsed, then inserts its rows into the tree.
+     */
+    private static void insertChunk(Future<ParsedChunk> future, RedBlackTree<Candidate> tree,
+            LoadResult result, long[] nextLine) throws IOException {
+        ParsedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading candidates");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse candidates", e.getCause());
+        }
+
+        // Errors and rows carry line numbers relative to the chunk
+        long firstLine = nextLine[0];
+        List<Candidate> candidates = new ArrayList<>(chunk.rows.size());
+        for (ParsedRow row : chunk.rows) {
+            candidates.add(row.candidate);
+        }
+        RedBlackTree.InsertAllResult<Candidate> inserted = tree.insertAll(candidates);
+        result.loaded += inserted.getInserted();
+        // The duplicates are the rejected candidates themselves, in row order
+        List<Candidate> duplicates = inserted.getDuplicates();
+        int nextDuplicate = 0;
+        for (ParsedRow row : chunk.rows) {
+            if (nextDuplicate < duplicates.size() && duplicates.get(nextDuplicate) == row.candidate) {
+                chunk.errors.add(new RowError(row.line, "duplicate candidate " + row.candidate.getId()));
+                nextDuplicate++;
+            }
+        }
+        chunk.errors.sort((a, b) -> Long.compare(a.lineNumber, b.lineNumber));
+        for (RowError error : chunk.errors) {
+            result.reject(new RowError(firstLine + error.lineNumber, error.message));
+        }
+        nextLine[0] += chunk.lineCount;
+    }
+
+    /**
+     * @return the index of the last newline byte in the buffer, or -1
+     */
+    private static int lastNewline(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A parsed candidate and its line within the chunk.
+     */
+    private static final class ParsedRow implements Comparable<ParsedRow> {
+
+        final Candidate candidate;
+        final long line;
+
+        ParsedRow(Candidate candidate, long line) {
+            this.candidate = candidate;
+            this.line = line;
+        }
+
+        @Override
+        public int compareTo(ParsedRow other) {
+            return candidate.compareTo(other.candidate);
+        }
+    }
+
+    /**
+     * The rows and errors of one chunk, with 0-based line numbers relative to
+     * the first line of the chunk, and the number of lines it spans.
+     */
+    private static final class ParsedChunk {
+
+        final List<ParsedRow> rows = new ArrayList<>();
+        final List<RowError> errors = new ArrayList<>();
+        int lineCount = 0;
+    }
+
+    /**
+     * Parses every line of a chunk, then sorts the parsed rows so that they
+     * are inserted as one ascending run.
+     */
+    private static ParsedChunk parseChunk(byte[] buffer, int length, boolean skipHeader) {
+        ParsedChunk chunk = new ParsedChunk();
+        int[] fieldStarts = new int[COLUMNS];
+        int[] fieldEnds = new int[COLUMNS];
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buffer[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int line = chunk.lineCount++;
+            int contentEnd = (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') ? lineEnd - 1 : lineEnd;
+            if (!(skipHeader && line == 0) && contentEnd > lineStart) {
+                try {
+                    Candidate candidate = parseLine(buffer, lineStart, contentEnd, fieldStarts, fieldEnds);
+                    chunk.rows.add(new ParsedRow(candidate, line));
+                } catch (IllegalArgumentException e) {
+                    chunk.errors.add(new RowError(line, e.getMessage()));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        Collections.sort(chunk.rows);
+        return chunk;
+    }
+
+    /**
+     * Splits a line into its fields and builds the candidate it describes.
+     *
+     * @throws IllegalArgumentException when the line does not hold a valid
+     * candidate
+     */
+    private static Candidate parseLine(byte[] buffer, int start, int end, int[] fieldStarts, int[] fieldEnds)
+            throws IllegalArgumentException {
+        int field = 0;
+        int position = start;
+        while (true) {
+            if (field == COLUMNS) {
+                throw new IllegalArgumentException("expected " + COLUMNS + " columns but found more");
+            }
+            if (position < end && buffer[position] == '"') {
+                // Quoted field: runs until a quote that is not doubled
+                int close = position + 1;
+                while (close < end && !(buffer[close] == '"' && (close + 1 == end || buffer[close + 1] != '"'))) {
+                    close += (buffer[close] == '"') ? 2 : 1;
+                }
+                if (close >= end) {
+                    throw new IllegalArgumentException("unterminated quoted field " + (field + 1));
+                }
+                fieldStarts[field] = position;
+                fieldEnds[field] = close + 1;
+                position = close + 1;
+                if (position < end && buffer[position] != ',') {
+                    throw new IllegalArgumentException("unexpected character after quoted field " + (field + 1));
+                }
+            } else {
+                fieldStarts[field] = position;
+                while (position < end && buffer[position] != ',') {
+                    position++;
+                }
+                fieldEnds[field] = position;
+            }
+            field++;
+            if (position == end) {
+                break;
+            }
+            position++; // skip the comma
+        }
+        if (field != COLUMNS) {
+            throw new IllegalArgumentException("expected " + COLUMNS + " columns but found " + field);
+        }
+
+        return new Candidate(
+                parseInt(buffer, fieldStarts[0], fieldEnds[0], "id"),
+                parseString(buffer, fieldStarts[1], fieldEnds[1]),
+                parseString(buffer, fieldStarts[2], fieldEnds[2]),
+                parseString(buffer, fieldStarts[3], fieldEnds[3]),
+                parseDouble(buffer, fieldStarts[4], fieldEnds[4], "latitude"),
+                parseDouble(buffer, fieldStarts[5], fieldEnds[5], "longitude"),
+                parseChar(buffer, fieldStarts[6], fieldEnds[6]),
+                parseInt(buffer, fieldStarts[7], fieldEnds[7], "age"),
+                parseDouble(buffer, fieldStarts[8], fieldEnds[8], "english.grade"),
+                parseDouble(buffer, fieldStarts[9], fieldEnds[9], "math.grade"),
+                parseDouble(buffer, fieldStarts[10], fieldEnds[10], "sciences.grade"),
+                parseDouble(buffer, fieldStarts[11], fieldEnds[11], "language.grade"),
+                parseInt(buffer, fieldStarts[12], fieldEnds[12], "portfolio.rating"),
+                parseInt(buffer, fieldStarts[13], fieldEnds[13], "coverletter.rating"),
+                parseInt(buffer, fieldStarts[14], fieldEnds[14], "refletter.rating")
+        );
+    }
+
+    private static String parseString(byte[] buffer, int start, int end) {
+        if (end - start >= 2 && buffer[start] == '"') {
+            return new String(buffer, start + 1, end - start - 2, StandardCharsets.UTF_8).replace("\"\"", "\"");
+        }
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Keeps the first character of the gender column, so "other" becomes 'o'.
+     * The column is unquoted and decoded like any other text column.
+     */
+    private static char parseChar(byte[] buffer, int start, int end) {
+        String gender = parseString(buffer, start, end);
+        if (gender.isEmpty()) {
+            throw new IllegalArgumentException("gender is empty");
+        }
+        return gender.charAt(0);
+    }
+
+    private static int parseInt(byte[] buffer, int start, int end, String column) {
+        int position = start;
+        boolean negative = position < end && buffer[position] == '-';
+        if (negative || (position < end && buffer[position] == '+')) {
+            position++;
+        }
+        if (position == end) {
+            throw new IllegalArgumentException(column + " is not a number");
+        }
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException(column + " is not a number: " + text(buffer, start, end));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new IllegalArgumentException(column + " is out of range: " + text(buffer, start, end));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(column + " is out of range: " + text(buffer, start, end));
+        }
+        return (int) value;
+    }
+
+    // Powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parses a plain decimal number such as -118.54. Since both the digits
+     * (as an integer below 2^53) and the power of ten are exact doubles, one
+     * correctly rounded division gives the same result as Double.parseDouble.
+     * Other forms, such as exponents or very long numbers, fall back to
+     * Double.parseDouble.
+     */
+    private static double parseDouble(byte[] buffer, int start, int end, String column) {
+        int position = start;
+        boolean negative = position < end && buffer[position] == '-';
+        if (negative || (position < end && buffer[position] == '+')) {
+            position++;
+        }
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+        for (; position < end; position++) {
+            byte b = buffer[position];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9' && digitCount < 15) {
+                digits = digits * 10 + (b - '0');
+                digitCount++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                return parseDoubleSlowly(buffer, start, end, column);
+            }
+        }
+        if (digitCount == 0) {
+            throw new IllegalArgumentException(column + " is not a number: " + text(buffer, start, end));
+        }
+        double value = digits / POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleSlowly(byte[] buffer, int start, int end, String column) {
+        try {
+            return Double.parseDouble(text(buffer, start, end));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + text(buffer, start, end));
+        }
+    }
+
+    private static String text(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,181 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the candidates of a tree ranked by the score of every registered
+ * ScoringProfile. Each profile has its own RedBlackTree of the candidates,
+ * ordered by descending score, which the ranking updates on every insert and
+ * remove of the tree in O(log n). The best k candidates of a profile are then
+ * the first k values of its tree, found in O(k + log n) instead of scoring
+ * and sorting the whole tree.
+ *
+ * Registering or re-weighting a profile scores and sorts the candidates with
+ * a parallel sort, and builds the new score tree from the sorted array in
+ * linear time. Like the tree, the ranking must not be used by several
+ * threads at once, and ranked candidates must not be changed.
+ *
+ * @author Naif Abdullah
+ */
+public class CandidateRanking implements MutationListener<Candidate> {
+
+    private final RedBlackTree<Candidate> tree;
+    private final Map<String, ScoringProfile> profiles = new LinkedHashMap<>();
+    private final Map<String, RedBlackTree<Candidate>> rankings = new LinkedHashMap<>();
+
+    /**
+     * Creates a ranking without any profile, listening to the given tree.
+     *
+     * @param tree the tree of candidates to rank
+     * @throws NullPointerException when the tree is null
+     */
+    public CandidateRanking(RedBlackTree<Candidate> tree) throws NullPointerException {
+        if (tree == null) {
+            throw new NullPointerException("The ranked tree cannot be null.");
+        }
+        this.tree = tree;
+        tree.addMutationListener(this);
+    }
+
+    /**
+     * Registers a new profile and ranks the current candidates of the tree.
+     *
+     * @param profile the profile to register
+     * @throws NullPointerException when the profile is null
+     * @throws IllegalArgumentException when a profile with that name already
+     * exists
+     */
+    public void register(ScoringProfile profile) throws NullPointerException, IllegalArgumentException {
+        if (profile == null) {
+            throw new NullPointerException("A CandidateRanking cannot register a null profile.");
+        }
+        if (profiles.containsKey(profile.getName())) {
+            throw new IllegalArgumentException("A profile named " + profile.getName() + " already exists.");
+        }
+        rankings.put(profile.getName(), rank(profile));
+        profiles.put(profile.getName(), profile);
+    }
+
+    /**
+     * Replaces the weights of a registered profile, and ranks the candidates
+     * again with the new weights.
+     *
+     * @param profile the new profile, named like the one it replaces
+     * @throws NullPointerException when the profile is null
+     * @throws IllegalArgumentException when no profile has that name
+     */
+    public void reweight(ScoringProfile profile) throws NullPointerException, IllegalArgumentException {
+        if (profile == null) {
+            throw new NullPointerException("A CandidateRanking cannot register a null profile.");
+        }
+        if (!profiles.containsKey(profile.getName())) {
+            throw new IllegalArgumentException("There is no profile named " + profile.getName() + ".");
+        }
+        rankings.put(profile.getName(), rank(profile));
+        profiles.put(profile.getName(), profile);
+    }
+
+    /**
+     * Drops a profile, which is no longer kept up to date afterwards.
+     *
+     * @param name the name of the profile
+     * @return true if the profile existed, false if not
+     */
+    public boolean unregister(String name) {
+        rankings.remove(name);
+        return profiles.remove(name) != null;
+    }
+
+    /**
+     * @param name the name of the profile
+     * @return the profile registered with that name, or null if there is none
+     */
+    public ScoringProfile getProfile(String name) {
+        return profiles.get(name);
+    }
+
+    /**
+     * @return the names of the registered profiles, in registration order
+     */
+    public Set<String> profileNames() {
+        return Collections.unmodifiableSet(profiles.keySet());
+    }
+
+    /**
+     * Finds the best candidates by the score of a profile.
+     *
+     * @param name the name of the profile
+     * @param k the number of candidates to return
+     * @return at most k candidates, the highest score first
+     * @throws IllegalArgumentException when no profile has that name, or k is
+     * negative
+     */
+    public List<Candidate> topK(String name, int k) throws IllegalArgumentException {
+        RedBlackTree<Candidate> ranking = rankings.get(name);
+        if (ranking == null) {
+            throw new IllegalArgumentException("There is no profile named " + name + ".");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of candidates cannot be negative: " + k);
+        }
+        List<Candidate> result = new ArrayList<>(Math.min(k, ranking.size()));
+        Iterator<Candidate> best = ranking.iterator();
+        while (result.size() < k && best.hasNext()) {
+            result.add(best.next());
+        }
+        return result;
+    }
+
+    /**
+     * @param name the name of the profile
+     * @param candidate a ranked candidate
+     * @return the 0-based position of the candidate in the ranking of the
+     * profile, or -1 if it is not ranked
+     * @throws IllegalArgumentException when no profile has that name
+     */
+    public int rankOf(String name, Candidate candidate) throws IllegalArgumentException {
+        RedBlackTree<Candidate> ranking = rankings.get(name);
+        if (ranking == null) {
+            throw new IllegalArgumentException("There is no profile named " + name + ".");
+        }
+        return ranking.contains(candidate) ? ranking.rank(candidate) : -1;
+    }
+
+    /**
+     * Stops listening to the tree and drops every profile.
+     */
+    public void close() {
+        tree.removeMutationListener(this);
+        profiles.clear();
+        rankings.clear();
+    }
+
+    @Override
+    public void inserted(Candidate value) {
+        for (RedBlackTree<Candidate> ranking : rankings.values()) {
+            ranking.insert(value);
+        }
+    }
+
+    @Override
+    public void removed(Candidate value) {
+        for (RedBlackTree<Candidate> ranking : rankings.values()) {
+            ranking.remove(value);
+        }
+    }
+
+    private RedBlackTree<Candidate> rank(ScoringProfile profile) {
+        Candidate[] candidates = tree.parallelStream().toArray(Candidate[]::new);
+        Comparator<Candidate> ranking = profile.ranking();
+        Arrays.parallelSort(candidates, ranking);
+        return RedBlackTree.fromSorted(Arrays.asList(candidates).iterator(), candidates.length, ranking);
+    }
+}
@@ -0,0 +1,203 @@
+package rbt;
+
+/**
+ * Lightweight flyweight referring to one row of a CandidateStore. It only
+ * holds the store and the row number; every getter reads the off-heap column,
+ * and a full Candidate object is created only by toCandidate(). Rows compare
+ * exactly like the candidates they hold compare with Candidate.compareTo, so
+ * a RedBlackTree of rows is an index over the store.
+ *
+ * @author Naif Abdullah
+ */
+public final class CandidateRow implements Comparable<CandidateRow> {
+
+    private final CandidateStore store;
+    private final int row;
+
+    CandidateRow(CandidateStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * @return the row number within the store
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return the store holding this row
+     */
+    public CandidateStore getStore() {
+        return store;
+    }
+
+    /**
+     * Creates a new on-heap Candidate holding the attributes of this row.
+     *
+     * @return a Candidate equal to the one stored in this row
+     */
+    public Candidate toCandidate() {
+        return store.materialize(row);
+    }
+
+    public int getId() {
+        return store.getId(row);
+    }
+
+    public String getFullName() {
+        return store.getFullName(row);
+    }
+
+    public String getNationality() {
+        return store.getNationality(row);
+    }
+
+    public String getCity() {
+        return store.getCity(row);
+    }
+
+    public double getLatitude() {
+        return store.getLatitude(row);
+    }
+
+    public double getLongitude() {
+        return store.getLongitude(row);
+    }
+
+    public char getGender() {
+        return store.getGender(row);
+    }
+
+    public int getAge() {
+        return store.getAge(row);
+    }
+
+    public double getEnglishGrade() {
+        return store.getEnglishGrade(row);
+    }
+
+    public double getMathGrade() {
+        return store.getMathGrade(row);
+    }
+
+    public double getSciencesGrade() {
+        return store.getSciencesGrade(row);
+    }
+
+    public double getLanguageGrade() {
+        return store.getLanguageGrade(row);
+    }
+
+    public int getPortfolioRating() {
+        return store.getPortfolioRating(row);
+    }
+
+    public int getCoverLetterRating() {
+        return store.getCoverLetterRating(row);
+    }
+
+    public int getReferenceLetterRating() {
+        return store.getReferenceLetterRating(row);
+    }
+
+    @Override
+    public String toString() {
+        return toCandidate().toString();
+    }
+
+    /**
+     * Compares the attributes of two rows in the same order as
+     * Candidate.compareTo. Strings are only decoded when their dictionary
+     * codes differ, since equal codes always mean equal strings.
+     *
+     * @param other the row to compare with
+     * @return a negative number, zero or a positive number when this row is
+     * smaller than, equal to or larger than the other one
+     */
+    @Override
+    public int compareTo(CandidateRow other) {
+        CandidateStore otherStore = other.store;
+        int otherRow = other.row;
+        int compare = Integer.compare(store.getId(row), otherStore.getId(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = compareStrings(store.getFullNameCode(row), otherStore.getFullNameCode(otherRow),
+                CandidateStore::getFullName, other);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = compareStrings(store.getNationalityCode(row), otherStore.getNationalityCode(otherRow),
+                CandidateStore::getNationality, other);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = compareStrings(store.getCityCode(row), otherStore.getCityCode(otherRow),
+                CandidateStore::getCity, other);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Double.compare(store.getLatitude(row), otherStore.getLatitude(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Double.compare(store.getLongitude(row), otherStore.getLongitude(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Character.compare(store.getGender(row), otherStore.getGender(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(store.getAge(row), otherStore.getAge(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Double.compare(store.getEnglishGrade(row), otherStore.getEnglishGrade(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Double.compare(store.getMathGrade(row), otherStore.getMathGrade(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Double.compare(store.getSciencesGrade(row), otherStore.getSciencesGrade(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Double.compare(store.getLanguageGrade(row), otherStore.getLanguageGrade(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(store.getPortfolioRating(row), otherStore.getPortfolioRating(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(store.getCoverLetterRating(row), otherStore.getCoverLetterRating(otherRow));
+        if (compare != 0) {
+            return compare;
+        }
+        return Integer.compare(store.getReferenceLetterRating(row), otherStore.getReferenceLetterRating(otherRow));
+    }
+
+    /**
+     * Reads one string column of a row.
+     */
+    private interface StringColumn {
+
+        String get(CandidateStore store, int row);
+    }
+
+    /**
+     * Compares a string column of this row and the other row, skipping the
+     * dictionary lookups when both rows share the same code in the same store.
+     */
+    private int compareStrings(int code, int otherCode, StringColumn column, CandidateRow other) {
+        if (code == otherCode && store == other.store) {
+            return 0;
+        }
+        return column.get(store, row).compareTo(column.get(other.store, other.row));
+    }
+}
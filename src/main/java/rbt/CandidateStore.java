@@ -0,0 +1,293 @@
+package rbt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Columnar, off-heap store for candidate attributes. Every attribute of
+ * Candidate has its own fixed-width column in a direct ByteBuffer, outside of
+ * the garbage collected heap, and a candidate is a row number across these
+ * columns. The name, nationality and city columns hold dictionary codes, so
+ * each distinct string is kept only once.
+ *
+ * Rows are meant to be indexed by a RedBlackTree of CandidateRow flyweights,
+ * which order rows exactly like Candidate.compareTo orders candidates, and
+ * materialize a Candidate object only when asked to.
+ *
+ * @author Naif Abdullah
+ */
+public class CandidateStore {
+
+    // Column indices and their widths in bytes
+    private static final int ID = 0;
+    private static final int FULL_NAME = 1;
+    private static final int NATIONALITY = 2;
+    private static final int CITY = 3;
+    private static final int LATITUDE = 4;
+    private static final int LONGITUDE = 5;
+    private static final int GENDER = 6;
+    private static final int AGE = 7;
+    private static final int ENGLISH_GRADE = 8;
+    private static final int MATH_GRADE = 9;
+    private static final int SCIENCES_GRADE = 10;
+    private static final int LANGUAGE_GRADE = 11;
+    private static final int PORTFOLIO_RATING = 12;
+    private static final int COVER_LETTER_RATING = 13;
+    private static final int REFERENCE_LETTER_RATING = 14;
+    private static final int[] WIDTHS = {
+        Integer.BYTES, Integer.BYTES, Integer.BYTES, Integer.BYTES, Double.BYTES, Double.BYTES,
+        Character.BYTES, Integer.BYTES, Double.BYTES, Double.BYTES, Double.BYTES, Double.BYTES,
+        Integer.BYTES, Integer.BYTES, Integer.BYTES
+    };
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ByteBuffer[] columns = new ByteBuffer[WIDTHS.length];
+    private final StringDictionary dictionary = new StringDictionary();
+    private int capacity; // the number of rows the columns have room for
+    private int size = 0; // the number of rows in the store
+
+    /**
+     * Creates an empty store.
+     */
+    public CandidateStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty store with room for the given number of rows before
+     * its columns have to grow.
+     *
+     * @param initialCapacity the number of rows to allocate up front
+     * @throws IllegalArgumentException when the capacity is not positive
+     */
+    public CandidateStore(int initialCapacity) throws IllegalArgumentException {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("The initial capacity must be positive: " + initialCapacity);
+        }
+        capacity = initialCapacity;
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = allocate(column, capacity);
+        }
+    }
+
+    /**
+     * Appends the attributes of the given candidate as a new row.
+     *
+     * @param candidate the candidate to store
+     * @return the flyweight referring to the new row
+     * @throws NullPointerException when the candidate or one of its strings is
+     * null
+     */
+    public CandidateRow add(Candidate candidate) throws NullPointerException {
+        if (candidate == null) {
+            throw new NullPointerException("This CandidateStore cannot store null references.");
+        }
+        // Encode the strings first, so that a null string leaves the store unchanged
+        int fullName = dictionary.encode(candidate.getFullName());
+        int nationality = dictionary.encode(candidate.getNationality());
+        int city = dictionary.encode(candidate.getCity());
+        if (size == capacity) {
+            grow();
+        }
+
+        int row = size;
+        columns[ID].putInt(offset(ID, row), candidate.getId());
+        columns[FULL_NAME].putInt(offset(FULL_NAME, row), fullName);
+        columns[NATIONALITY].putInt(offset(NATIONALITY, row), nationality);
+        columns[CITY].putInt(offset(CITY, row), city);
+        columns[LATITUDE].putDouble(offset(LATITUDE, row), candidate.getLatitude());
+        columns[LONGITUDE].putDouble(offset(LONGITUDE, row), candidate.getLongitude());
+        columns[GENDER].putChar(offset(GENDER, row), candidate.getGender());
+        columns[AGE].putInt(offset(AGE, row), candidate.getAge());
+        columns[ENGLISH_GRADE].putDouble(offset(ENGLISH_GRADE, row), candidate.getEnglishGrade());
+        columns[MATH_GRADE].putDouble(offset(MATH_GRADE, row), candidate.getMathGrade());
+        columns[SCIENCES_GRADE].putDouble(offset(SCIENCES_GRADE, row), candidate.getSciencesGrade());
+        columns[LANGUAGE_GRADE].putDouble(offset(LANGUAGE_GRADE, row), candidate.getLanguageGrade());
+        columns[PORTFOLIO_RATING].putInt(offset(PORTFOLIO_RATING, row), candidate.getPortfolioRating());
+        columns[COVER_LETTER_RATING].putInt(offset(COVER_LETTER_RATING, row), candidate.getCoverLetterRating());
+        columns[REFERENCE_LETTER_RATING].putInt(offset(REFERENCE_LETTER_RATING, row), candidate.getReferenceLetterRating());
+        size++;
+        return new CandidateRow(this, row);
+    }
+
+    /**
+     * Returns a flyweight referring to an existing row.
+     *
+     * @param row the row number
+     * @return the flyweight referring to this row
+     * @throws IndexOutOfBoundsException when the row does not exist
+     */
+    public CandidateRow row(int row) throws IndexOutOfBoundsException {
+        checkRow(row);
+        return new CandidateRow(this, row);
+    }
+
+    /**
+     * Creates a new on-heap Candidate holding the attributes of a row.
+     *
+     * @param row the row number
+     * @return a Candidate equal to the one that was stored in this row
+     * @throws IndexOutOfBoundsException when the row does not exist
+     */
+    public Candidate materialize(int row) throws IndexOutOfBoundsException {
+        checkRow(row);
+        return new Candidate(getId(row), getFullName(row), getNationality(row), getCity(row),
+                getLatitude(row), getLongitude(row), getGender(row), getAge(row),
+                getEnglishGrade(row), getMathGrade(row), getSciencesGrade(row), getLanguageGrade(row),
+                getPortfolioRating(row), getCoverLetterRating(row), getReferenceLetterRating(row));
+    }
+
+    /**
+     * Get the size of the store (its number of rows).
+     *
+     * @return the number of rows in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct strings held by the dictionary
+     */
+    public int distinctStrings() {
+        return dictionary.size();
+    }
+
+    /**
+     * @return the number of off-heap bytes currently allocated for the columns
+     */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer column : columns) {
+            bytes += column.capacity();
+        }
+        return bytes;
+    }
+
+    // Column accessors. Rows are not range checked here: they come from
+    // CandidateRow flyweights, which only exist for rows of this store.
+
+    int getId(int row) {
+        return columns[ID].getInt(offset(ID, row));
+    }
+
+    int getFullNameCode(int row) {
+        return columns[FULL_NAME].getInt(offset(FULL_NAME, row));
+    }
+
+    String getFullName(int row) {
+        return dictionary.decode(getFullNameCode(row));
+    }
+
+    int getNationalityCode(int row) {
+        return columns[NATIONALITY].getInt(offset(NATIONALITY, row));
+    }
+
+    String getNationality(int row) {
+        return dictionary.decode(getNationalityCode(row));
+    }
+
+    int getCityCode(int row) {
+        return columns[CITY].getInt(offset(CITY, row));
+    }
+
+    String getCity(int row) {
+        return dictionary.decode(getCityCode(row));
+    }
+
+    double getLatitude(int row) {
+        return columns[LATITUDE].getDouble(offset(LATITUDE, row));
+    }
+
+    double getLongitude(int row) {
+        return columns[LONGITUDE].getDouble(offset(LONGITUDE, row));
+    }
+
+    char getGender(int row) {
+        return columns[GENDER].getChar(offset(GENDER, row));
+    }
+
+    int getAge(int row) {
+        return columns[AGE].getInt(offset(AGE, row));
+    }
+
+    double getEnglishGrade(int row) {
+        return columns[ENGLISH_GRADE].getDouble(offset(ENGLISH_GRADE, row));
+    }
+
+    double getMathGrade(int row) {
+        return columns[MATH_GRADE].getDouble(offset(MATH_GRADE, row));
+    }
+
+    double getSciencesGrade(int row) {
+        return columns[SCIENCES_GRADE].getDouble(offset(SCIENCES_GRADE, row));
+    }
+
+    double getLanguageGrade(int row) {
+        return columns[LANGUAGE_GRADE].getDouble(offset(LANGUAGE_GRADE, row));
+    }
+
+    int getPortfolioRating(int row) {
+        return columns[PORTFOLIO_RATING].getInt(offset(PORTFOLIO_RATING, row));
+    }
+
+    int getCoverLetterRating(int row) {
+        return columns[COVER_LETTER_RATING].getInt(offset(COVER_LETTER_RATING, row));
+    }
+
+    int getReferenceLetterRating(int row) {
+        return columns[REFERENCE_LETTER_RATING].getInt(offset(REFERENCE_LETTER_RATING, row));
+    }
+
+    /**
+     * @param column the column index
+     * @param row the row number
+     * @return the byte offset of the row's value within the column
+     */
+    private static int offset(int column, int row) {
+        return row * WIDTHS[column];
+    }
+
+    /**
+     * Allocates a direct, native byte order buffer for a column.
+     *
+     * @param column the column index
+     * @param rows the number of rows the buffer must hold
+     * @return the new buffer
+     */
+    private static ByteBuffer allocate(int column, int rows) {
+        long bytes = (long) rows * WIDTHS[column];
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("A CandidateStore column cannot hold more than "
+                    + (Integer.MAX_VALUE / WIDTHS[column]) + " rows");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Doubles the capacity of every column, copying the existing rows.
+     */
+    private void grow() {
+        int newCapacity = (int) Math.min((long) capacity * 2, Integer.MAX_VALUE);
+        for (int column = 0; column < columns.length; column++) {
+            ByteBuffer grown = allocate(column, newCapacity);
+            ByteBuffer old = columns[column].duplicate();
+            old.clear();
+            grown.put(old);
+            grown.clear();
+            columns[column] = grown;
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * @param row the row number to check
+     * @throws IndexOutOfBoundsException when the row does not exist
+     */
+    private void checkRow(int row) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " does not exist, size is " + size);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package rbt;
+
+/**
+ * Immutable, compact copy of a Candidate for holding large candidate pools on
+ * the heap. Nationalities and cities are shared through the dictionary of the
+ * Factory that created the candidate, positions are stored in hundredths of a
+ * degree, grades in tenths and age and ratings in single bytes, which brings
+ * a candidate from 96 to 56 bytes before counting the strings it no longer
+ * duplicates.
+ *
+ * A value that does not fit these narrow types (a third decimal, a rating
+ * above 127, -0.0, ...) is not rounded: the candidate then keeps a full copy
+ * of its values instead, so the getters always return exactly the values of
+ * the original Candidate and compareTo orders candidates exactly like
+ * Candidate.compareTo.
+ *
+ * @author Naif Abdullah
+ */
+public final class CompactCandidate implements Comparable<CompactCandidate> {
+
+    private static final int DEGREE_SCALE = 100; // positions in hundredths of a degree
+    private static final int GRADE_SCALE = 10; // grades in tenths
+    private static final int NOT_SCALABLE = Integer.MIN_VALUE;
+
+    /**
+     * Creates compact candidates that share their nationality and city
+     * strings. A factory is not thread-safe.
+     */
+    public static final class Factory {
+
+        private final StringDictionary places = new StringDictionary();
+
+        /**
+         * @param candidate the candidate to copy
+         * @return a compact candidate with the same values
+         * @throws NullPointerException when the candidate or one of its
+         * strings is null
+         */
+        public CompactCandidate compact(Candidate candidate) throws NullPointerException {
+            if (candidate == null) {
+                throw new NullPointerException("The candidate cannot be null.");
+            }
+            if (candidate.getFullName() == null) {
+                throw new NullPointerException("The full name of a candidate cannot be null.");
+            }
+            return new CompactCandidate(candidate, places.intern(candidate.getNationality()),
+                    places.intern(candidate.getCity()));
+        }
+
+        /**
+         * @return the number of distinct nationalities and cities shared by
+         * the candidates of this factory
+         */
+        public int distinctStrings() {
+            return places.size();
+        }
+    }
+
+    private final int id;
+    private final String fullName;
+    private final String nationality; // the factory's shared instance
+    private final String city; // the factory's shared instance
+    private final int latitude;
+    private final int longitude;
+    private final char gender;
+    private final byte age;
+    private final short englishGrade;
+    private final short mathGrade;
+    private final short sciencesGrade;
+    private final short languageGrade;
+    private final byte portfolioRating;
+    private final byte coverLetterRating;
+    private final byte referenceLetterRating;
+    private final Candidate wide; // full copy of the values when one of them does not fit, null otherwise
+
+    private CompactCandidate(Candidate candidate, String nationality, String city) {
+        this.id = candidate.getId();
+        this.fullName = candidate.getFullName();
+        this.nationality = nationality;
+        this.city = city;
+        this.gender = candidate.getGender();
+        int latitude = scale(candidate.getLatitude(), DEGREE_SCALE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE);
+        int longitude = scale(candidate.getLongitude(), DEGREE_SCALE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE);
+        int englishGrade = scale(candidate.getEnglishGrade(), GRADE_SCALE, Short.MIN_VALUE, Short.MAX_VALUE);
+        int mathGrade = scale(candidate.getMathGrade(), GRADE_SCALE, Short.MIN_VALUE, Short.MAX_VALUE);
+        int sciencesGrade = scale(candidate.getSciencesGrade(), GRADE_SCALE, Short.MIN_VALUE, Short.MAX_VALUE);
+        int languageGrade = scale(candidate.getLanguageGrade(), GRADE_SCALE, Short.MIN_VALUE, Short.MAX_VALUE);
+        boolean fits = latitude != NOT_SCALABLE && longitude != NOT_SCALABLE
+                && englishGrade != NOT_SCALABLE && mathGrade != NOT_SCALABLE
+                && sciencesGrade != NOT_SCALABLE && languageGrade != NOT_SCALABLE
+                && isByte(candidate.getAge()) && isByte(candidate.getPortfolioRating())
+                && isByte(candidate.getCoverLetterRating()) && isByte(candidate.getReferenceLetterRating());
+        if (fits) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.age = (byte) candidate.getAge();
+            this.englishGrade = (short) englishGrade;
+            this.mathGrade = (short) mathGrade;
+            this.sciencesGrade = (short) sciencesGrade;
+            this.languageGrade = (short) languageGrade;
+            this.portfolioRating = (byte) candidate.getPortfolioRating();
+            this.coverLetterRating = (byte) candidate.getCoverLetterRating();
+            this.referenceLetterRating = (byte) candidate.getReferenceLetterRating();
+            this.wide = null;
+        } else {
+            this.latitude = 0;
+            this.longitude = 0;
+            this.age = 0;
+            this.englishGrade = 0;
+            this.mathGrade = 0;
+            this.sciencesGrade = 0;
+            this.languageGrade = 0;
+            this.portfolioRating = 0;
+            this.coverLetterRating = 0;
+            this.referenceLetterRating = 0;
+            this.wide = new Candidate(id, fullName, nationality, city, candidate.getLatitude(),
+                    candidate.getLongitude(), gender, candidate.getAge(), candidate.getEnglishGrade(),
+                    candidate.getMathGrade(), candidate.getSciencesGrade(), candidate.getLanguageGrade(),
+                    candidate.getPortfolioRating(), candidate.getCoverLetterRating(),
+                    candidate.getReferenceLetterRating());
+        }
+    }
+
+    /**
+     * Scales a value to an int that decodes back to exactly the same double.
+     *
+     * @return the scaled value, or NOT_SCALABLE when the value has more
+     * decimals than the scale keeps, is outside [min, max], is -0.0 or NaN
+     */
+    private static int scale(double value, int scale, int min, int max) {
+        long scaled = Math.round(value * scale);
+        if (scaled < min || scaled > max
+                || Double.doubleToLongBits(scaled / (double) scale) != Double.doubleToLongBits(value)) {
+            return NOT_SCALABLE;
+        }
+        return (int) scaled;
+    }
+
+    private static boolean isByte(int value) {
+        return value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+    }
+
+    /**
+     * @return true when every value fits the compact fields, false when this
+     * candidate keeps a full copy of its values
+     */
+    public boolean isCompact() {
+        return wide == null;
+    }
+
+    /**
+     * Creates a new Candidate holding the values of this one.
+     *
+     * @return a mutable Candidate equal to the one this was created from
+     */
+    public Candidate toCandidate() {
+        return new Candidate(id, fullName, nationality, city, getLatitude(), getLongitude(), gender, getAge(),
+                getEnglishGrade(), getMathGrade(), getSciencesGrade(), getLanguageGrade(),
+                getPortfolioRating(), getCoverLetterRating(), getReferenceLetterRating());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getNationality() {
+        return nationality;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public double getLatitude() {
+        return (wide != null) ? wide.getLatitude() : latitude / (double) DEGREE_SCALE;
+    }
+
+    public double getLongitude() {
+        return (wide != null) ? wide.getLongitude() : longitude / (double) DEGREE_SCALE;
+    }
+
+    public char getGender() {
+        return gender;
+    }
+
+    public int getAge() {
+        return (wide != null) ? wide.getAge() : age;
+    }
+
+    public double getEnglishGrade() {
+        return (wide != null) ? wide.getEnglishGrade() : englishGrade / (double) GRADE_SCALE;
+    }
+
+    public double getMathGrade() {
+        return (wide != null) ? wide.getMathGrade() : mathGrade / (double) GRADE_SCALE;
+    }
+
+    public double getSciencesGrade() {
+        return (wide != null) ? wide.getSciencesGrade() : sciencesGrade / (double) GRADE_SCALE;
+    }
+
+    public double getLanguageGrade() {
+        return (wide != null) ? wide.getLanguageGrade() : languageGrade / (double) GRADE_SCALE;
+    }
+
+    public int getPortfolioRating() {
+        return (wide != null) ? wide.getPortfolioRating() : portfolioRating;
+    }
+
+    public int getCoverLetterRating() {
+        return (wide != null) ? wide.getCoverLetterRating() : coverLetterRating;
+    }
+
+    public int getReferenceLetterRating() {
+        return (wide != null) ? wide.getReferenceLetterRating() : referenceLetterRating;
+    }
+
+    @Override
+    public String toString() {
+        return toCandidate().toString();
+    }
+
+    /**
+     * Compares the attributes of two candidates in the same order and with
+     * the same result as Candidate.compareTo. Scaled values are compared
+     * without decoding them, as scaling keeps their order, and shared strings
+     * without reading them.
+     *
+     * @param other the candidate to compare with
+     * @return a negative number, zero or a positive number when this
+     * candidate is smaller than, equal to or larger than the other one
+     */
+    @Override
+    public int compareTo(CompactCandidate other) {
+        if (wide != null || other.wide != null) {
+            Candidate candidate = (wide != null) ? wide : toCandidate();
+            return candidate.compareTo((other.wide != null) ? other.wide : other.toCandidate());
+        }
+        int compare = Integer.compare(this.id, other.id);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = compareStrings(this.fullName, other.fullName);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = compareStrings(this.nationality, other.nationality);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = compareStrings(this.city, other.city);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.latitude, other.latitude);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.longitude, other.longitude);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Character.compare(this.gender, other.gender);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.age, other.age);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.englishGrade, other.englishGrade);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.mathGrade, other.mathGrade);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.sciencesGrade, other.sciencesGrade);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.languageGrade, other.languageGrade);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.portfolioRating, other.portfolioRating);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(this.coverLetterRating, other.coverLetterRating);
+        if (compare != 0) {
+            return compare;
+        }
+        return Integer.compare(this.referenceLetterRating, other.referenceLetterRating);
+    }
+
+    private static int compareStrings(String string, String otherString) {
+        return (string == otherString) ? 0 : string.compareTo(otherString);
+    }
+}
@@ -0,0 +1,535 @@
+package rbt;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, after the Roaring bitmap layout. The
+ * ints are grouped into chunks of 65536 by their high 16 bits, and each chunk
+ * is stored in the container that suits its density: a sorted array of the
+ * low 16 bits while the chunk holds at most 4096 values, and a plain bitmap
+ * of 1024 longs once it holds more. Sparse sets then cost two bytes per value
+ * and dense ones one bit per possible value, and AND / OR of two dense chunks
+ * combine 64 values per machine word.
+ *
+ * @author Naif Abdullah
+ */
+public final class CompressedBitmap {
+
+    private static final int ARRAY_LIMIT = 4096; // largest array container, same size as a bitmap container
+    private static final int BITMAP_WORDS = 1024; // 65536 bits
+
+    /**
+     * The low 16 bits of the values of one chunk.
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        /**
+         * @return the container holding the values plus low, this one when it
+         * could be updated in place
+         */
+        abstract Container add(char low);
+
+        /**
+         * @return the container holding the values minus low, null when it
+         * becomes empty
+         */
+        abstract Container remove(char low);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        /**
+         * @return the container holding the values of both containers, this
+         * one when it could be updated in place
+         */
+        abstract Container orInPlace(Container other);
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract Container copy();
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        char[] values;
+        int size;
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == ARRAY_LIMIT) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, 2 * size)));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return (size == 0) ? null : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(size, other.cardinality())];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                long[] words = ((BitmapContainer) other).words;
+                for (int i = 0; i < size; i++) {
+                    char low = values[i];
+                    if ((words[low >>> 6] & (1L << low)) != 0) {
+                        result[count++] = low;
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < size && j < array.size) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return (count == 0) ? null : new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[size + array.size];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < array.size) {
+                if (j == array.size || (i < size && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == size || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(result, count);
+            return (count > ARRAY_LIMIT) ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container orInPlace(Container other) {
+            // An array holds at most 4096 values, so merging into a new one is bounded
+            return or(other);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, size), size);
+        }
+
+        BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, size);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long word = words[low >>> 6];
+            if ((word & (1L << low)) == 0) {
+                words[low >>> 6] = word | (1L << low);
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            long word = words[low >>> 6];
+            if ((word & (1L << low)) != 0) {
+                words[low >>> 6] = word & ~(1L << low);
+                cardinality--;
+            }
+            return (cardinality <= ARRAY_LIMIT) ? toArray() : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            if (count == 0) {
+                return null;
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return (count <= ARRAY_LIMIT) ? intersection.toArray() : intersection;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.size; i++) {
+                    result[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            int count = 0;
+            for (long word : result) {
+                count += Long.bitCount(word);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        Container orInPlace(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.size; i++) {
+                    add(array.values[i]);
+                }
+                return this;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= otherWords[i];
+                count += Long.bitCount(words[i]);
+            }
+            cardinality = count;
+            return this;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int[] count = new int[1];
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+
+    // Chunks in ascending order of their high 16 bits
+    private char[] keys;
+    private Container[] containers;
+    private int chunks = 0;
+
+    /**
+     * Creates an empty bitmap.
+     */
+    public CompressedBitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    private CompressedBitmap(char[] keys, Container[] containers, int chunks) {
+        this.keys = keys;
+        this.containers = containers;
+        this.chunks = chunks;
+    }
+
+    /**
+     * @param value the value to add, not negative
+     * @return true if the value was added, false if it was present already
+     * @throws IllegalArgumentException when the value is negative
+     */
+    public boolean add(int value) throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException("A CompressedBitmap cannot hold negative values: " + value);
+        }
+        char high = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, chunks, high);
+        if (index < 0) {
+            index = -index - 1;
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * chunks);
+                containers = Arrays.copyOf(containers, 2 * chunks);
+            }
+            System.arraycopy(keys, index, keys, index + 1, chunks - index);
+            System.arraycopy(containers, index, containers, index + 1, chunks - index);
+            keys[index] = high;
+            containers[index] = new ArrayContainer(new char[4], 0);
+            chunks++;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) value);
+        return containers[index].cardinality() != before;
+    }
+
+    /**
+     * @param value the value to remove
+     * @return true if the value was removed, false if it was not present
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, chunks, (char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container updated = container.remove((char) value);
+        if (updated == null) {
+            System.arraycopy(keys, index + 1, keys, index, chunks - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+            containers[--chunks] = null;
+            return true;
+        }
+        containers[index] = updated;
+        return updated.cardinality() != before;
+    }
+
+    /**
+     * @param value the value to look for
+     * @return true if the bitmap holds the value
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, chunks, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * @return the number of values in the bitmap
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < chunks; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return true if the bitmap holds no value
+     */
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /**
+     * @param other the bitmap to intersect with
+     * @return a new bitmap holding the values present in both bitmaps
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        int capacity = Math.max(1, Math.min(chunks, other.chunks));
+        CompressedBitmap result = new CompressedBitmap(new char[capacity], new Container[capacity], 0);
+        int i = 0;
+        int j = 0;
+        while (i < chunks && j < other.chunks) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container intersection = containers[i].and(other.containers[j]);
+                if (intersection != null) {
+                    result.keys[result.chunks] = keys[i];
+                    result.containers[result.chunks++] = intersection;
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other the bitmap to unite with
+     * @return a new bitmap holding the values present in either bitmap
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        int capacity = Math.max(1, chunks + other.chunks);
+        CompressedBitmap result = new CompressedBitmap(new char[capacity], new Container[capacity], 0);
+        int i = 0;
+        int j = 0;
+        while (i < chunks || j < other.chunks) {
+            if (j == other.chunks || (i < chunks && keys[i] < other.keys[j])) {
+                result.keys[result.chunks] = keys[i];
+                result.containers[result.chunks++] = containers[i++].copy();
+            } else if (i == chunks || keys[i] > other.keys[j]) {
+                result.keys[result.chunks] = other.keys[j];
+                result.containers[result.chunks++] = other.containers[j++].copy();
+            } else {
+                result.keys[result.chunks] = keys[i];
+                result.containers[result.chunks++] = containers[i++].or(other.containers[j++]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds every value of the other bitmap to this one. Unlike or, the chunks
+     * of this bitmap are updated in place, so OR-ing many bitmaps into one
+     * accumulator costs the size of the added bitmaps, not a copy of the
+     * accumulator per bitmap.
+     *
+     * @param other the bitmap whose values to add
+     */
+    public void addAll(CompressedBitmap other) {
+        if (other == this || other.chunks == 0) {
+            return;
+        }
+        char[] mergedKeys = new char[Math.max(keys.length, chunks + other.chunks)];
+        Container[] mergedContainers = new Container[mergedKeys.length];
+        int merged = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunks || j < other.chunks) {
+            if (j == other.chunks || (i < chunks && keys[i] < other.keys[j])) {
+                mergedKeys[merged] = keys[i];
+                mergedContainers[merged++] = containers[i++];
+            } else if (i == chunks || keys[i] > other.keys[j]) {
+                mergedKeys[merged] = other.keys[j];
+                mergedContainers[merged++] = other.containers[j++].copy();
+            } else {
+                mergedKeys[merged] = keys[i];
+                mergedContainers[merged++] = containers[i++].orInPlace(other.containers[j++]);
+            }
+        }
+        keys = mergedKeys;
+        containers = mergedContainers;
+        chunks = merged;
+    }
+
+    /**
+     * Passes every value of the bitmap to the action, in ascending order.
+     *
+     * @param action the action to perform on each value
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < chunks; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * @return the values of the bitmap in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] count = new int[1];
+        forEach(value -> values[count[0]++] = value);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        int[] values = toArray();
+        for (int i = 0; i < values.length; i++) {
+            sb.append(values[i]);
+            if (i + 1 < values.length) {
+                sb.append(", ");
+            }
+        }
+        sb.append(" ]");
+        return sb.toString();
+    }
+}
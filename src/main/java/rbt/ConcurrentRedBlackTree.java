@@ -0,0 +1,309 @@
+package rbt;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe wrapper around a RedBlackTree for many reader threads and
+ * occasional writers. Writers (insert, remove) take the exclusive write mode
+ * of a StampedLock. Readers (contains, size, iteration) first run without any
+ * lock under an optimistic stamp and only fall back to the shared read lock
+ * when a write overlapped them, so reads do not block writers and, as long as
+ * no write lands in the middle of a read, are not blocked by them either.
+ *
+ * An optimistic read may observe the tree in the middle of a rotation, so it
+ * never trusts what it saw before validating its stamp: the descent is bounded
+ * by the maximum height of a red-black tree, and any exception thrown while
+ * reading inconsistent nodes is treated as a failed validation.
+ *
+ * @author Naif Abdullah
+ */
+public class ConcurrentRedBlackTree<T extends Comparable<T>> implements Iterable<T> {
+
+    // A red-black tree holding at most Integer.MAX_VALUE values is at most
+    // 2 * log2(n + 1) <= 62 levels high; anything deeper is a torn read
+    private static final int MAX_HEIGHT = 64;
+
+    // Values copied by an iterator per lock acquisition
+    private static final int CHUNK = 256;
+
+    final RedBlackTree<T> tree; // only accessed while holding the lock or an optimistic stamp
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Creates an empty tree.
+     */
+    public ConcurrentRedBlackTree() {
+        this(new RedBlackTree<>());
+    }
+
+    /**
+     * Wraps an existing tree. The tree must not be used directly afterwards.
+     *
+     * @param tree the tree to make thread-safe
+     * @throws NullPointerException when the tree is null
+     */
+    public ConcurrentRedBlackTree(RedBlackTree<T> tree) throws NullPointerException {
+        if (tree == null) {
+            throw new NullPointerException("The wrapped tree cannot be null.");
+        }
+        this.tree = tree;
+    }
+
+    /**
+     * Inserts a value while holding the write lock.
+     *
+     * @param data to be added into this tree
+     * @return true if the value was inserted
+     * @throws NullPointerException when the provided data argument is null
+     * @throws IllegalArgumentException when the tree already contains a value
+     * equal to data
+     * @see RedBlackTree#insert(Comparable)
+     */
+    public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+        long stamp = lock.writeLock();
+        try {
+            return tree.insert(data);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a value while holding the write lock.
+     *
+     * @param data the value to remove from this tree
+     * @return true if a matching value was found and removed, false if not
+     * @throws NullPointerException when the provided data argument is null
+     * @see RedBlackTree#remove(Comparable)
+     */
+    public boolean remove(T data) throws NullPointerException {
+        long stamp = lock.writeLock();
+        try {
+            return tree.remove(data);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks whether the tree contains a value equal to the given one. The
+     * search runs without locking unless a write overlaps it.
+     *
+     * @param data the value to search for
+     * @return true if an equal value is in the tree, false otherwise
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public boolean contains(T data) throws NullPointerException {
+        // null references will not be stored within this tree
+        if (data == null) {
+            throw new NullPointerException(
+                    "This RedBlackTree cannot store null references.");
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int found = search(data);
+                if (lock.validate(stamp) && found >= 0) {
+                    return found == 1;
+                }
+            } catch (RuntimeException tornRead) {
+                // a concurrent write left the nodes inconsistent, retry under the lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return search(data) == 1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Descends from the root looking for the given value.
+     *
+     * @param data the value to search for
+     * @return 1 if found, 0 if not found, and -1 if the descent went deeper
+     * than any valid tree, which can only happen during a torn read
+     */
+    private int search(T data) {
+        RedBlackTree.Node<T> current = tree.root;
+        for (int depth = 0; current != null; depth++) {
+            if (depth > MAX_HEIGHT) {
+                return -1;
+            }
+            int compare = tree.compare(data, current.data);
+            if (compare < 0) {
+                current = current.leftChild;
+            } else if (compare > 0) {
+                current = current.rightChild;
+            } else {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the size of the tree (its number of nodes).
+     *
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = tree.size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Method to check if the tree is empty (does not contain any node).
+     *
+     * @return true of this.size() return 0, false if this.size() > 0
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the values in ascending order.
+     * The iterator copies CHUNK values at a time, each chunk starting right
+     * after the last value it returned, first optimistically and under the
+     * read lock only when writes keep interfering. A chunk costs O(log n +
+     * CHUNK), so writers are never blocked for a whole traversal. Values
+     * present for the whole iteration are returned exactly once; values
+     * inserted or removed meanwhile may or may not be. The iterator does not
+     * support remove().
+     *
+     * @return iterator over the values in ascending order
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private Object[] chunk = nextChunk(null);
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (index == chunk.length && chunk.length == CHUNK) {
+                    @SuppressWarnings("unchecked")
+                    T last = (T) chunk[CHUNK - 1];
+                    chunk = nextChunk(last);
+                    index = 0;
+                }
+                return index < chunk.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) chunk[index++];
+            }
+        };
+    }
+
+    /**
+     * Copies up to CHUNK values following the given one, optimistically first
+     * and under the read lock when writes keep interfering.
+     *
+     * @param after the last value already returned, or null to start from the
+     * smallest value
+     * @return the values in ascending order; fewer than CHUNK only when the
+     * end of the tree was reached
+     */
+    private Object[] nextChunk(T after) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                break;
+            }
+            try {
+                Object[] values = copyValues(after);
+                if (values != null && lock.validate(stamp)) {
+                    return values;
+                }
+            } catch (RuntimeException tornRead) {
+                // a concurrent write left the nodes inconsistent, try again
+            }
+        }
+
+        long stamp = lock.readLock();
+        try {
+            return copyValues(after);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies up to CHUNK values following the given one in order, with an
+     * explicit stack bounded by the maximum tree height.
+     *
+     * @param after the value to start after, or null to start from the
+     * smallest value
+     * @return the values, or null when the traversal went deeper than any
+     * valid tree, which can only happen during a torn read
+     */
+    private Object[] copyValues(T after) {
+        Object[] values = new Object[CHUNK];
+        int count = 0;
+        ArrayDeque<RedBlackTree.Node<T>> stack = new ArrayDeque<>();
+        // Seek the first value larger than after, stacking the nodes still to visit
+        RedBlackTree.Node<T> current = tree.root;
+        while (current != null) {
+            if (stack.size() > MAX_HEIGHT) {
+                return null;
+            }
+            if (after == null || tree.compare(current.data, after) > 0) {
+                stack.push(current);
+                current = current.leftChild;
+            } else {
+                current = current.rightChild;
+            }
+        }
+        while (count < CHUNK && !stack.isEmpty()) {
+            RedBlackTree.Node<T> processedNode = stack.pop();
+            values[count++] = processedNode.data;
+            current = processedNode.rightChild;
+            while (current != null) {
+                if (stack.size() > MAX_HEIGHT) {
+                    return null;
+                }
+                stack.push(current);
+                current = current.leftChild;
+            }
+        }
+        return (count == CHUNK) ? values : Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        Iterator<T> treeNodeIterator = this.iterator();
+        while (treeNodeIterator.hasNext()) {
+            sb.append(treeNodeIterator.next());
+            if (treeNodeIterator.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append(" ]");
+        return sb.toString();
+    }
+}
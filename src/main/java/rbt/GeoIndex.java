@@ -0,0 +1,461 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Spatial index over the values of a RedBlackTree that carry a latitude and a
+ * longitude, such as candidates. It answers k-nearest-neighbour and radius
+ * queries without computing the distance to every value.
+ *
+ * Every position is stored as a point on the unit sphere (x, y, z), in a k-d
+ * tree laid out implicitly in arrays: the median of each range is its root and
+ * the two halves are its subtrees. The straight-line (chord) distance between
+ * two such points grows with the great-circle distance, so a subtree can be
+ * pruned as soon as its splitting plane is farther than the current search
+ * radius, and the results are exactly those of the haversine formula.
+ *
+ * The index listens to the tree. Inserted values are first kept in a small
+ * pending set and removed ones are marked as deleted; the k-d tree is rebuilt
+ * in O(n log n) by the first query after enough changes have piled up.
+ *
+ * @param <T> the type of the indexed values
+ * @author Naif Abdullah
+ */
+public class GeoIndex<T extends Comparable<T>> implements MutationListener<T> {
+
+    /**
+     * Mean radius of the Earth, in kilometers.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    private static final int MIN_PENDING_BEFORE_REBUILD = 64;
+
+    private final RedBlackTree<T> tree;
+    private final ToDoubleFunction<? super T> latitude;
+    private final ToDoubleFunction<? super T> longitude;
+
+    // Implicit k-d tree: points[3 * i .. 3 * i + 2] is the position of values[i]
+    private Object[] values = new Object[0];
+    private double[] points = new double[0];
+    private byte[] axes = new byte[0]; // splitting axis of the node at each index
+
+    private final Set<T> pending = Collections.newSetFromMap(new IdentityHashMap<>()); // inserted since the last rebuild
+    private final Set<Object> deleted = Collections.newSetFromMap(new IdentityHashMap<>()); // removed from the k-d tree
+
+    /**
+     * Creates an index holding the current values of the given tree, and
+     * keeps it in sync with the tree from then on.
+     *
+     * @param tree the tree to index
+     * @param latitude returns the latitude of a value, in degrees
+     * @param longitude returns the longitude of a value, in degrees
+     * @throws NullPointerException when an argument is null
+     */
+    public GeoIndex(RedBlackTree<T> tree, ToDoubleFunction<? super T> latitude,
+            ToDoubleFunction<? super T> longitude) throws NullPointerException {
+        if (tree == null || latitude == null || longitude == null) {
+            throw new NullPointerException("The tree and coordinate extractors of a GeoIndex cannot be null.");
+        }
+        this.tree = tree;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        Iterator<T> treeNodeIterator = tree.iterator();
+        while (treeNodeIterator.hasNext()) {
+            pending.add(treeNodeIterator.next());
+        }
+        rebuild();
+        tree.addMutationListener(this);
+    }
+
+    /**
+     * Creates an index over a tree of candidates, keyed by their latitude and
+     * longitude.
+     *
+     * @param tree the tree to index
+     * @return the new index, kept in sync with the tree
+     * @throws NullPointerException when the tree is null
+     */
+    public static GeoIndex<Candidate> ofCandidates(RedBlackTree<Candidate> tree) throws NullPointerException {
+        return new GeoIndex<>(tree, Candidate::getLatitude, Candidate::getLongitude);
+    }
+
+    /**
+     * Computes the great-circle distance between two positions with the
+     * haversine formula.
+     *
+     * @return the distance in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double h = sinLatitude * sinLatitude
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * Get the size of the index (its number of values).
+     *
+     * @return the number of indexed values
+     */
+    public int size() {
+        return values.length - deleted.size() + pending.size();
+    }
+
+    /**
+     * Finds the k values closest to the given position.
+     *
+     * @param latitude the latitude of the position, in degrees
+     * @param longitude the longitude of the position, in degrees
+     * @param k the number of values to return
+     * @return at most k values, the closest first
+     * @throws IllegalArgumentException when k is negative
+     */
+    public List<T> nearest(double latitude, double longitude, int k) throws IllegalArgumentException {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of neighbours cannot be negative: " + k);
+        }
+        double[] query = toPoint(latitude, longitude);
+        // Max-heap on distance, so the farthest of the k best is dropped first
+        PriorityQueue<Hit<T>> best = new PriorityQueue<>(Collections.reverseOrder());
+        if (k > 0) {
+            refresh();
+            nearest(query, k, best, 0, values.length);
+            for (T value : pending) {
+                offer(best, k, new Hit<>(value, chord2(query, toPoint(value))));
+            }
+        }
+        return sortedValues(best);
+    }
+
+    /**
+     * Finds every value within the given distance of the given position.
+     *
+     * @param latitude the latitude of the position, in degrees
+     * @param longitude the longitude of the position, in degrees
+     * @param radiusKm the maximum distance, in kilometers
+     * @return the matching values, the closest first
+     * @throws IllegalArgumentException when the radius is negative
+     */
+    public List<T> withinRadius(double latitude, double longitude, double radiusKm) throws IllegalArgumentException {
+        List<Hit<T>> hits = hitsWithinRadius(latitude, longitude, radiusKm);
+        Collections.sort(hits);
+        List<T> result = new ArrayList<>(hits.size());
+        for (Hit<T> hit : hits) {
+            result.add(hit.value);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the best values within the given distance of the given position,
+     * for instance the 50 strongest candidates within 100 km of a city. Only
+     * the values within the radius are ranked, with a heap bounded by limit.
+     *
+     * @param latitude the latitude of the position, in degrees
+     * @param longitude the longitude of the position, in degrees
+     * @param radiusKm the maximum distance, in kilometers
+     * @param strength orders values from the weakest to the strongest
+     * @param limit the maximum number of values to return
+     * @return at most limit values within the radius, the strongest first
+     * @throws IllegalArgumentException when the radius or the limit is
+     * negative
+     */
+    public List<T> strongestWithinRadius(double latitude, double longitude, double radiusKm,
+            Comparator<? super T> strength, int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The number of values cannot be negative: " + limit);
+        }
+        PriorityQueue<T> strongest = new PriorityQueue<>(strength); // weakest on top
+        for (Hit<T> hit : hitsWithinRadius(latitude, longitude, radiusKm)) {
+            if (strongest.size() < limit) {
+                strongest.add(hit.value);
+            } else if (limit > 0 && strength.compare(hit.value, strongest.peek()) > 0) {
+                strongest.poll();
+                strongest.add(hit.value);
+            }
+        }
+        List<T> result = new ArrayList<>(strongest);
+        result.sort(strength.reversed());
+        return result;
+    }
+
+    /**
+     * Stops listening to the tree. The index is no longer kept up to date.
+     */
+    public void close() {
+        tree.removeMutationListener(this);
+    }
+
+    @Override
+    public void inserted(T value) {
+        pending.add(value);
+    }
+
+    @Override
+    public void removed(T value) {
+        // Values not yet in the k-d tree are simply dropped from the pending set
+        if (!pending.remove(value)) {
+            deleted.add(value);
+        }
+    }
+
+    private List<Hit<T>> hitsWithinRadius(double latitude, double longitude, double radiusKm) {
+        if (!(radiusKm >= 0)) {
+            throw new IllegalArgumentException("The radius cannot be negative: " + radiusKm);
+        }
+        refresh();
+        double[] query = toPoint(latitude, longitude);
+        // Chord length of the arc of the radius; beyond half the Earth's
+        // circumference every point matches
+        double angle = Math.min(Math.PI, radiusKm / EARTH_RADIUS_KM);
+        double chord = 2 * Math.sin(angle / 2);
+        double maxChord2 = chord * chord;
+        List<Hit<T>> hits = new ArrayList<>();
+        withinRadius(query, maxChord2, hits, 0, values.length);
+        for (T value : pending) {
+            double chord2 = chord2(query, toPoint(value));
+            if (chord2 <= maxChord2) {
+                hits.add(new Hit<>(value, chord2));
+            }
+        }
+        return hits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void nearest(double[] query, int k, PriorityQueue<Hit<T>> best, int low, int high) {
+        if (low >= high) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        int axis = axes[middle];
+        if (!deleted.contains(values[middle])) {
+            offer(best, k, new Hit<>((T) values[middle], chord2(query, middle)));
+        }
+        double toPlane = query[axis] - points[3 * middle + axis];
+        // Search the side of the query first, then the other side only if the
+        // splitting plane is closer than the worst of the current k best
+        if (toPlane < 0) {
+            nearest(query, k, best, low, middle);
+            if (best.size() < k || toPlane * toPlane <= best.peek().chord2) {
+                nearest(query, k, best, middle + 1, high);
+            }
+        } else {
+            nearest(query, k, best, middle + 1, high);
+            if (best.size() < k || toPlane * toPlane <= best.peek().chord2) {
+                nearest(query, k, best, low, middle);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void withinRadius(double[] query, double maxChord2, List<Hit<T>> hits, int low, int high) {
+        if (low >= high) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        int axis = axes[middle];
+        double chord2 = chord2(query, middle);
+        if (chord2 <= maxChord2 && !deleted.contains(values[middle])) {
+            hits.add(new Hit<>((T) values[middle], chord2));
+        }
+        double toPlane = query[axis] - points[3 * middle + axis];
+        if (toPlane <= 0 || toPlane * toPlane <= maxChord2) {
+            withinRadius(query, maxChord2, hits, low, middle);
+        }
+        if (toPlane >= 0 || toPlane * toPlane <= maxChord2) {
+            withinRadius(query, maxChord2, hits, middle + 1, high);
+        }
+    }
+
+    private static <T extends Comparable<T>> void offer(PriorityQueue<Hit<T>> best, int k, Hit<T> hit) {
+        if (best.size() < k) {
+            best.add(hit);
+        } else if (hit.compareTo(best.peek()) < 0) {
+            best.poll();
+            best.add(hit);
+        }
+    }
+
+    private static <T extends Comparable<T>> List<T> sortedValues(PriorityQueue<Hit<T>> best) {
+        List<Hit<T>> hits = new ArrayList<>(best);
+        Collections.sort(hits);
+        List<T> result = new ArrayList<>(hits.size());
+        for (Hit<T> hit : hits) {
+            result.add(hit.value);
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the k-d tree once the pending and deleted values make up a
+     * noticeable share of the index, so that queries keep their O(log n + k)
+     * cost while bursts of updates stay O(1) each.
+     */
+    private void refresh() {
+        int changes = pending.size() + deleted.size();
+        if (changes > Math.max(MIN_PENDING_BEFORE_REBUILD, values.length / 8)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Builds a balanced k-d tree out of the live values in O(n log n).
+     */
+    private void rebuild() {
+        int count = values.length - deleted.size() + pending.size();
+        Object[] newValues = new Object[count];
+        double[] newPoints = new double[3 * count];
+        int next = 0;
+        for (Object value : values) {
+            if (!deleted.contains(value)) {
+                newValues[next++] = value;
+            }
+        }
+        for (T value : pending) {
+            newValues[next++] = value;
+        }
+        for (int i = 0; i < count; i++) {
+            @SuppressWarnings("unchecked")
+            double[] point = toPoint((T) newValues[i]);
+            System.arraycopy(point, 0, newPoints, 3 * i, 3);
+        }
+        values = newValues;
+        points = newPoints;
+        axes = new byte[count];
+        pending.clear();
+        deleted.clear();
+        build(0, count);
+    }
+
+    /**
+     * Arranges a range of the arrays into a k-d subtree: the range is split
+     * along its widest axis around its median, which becomes the subtree root.
+     */
+    private void build(int low, int high) {
+        if (high - low <= 0) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        int axis = widestAxis(low, high);
+        select(low, high - 1, middle, axis);
+        axes[middle] = (byte) axis;
+        build(low, middle);
+        build(middle + 1, high);
+    }
+
+    private int widestAxis(int low, int high) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = low; i < high; i++) {
+                double coordinate = points[3 * i + axis];
+                min = Math.min(min, coordinate);
+                max = Math.max(max, coordinate);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Quickselect: moves the value with the given rank along the axis to
+     * position target, with smaller ones before it and larger ones after it.
+     */
+    private void select(int left, int right, int target, int axis) {
+        while (left < right) {
+            double pivot = points[3 * ((left + right) >>> 1) + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (points[3 * i + axis] < pivot) {
+                    i++;
+                }
+                while (points[3 * j + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        for (int axis = 0; axis < 3; axis++) {
+            double coordinate = points[3 * i + axis];
+            points[3 * i + axis] = points[3 * j + axis];
+            points[3 * j + axis] = coordinate;
+        }
+    }
+
+    private double[] toPoint(T value) {
+        return toPoint(latitude.applyAsDouble(value), longitude.applyAsDouble(value));
+    }
+
+    private static double[] toPoint(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        double cosPhi = Math.cos(phi);
+        return new double[]{cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    private double chord2(double[] query, int index) {
+        double dx = query[0] - points[3 * index];
+        double dy = query[1] - points[3 * index + 1];
+        double dz = query[2] - points[3 * index + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double chord2(double[] query, double[] point) {
+        double dx = query[0] - point[0];
+        double dy = query[1] - point[1];
+        double dz = query[2] - point[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * A value found by a query, with its squared chord distance to the query.
+     * Hits are ordered by distance, and values at the same distance by their
+     * natural order, so that results do not depend on the k-d tree layout.
+     */
+    private static final class Hit<T extends Comparable<T>> implements Comparable<Hit<T>> {
+
+        final T value;
+        final double chord2;
+
+        Hit(T value, double chord2) {
+            this.value = value;
+            this.chord2 = chord2;
+        }
+
+        @Override
+        public int compareTo(Hit<T> other) {
+            int compare = Double.compare(chord2, other.chord2);
+            return (compare != 0) ? compare : value.compareTo(other.value);
+        }
+    }
+}
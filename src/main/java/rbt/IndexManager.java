@@ -0,0 +1,115 @@
+package rbt;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps a set of named secondary indexes over a RedBlackTree, such as indexes
+ * of candidates by math grade, age, nationality or portfolio rating. The
+ * manager listens to the tree and updates every index on each insert and
+ * remove, so the indexes always hold exactly the values of the tree. Filters
+ * on an indexed attribute then run in O(log n + k) instead of scanning the
+ * whole tree.
+ *
+ * <pre>
+ * IndexManager&lt;Candidate&gt; indexes = new IndexManager&lt;&gt;(tree);
+ * SecondaryIndex&lt;Candidate, Double&gt; byMath = indexes.addIndex("mathGrade", Candidate::getMathGrade);
+ * for (Candidate candidate : byMath.between(3.0, 4.0)) { ... }
+ * </pre>
+ *
+ * @param <T> the type of the values stored in the tree
+ * @author Naif Abdullah
+ */
+public class IndexManager<T extends Comparable<T>> implements MutationListener<T> {
+
+    private final RedBlackTree<T> tree;
+    private final Map<String, SecondaryIndex<T, ?>> indexes = new LinkedHashMap<>();
+
+    /**
+     * Creates a manager without any index, listening to the given tree.
+     *
+     * @param tree the tree to index
+     * @throws NullPointerException when the tree is null
+     */
+    public IndexManager(RedBlackTree<T> tree) throws NullPointerException {
+        if (tree == null) {
+            throw new NullPointerException("The indexed tree cannot be null.");
+        }
+        this.tree = tree;
+        tree.addMutationListener(this);
+    }
+
+    /**
+     * Registers a new index and builds it from the current values of the
+     * tree in O(n log n).
+     *
+     * @param name the unique name of the index
+     * @param keyExtractor returns the indexed attribute of a value
+     * @return the new index
+     * @throws NullPointerException when the name or the key extractor is null
+     * @throws IllegalArgumentException when an index with that name already
+     * exists
+     */
+    public <K extends Comparable<? super K>> SecondaryIndex<T, K> addIndex(String name,
+            Function<? super T, ? extends K> keyExtractor) throws NullPointerException, IllegalArgumentException {
+        if (name == null || keyExtractor == null) {
+            throw new NullPointerException("The name and key extractor of an index cannot be null.");
+        }
+        if (indexes.containsKey(name)) {
+            throw new IllegalArgumentException("An index named " + name + " already exists.");
+        }
+        SecondaryIndex<T, K> index = new SecondaryIndex<>(name, keyExtractor, tree::compare, tree::iterator, tree.size());
+        indexes.put(name, index);
+        return index;
+    }
+
+    /**
+     * @param name the name of the index
+     * @return the index registered with that name, or null if there is none
+     */
+    public SecondaryIndex<T, ?> getIndex(String name) {
+        return indexes.get(name);
+    }
+
+    /**
+     * Drops an index, which is no longer kept up to date afterwards.
+     *
+     * @param name the name of the index
+     * @return true if the index existed, false if not
+     */
+    public boolean dropIndex(String name) {
+        return indexes.remove(name) != null;
+    }
+
+    /**
+     * @return the names of the registered indexes, in registration order
+     */
+    public Set<String> indexNames() {
+        return Collections.unmodifiableSet(indexes.keySet());
+    }
+
+    /**
+     * Stops listening to the tree and drops every index.
+     */
+    public void close() {
+        tree.removeMutationListener(this);
+        indexes.clear();
+    }
+
+    @Override
+    public void inserted(T value) {
+        for (SecondaryIndex<T, ?> index : indexes.values()) {
+            index.add(value);
+        }
+    }
+
+    @Override
+    public void removed(T value) {
+        for (SecondaryIndex<T, ?> index : indexes.values()) {
+            index.remove(value);
+        }
+    }
+}
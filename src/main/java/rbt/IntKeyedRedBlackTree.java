@@ -0,0 +1,357 @@
+package rbt;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Red-Black Tree keyed by a primitive int (such as Candidate.getId()) that
+ * keeps its nodes in parallel arrays instead of separate Node objects. A node
+ * is an index into these arrays: its key, its left, right and parent indices
+ * and its payload all live at the same position, and its color is one bit of
+ * a BitSet. Index 0 is reserved as the empty (black) leaf, so a missing child
+ * or parent is stored as 0.
+ *
+ * Compared with RedBlackTree, an entry costs 4 ints, one payload reference
+ * and one bit instead of a whole Node object, and a search compares int keys
+ * stored next to each other instead of following references to the values.
+ *
+ * @author Naif Abdullah
+ */
+public class IntKeyedRedBlackTree<T> implements Iterable<T> {
+
+    static final int NIL = 0; // index of the empty leaf, never holds a value
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ToIntFunction<? super T> keyExtractor;
+
+    int[] keys;
+    int[] leftChild;
+    int[] rightChild;
+    int[] parent;
+    private Object[] values;
+    final BitSet isRed = new BitSet(); // a cleared bit means the node is black
+
+    int root = NIL; // index of the root node, NIL when empty
+    private int size = 0; // the number of values in the tree
+
+    /**
+     * Creates an empty tree ordering its values by the int key the given
+     * function extracts from them, for example Candidate::getId.
+     *
+     * @param keyExtractor function returning the key of a value
+     * @throws NullPointerException when the key extractor is null
+     */
+    public IntKeyedRedBlackTree(ToIntFunction<? super T> keyExtractor) throws NullPointerException {
+        if (keyExtractor == null) {
+            throw new NullPointerException("The key extractor cannot be null.");
+        }
+        this.keyExtractor = keyExtractor;
+        keys = new int[INITIAL_CAPACITY];
+        leftChild = new int[INITIAL_CAPACITY];
+        rightChild = new int[INITIAL_CAPACITY];
+        parent = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Inserts the given value into a new red node in a leaf position, then
+     * restores the red-black tree properties. This tree will not hold null
+     * references, nor two values with the same key.
+     *
+     * @param data to be added into this tree
+     * @return true if the value was inserted
+     * @throws NullPointerException when the provided data argument is null
+     * @throws IllegalArgumentException when the tree already contains a value
+     * with the same key
+     */
+    public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+        // null references cannot be stored within this tree
+        if (data == null) {
+            throw new NullPointerException(
+                    "This IntKeyedRedBlackTree cannot store null references.");
+        }
+        int key = keyExtractor.applyAsInt(data);
+
+        // Descend to the leaf position of the new key, remembering its parent
+        int parentNode = NIL;
+        int current = root;
+        while (current != NIL) {
+            parentNode = current;
+            int compare = Integer.compare(key, keys[current]);
+            if (compare == 0) {
+                throw new IllegalArgumentException(
+                        "This IntKeyedRedBlackTree already contains the key " + key);
+            }
+            current = (compare < 0) ? leftChild[current] : rightChild[current];
+        }
+
+        int newNode = ++size; // nodes are allocated in insertion order, after NIL
+        if (newNode == keys.length) {
+            grow();
+        }
+        keys[newNode] = key;
+        values[newNode] = data;
+        parent[newNode] = parentNode;
+        leftChild[newNode] = NIL;
+        rightChild[newNode] = NIL;
+        isRed.set(newNode);
+        if (parentNode == NIL) {
+            root = newNode;
+        } else if (key < keys[parentNode]) {
+            leftChild[parentNode] = newNode;
+        } else {
+            rightChild[parentNode] = newNode;
+        }
+        enforceRBTreePropertiesAfterInsert(newNode);
+        return true;
+    }
+
+    /**
+     * Resolves the red-on-red violation that inserting the given node may
+     * cause, bottom-up, exactly like RedBlackTree does on Node objects.
+     *
+     * @param newNode index of the newly inserted node
+     */
+    private void enforceRBTreePropertiesAfterInsert(int newNode) {
+        int current = newNode;
+        while (isRed.get(parent[current])) {
+            int parentNode = parent[current];
+            int grandparent = parent[parentNode]; // a red parent is never the root
+            boolean parentIsLeft = leftChild[grandparent] == parentNode;
+            int uncle = parentIsLeft ? rightChild[grandparent] : leftChild[grandparent];
+
+            if (isRed.get(uncle)) {
+                // Red uncle: recolor and continue from the grandparent
+                isRed.clear(parentNode);
+                isRed.clear(uncle);
+                isRed.set(grandparent);
+                current = grandparent;
+                continue;
+            }
+
+            // Black uncle with current on the inner side: rotate it to the outer side
+            if ((leftChild[parentNode] == current) != parentIsLeft) {
+                rotate(current, parentNode);
+                int formerParent = parentNode;
+                parentNode = current;
+                current = formerParent;
+            }
+
+            // Black uncle with current on the outer side: rotate and swap colors
+            rotate(parentNode, grandparent);
+            isRed.clear(parentNode);
+            isRed.set(grandparent);
+            break;
+        }
+        isRed.clear(root); // A valid red-black tree must always have a black root
+    }
+
+    /**
+     * Rotates the given child above its parent: a right rotation when it is
+     * the left child, a left rotation otherwise.
+     *
+     * @param child index of the node moving up
+     * @param parentNode index of the node moving down
+     */
+    private void rotate(int child, int parentNode) {
+        int grandparent = parent[parentNode];
+        if (leftChild[parentNode] == child) { // rotate RIGHT
+            int moved = rightChild[child];
+            leftChild[parentNode] = moved;
+            if (moved != NIL) {
+                parent[moved] = parentNode;
+            }
+            rightChild[child] = parentNode;
+        } else { // rotate LEFT
+            int moved = leftChild[child];
+            rightChild[parentNode] = moved;
+            if (moved != NIL) {
+                parent[moved] = parentNode;
+            }
+            leftChild[child] = parentNode;
+        }
+
+        parent[child] = grandparent;
+        if (grandparent == NIL) {
+            root = child;
+        } else if (leftChild[grandparent] == parentNode) {
+            leftChild[grandparent] = child;
+        } else {
+            rightChild[grandparent] = child;
+        }
+        parent[parentNode] = child;
+    }
+
+    /**
+     * Doubles the capacity of every parallel array.
+     */
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        leftChild = Arrays.copyOf(leftChild, capacity);
+        rightChild = Arrays.copyOf(rightChild, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Finds the index of the node holding the given key.
+     *
+     * @param key the key to search for
+     * @return the index of the matching node, or NIL if there is none
+     */
+    private int findNode(int key) {
+        int current = root;
+        while (current != NIL) {
+            int nodeKey = keys[current];
+            if (key < nodeKey) {
+                current = leftChild[current];
+            } else if (key > nodeKey) {
+                current = rightChild[current];
+            } else {
+                return current;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * Checks whether the tree contains a value with the given key.
+     *
+     * @param key the key to search for
+     * @return true if a value with this key is in the tree, false otherwise
+     */
+    public boolean containsKey(int key) {
+        return findNode(key) != NIL;
+    }
+
+    /**
+     * Checks whether the tree contains a value with the same key as the given
+     * value.
+     *
+     * @param data the value whose key to search for
+     * @return true if a value with a matching key is in the tree, false
+     * otherwise
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public boolean contains(T data) throws NullPointerException {
+        // null references will not be stored within this tree
+        if (data == null) {
+            throw new NullPointerException(
+                    "This IntKeyedRedBlackTree cannot store null references.");
+        }
+        return containsKey(keyExtractor.applyAsInt(data));
+    }
+
+    /**
+     * Returns the value stored under the given key.
+     *
+     * @param key the key to search for
+     * @return the value with this key, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int key) {
+        return (T) values[findNode(key)]; // values[NIL] is always null
+    }
+
+    /**
+     * Get the size of the tree (its number of nodes).
+     *
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method to check if the tree is empty (does not contain any node).
+     *
+     * @return true of this.size() return 0, false if this.size() > 0
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator over the values in in-order (ascending key) order.
+     * The traversal follows the parent indices, so it needs no stack.
+     *
+     * @return iterator object that traverses the tree in in-order sequence
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            int next = leftmost(root);
+
+            @Override
+            public boolean hasNext() {
+                return next != NIL;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (next == NIL) {
+                    throw new NoSuchElementException("There are no more elements in the tree");
+                }
+                int current = next;
+                next = successor(current);
+                return (T) values[current];
+            }
+        };
+    }
+
+    /**
+     * @param node index of the root of a subtree, may be NIL
+     * @return index of the node with the smallest key in the subtree
+     */
+    private int leftmost(int node) {
+        if (node == NIL) {
+            return NIL;
+        }
+        while (leftChild[node] != NIL) {
+            node = leftChild[node];
+        }
+        return node;
+    }
+
+    /**
+     * @param node index of a node of this tree
+     * @return index of the node with the next larger key, or NIL
+     */
+    private int successor(int node) {
+        if (rightChild[node] != NIL) {
+            return leftmost(rightChild[node]);
+        }
+        int parentNode = parent[node];
+        while (parentNode != NIL && rightChild[parentNode] == node) {
+            node = parentNode;
+            parentNode = parent[node];
+        }
+        return parentNode;
+    }
+
+    /**
+     * Produces an in-order traversal of the values of this tree, in the same
+     * format as RedBlackTree.toString().
+     *
+     * @return string containing the ordered values of this tree
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        Iterator<T> treeNodeIterator = this.iterator();
+        while (treeNodeIterator.hasNext()) {
+            sb.append(treeNodeIterator.next());
+            if (treeNodeIterator.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append(" ]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package rbt;
+
+/**
+ * Callback told about every value inserted into or removed from a
+ * RedBlackTree, after the tree itself has been updated. Listeners keep
+ * derived structures, such as secondary indexes, in sync with the tree.
+ *
+ * @param <T> the type of the values stored in the tree
+ * @author Naif Abdullah
+ */
+public interface MutationListener<T> {
+
+    /**
+     * Called after a value was inserted into the tree.
+     *
+     * @param value the inserted value
+     */
+    void inserted(T value);
+
+    /**
+     * Called after a value was removed from the tree.
+     *
+     * @param value the removed value
+     */
+    void removed(T value);
+}
@@ -0,0 +1,276 @@
+package rbt;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, persistent Red-Black Tree. A tree is never modified: insert
+ * returns a new version that shares every untouched node with the previous
+ * one and only copies the O(log n) nodes on the path to the new value. Older
+ * versions stay valid and unchanged, so a long-running job can keep reading a
+ * version (iterating it, searching it) for as long as it likes while newer
+ * versions keep being created, without any locking.
+ *
+ * Balancing follows Okasaki's functional red-black tree insertion: the four
+ * possible red-on-red shapes below a black node are all rebuilt into the
+ * same balanced shape on the way back up.
+ *
+ * @author Naif Abdullah
+ */
+public final class PersistentRedBlackTree<T extends Comparable<T>> implements Iterable<T> {
+
+    /**
+     * Immutable node: its fields never change once it is created, which is
+     * what makes sharing nodes between versions safe.
+     */
+    private static final class Node<T> {
+
+        final T data;
+        final Node<T> leftChild;
+        final Node<T> rightChild;
+        final boolean isBlack;
+
+        Node(boolean isBlack, Node<T> leftChild, T data, Node<T> rightChild) {
+            this.isBlack = isBlack;
+            this.leftChild = leftChild;
+            this.data = data;
+            this.rightChild = rightChild;
+        }
+
+        boolean isRed() {
+            return !isBlack;
+        }
+    }
+
+    private static final PersistentRedBlackTree<?> EMPTY = new PersistentRedBlackTree<>(null, 0);
+
+    private final Node<T> root;
+    private final int size;
+
+    private PersistentRedBlackTree(Node<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty tree, which every version starts from
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> PersistentRedBlackTree<T> empty() {
+        return (PersistentRedBlackTree<T>) EMPTY;
+    }
+
+    /**
+     * Returns a new version of this tree that also holds the given value. This
+     * version is left unchanged.
+     *
+     * @param data to be added into the new version
+     * @return the new version, sharing all untouched nodes with this one
+     * @throws NullPointerException when the provided data argument is null
+     * @throws IllegalArgumentException when the tree already contains a value
+     * equal to data
+     */
+    public PersistentRedBlackTree<T> insert(T data) throws NullPointerException, IllegalArgumentException {
+        // null references cannot be stored within this tree
+        if (data == null) {
+            throw new NullPointerException(
+                    "This PersistentRedBlackTree cannot store null references.");
+        }
+        Node<T> newRoot = insert(root, data);
+        if (newRoot.isRed()) { // A valid red-black tree must always have a black root
+            newRoot = new Node<>(true, newRoot.leftChild, newRoot.data, newRoot.rightChild);
+        }
+        return new PersistentRedBlackTree<>(newRoot, size + 1);
+    }
+
+    /**
+     * Copies the path from the given subtree down to the new leaf, balancing
+     * every copied node on the way back up.
+     */
+    private static <T extends Comparable<T>> Node<T> insert(Node<T> subtree, T data) {
+        if (subtree == null) {
+            return new Node<>(false, null, data, null); // every new node is red
+        }
+        int compare = data.compareTo(subtree.data);
+        if (compare < 0) {
+            return balance(subtree.isBlack, insert(subtree.leftChild, data), subtree.data, subtree.rightChild);
+        } else if (compare > 0) {
+            return balance(subtree.isBlack, subtree.leftChild, subtree.data, insert(subtree.rightChild, data));
+        } else {
+            throw new IllegalArgumentException(
+                    "This PersistentRedBlackTree already contains that value.");
+        }
+    }
+
+    /**
+     * Builds a node out of the given parts, resolving a red-on-red violation
+     * below a black node. Each of the four shapes (red child and red
+     * grandchild on either side) becomes a red node with two black children.
+     */
+    private static <T> Node<T> balance(boolean isBlack, Node<T> left, T data, Node<T> right) {
+        if (isBlack) {
+            if (isRed(left) && isRed(left.leftChild)) {
+                return new Node<>(false,
+                        blackCopy(left.leftChild), left.data,
+                        new Node<>(true, left.rightChild, data, right));
+            }
+            if (isRed(left) && isRed(left.rightChild)) {
+                Node<T> middle = left.rightChild;
+                return new Node<>(false,
+                        new Node<>(true, left.leftChild, left.data, middle.leftChild), middle.data,
+                        new Node<>(true, middle.rightChild, data, right));
+            }
+            if (isRed(right) && isRed(right.leftChild)) {
+                Node<T> middle = right.leftChild;
+                return new Node<>(false,
+                        new Node<>(true, left, data, middle.leftChild), middle.data,
+                        new Node<>(true, middle.rightChild, right.data, right.rightChild));
+            }
+            if (isRed(right) && isRed(right.rightChild)) {
+                return new Node<>(false,
+                        new Node<>(true, left, data, right.leftChild), right.data,
+                        blackCopy(right.rightChild));
+            }
+        }
+        return new Node<>(isBlack, left, data, right);
+    }
+
+    private static boolean isRed(Node<?> node) {
+        return node != null && node.isRed();
+    }
+
+    private static <T> Node<T> blackCopy(Node<T> node) {
+        return new Node<>(true, node.leftChild, node.data, node.rightChild);
+    }
+
+    /**
+     * Versions never change, so this version is already a consistent view of
+     * the tree: holding on to it costs O(1) and keeps it readable while newer
+     * versions are created.
+     *
+     * @return this version
+     */
+    public PersistentRedBlackTree<T> snapshot() {
+        return this;
+    }
+
+    /**
+     * Checks whether this version contains a value equal to the given one.
+     *
+     * @param data the value to search for
+     * @return true if an equal value is in this version, false otherwise
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public boolean contains(T data) throws NullPointerException {
+        // null references will not be stored within this tree
+        if (data == null) {
+            throw new NullPointerException(
+                    "This PersistentRedBlackTree cannot store null references.");
+        }
+        Node<T> current = root;
+        while (current != null) {
+            int compare = data.compareTo(current.data);
+            if (compare < 0) {
+                current = current.leftChild;
+            } else if (compare > 0) {
+                current = current.rightChild;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the size of this version (its number of nodes).
+     *
+     * @return the number of nodes in this version
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method to check if this version is empty (does not contain any node).
+     *
+     * @return true of this.size() return 0, false if this.size() > 0
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator over the values of this version in in-order
+     * (sorted) order. Later versions never affect it.
+     *
+     * @return iterator object that traverses this version in in-order sequence
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            final ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+            Node<T> current = root;
+
+            @Override
+            public boolean hasNext() {
+                return current != null || !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                while (current != null) {
+                    stack.push(current);
+                    current = current.leftChild;
+                }
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException("There are no more elements in the tree");
+                }
+                Node<T> processedNode = stack.pop();
+                current = processedNode.rightChild;
+                return processedNode.data;
+            }
+        };
+    }
+
+    /**
+     * Counts the black nodes on the path to any leaf, checking on the way that
+     * every path has the same count and that no red node has a red child.
+     *
+     * @return the black height of this version, or -1 if it is not a valid
+     * red-black tree
+     */
+    int blackHeight() {
+        return isRed(root) ? -1 : blackHeight(root);
+    }
+
+    private static int blackHeight(Node<?> node) {
+        if (node == null) {
+            return 1;
+        }
+        if (node.isRed() && (isRed(node.leftChild) || isRed(node.rightChild))) {
+            return -1;
+        }
+        int left = blackHeight(node.leftChild);
+        int right = blackHeight(node.rightChild);
+        if (left < 0 || left != right) {
+            return -1;
+        }
+        return left + (node.isBlack ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        Iterator<T> treeNodeIterator = this.iterator();
+        while (treeNodeIterator.hasNext()) {
+            sb.append(treeNodeIterator.next());
+            if (treeNodeIterator.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append(" ]");
+        return sb.toString();
+    }
+}
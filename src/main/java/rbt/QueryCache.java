@@ -0,0 +1,358 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of query results in front of a RedBlackTree, for services
+ * that answer the same range, filter and ranking requests many times between
+ * two mutations of the tree. Every result is cached under a key chosen by the
+ * caller, together with the values whose insertion or removal affects it:
+ *
+ * - range and filter results are lists of the matching values in tree order.
+ * When a matching value is inserted or removed, the cached list is patched
+ * instead of being computed again: a binary search finds the position of the
+ * value and the list is copied with the value added or dropped, so that the
+ * lists already returned never change. Patching a list of m values thus costs
+ * O(m), against O(log n + m) for a range and O(n) for a filter computed again.
+ * Bulk mutations such as removeAll and removeIf notify the cache once per
+ * value, so removing k matching values copies each affected list k times.
+ *
+ * - other results, such as a top-k ranking or a count, are computed by a
+ * supplier. They are dropped when a value they depend on is inserted or
+ * removed, and computed again on their next request.
+ *
+ * The cache is bounded by a total weight: a list, or any other collection
+ * returned by a query, weighs its size plus one, and any other result weighs
+ * one. When a new or patched result takes the total
+ * over the bound, the least recently used results are evicted first. The cache
+ * listens to the tree and every mutation visits each cached result once. Like
+ * the tree, the cache must not be used by several threads at once.
+ *
+ * @param <T> the type of the values stored in the tree
+ * @author Naif Abdullah
+ */
+public class QueryCache<T extends Comparable<T>> implements MutationListener<T> {
+
+    private static final class Entry<T> {
+
+        final Predicate<? super T> affectedBy;
+        final boolean patchable; // the result is the list of the values matching affectedBy
+        Object result;
+        int weight;
+
+        Entry(Predicate<? super T> affectedBy, boolean patchable, Object result) {
+            this.affectedBy = affectedBy;
+            this.patchable = patchable;
+            this.result = result;
+            this.weight = weightOf(result);
+        }
+    }
+
+    private final RedBlackTree<T> tree;
+    private final long maxWeight;
+    private final LinkedHashMap<Object, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true); // LRU first
+    private long weight = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+    private long patches = 0;
+
+    /**
+     * Creates an empty cache listening to the given tree.
+     *
+     * @param tree the tree whose query results are cached
+     * @param maxWeight the maximum total weight of the cached results
+     * @throws NullPointerException when the tree is null
+     * @throws IllegalArgumentException when the maximum weight is not
+     * positive
+     */
+    public QueryCache(RedBlackTree<T> tree, long maxWeight) throws NullPointerException, IllegalArgumentException {
+        if (tree == null) {
+            throw new NullPointerException("The cached tree cannot be null.");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("The maximum weight of a QueryCache must be positive: " + maxWeight);
+        }
+        this.tree = tree;
+        this.maxWeight = maxWeight;
+        tree.addMutationListener(this);
+    }
+
+    /**
+     * Returns the values of the tree from fromInclusive to toExclusive, from
+     * the cache when possible.
+     *
+     * @param key the key of the cached result
+     * @param fromInclusive the lower bound of the range
+     * @param toExclusive the value right after the range
+     * @return the values within the range in ascending order, as an
+     * unmodifiable list
+     * @throws NullPointerException when an argument is null
+     * @throws IllegalArgumentException when fromInclusive is larger than
+     * toExclusive
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> range(Object key, T fromInclusive, T toExclusive)
+            throws NullPointerException, IllegalArgumentException {
+        if (key == null) {
+            throw new NullPointerException("A QueryCache cannot cache a result under a null key.");
+        }
+        RangeView<T> range = tree.subRange(fromInclusive, toExclusive);
+        Entry<T> entry = lookup(key);
+        if (entry == null) {
+            List<T> values = new ArrayList<>(range.size());
+            for (T value : range) {
+                values.add(value);
+            }
+            entry = store(key, new Entry<>(range::inRange, true, Collections.unmodifiableList(values)));
+        }
+        return (List<T>) entry.result;
+    }
+
+    /**
+     * Returns the values of the tree accepted by a filter, from the cache when
+     * possible. The filter must always give the same answer for a value.
+     *
+     * @param key the key of the cached result
+     * @param filter the filter to apply
+     * @return the values accepted by the filter in ascending order, as an
+     * unmodifiable list
+     * @throws NullPointerException when an argument is null
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> filter(Object key, Predicate<? super T> filter) throws NullPointerException {
+        if (key == null || filter == null) {
+            throw new NullPointerException("A QueryCache cannot cache a result under a null key or filter.");
+        }
+        Entry<T> entry = lookup(key);
+        if (entry == null) {
+            List<T> values = new ArrayList<>();
+            for (T value : tree) {
+                if (filter.test(value)) {
+                    values.add(value);
+                }
+            }
+            entry = store(key, new Entry<>(filter, true, Collections.unmodifiableList(values)));
+        }
+        return (List<T>) entry.result;
+    }
+
+    /**
+     * Returns the result of any query, from the cache when possible. The
+     * result is dropped from the cache as soon as a value accepted by
+     * affectedBy is inserted into or removed from the tree.
+     *
+     * @param key the key of the cached result
+     * @param affectedBy accepts the values whose insertion or removal changes
+     * the result, for instance value -> true
+     * @param query computes the result, which must not be null and must not
+     * be changed by the caller
+     * @return the cached or computed result
+     * @throws NullPointerException when an argument or the result is null
+     * @throws ClassCastException when the key holds a result of another type
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R query(Object key, Predicate<? super T> affectedBy, Supplier<? extends R> query)
+            throws NullPointerException, ClassCastException {
+        if (key == null || affectedBy == null || query == null) {
+            throw new NullPointerException("A QueryCache cannot cache a result under a null key or query.");
+        }
+        Entry<T> entry = lookup(key);
+        if (entry == null) {
+            R result = query.get();
+            if (result == null) {
+                throw new NullPointerException("A QueryCache cannot cache null results.");
+            }
+            entry = store(key, new Entry<>(affectedBy, false, result));
+        }
+        return (R) entry.result;
+    }
+
+    /**
+     * Drops the result cached under a key.
+     *
+     * @param key the key of the result
+     * @return true if a result was cached under that key, false if not
+     */
+    public boolean invalidate(Object key) {
+        Entry<T> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        weight -= entry.weight;
+        return true;
+    }
+
+    /**
+     * Drops every cached result. The counters are left untouched.
+     */
+    public void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total weight of the cached results
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return the number of requests answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests that had to run their query
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results evicted to respect the maximum weight
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of results dropped because of a mutation of the tree
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return the number of range and filter results patched after a mutation
+     * of the tree
+     */
+    public long getPatches() {
+        return patches;
+    }
+
+    /**
+     * Resets every counter to zero.
+     */
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        invalidations = 0;
+        patches = 0;
+    }
+
+    /**
+     * Stops listening to the tree and drops every cached result.
+     */
+    public void close() {
+        tree.removeMutationListener(this);
+        clear();
+    }
+
+    @Override
+    public void inserted(T value) {
+        mutated(value, true);
+    }
+
+    @Override
+    public void removed(T value) {
+        mutated(value, false);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCache[ results=" + entries.size() + ", weight=" + weight + "/" + maxWeight
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", invalidations=" + invalidations + ", patches=" + patches + " ]";
+    }
+
+    private Entry<T> lookup(Object key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    private Entry<T> store(Object key, Entry<T> entry) {
+        entries.put(key, entry);
+        weight += entry.weight;
+        evict();
+        return entry;
+    }
+
+    private void mutated(T value, boolean inserted) {
+        boolean grew = false;
+        Iterator<Entry<T>> entryIterator = entries.values().iterator();
+        while (entryIterator.hasNext()) {
+            Entry<T> entry = entryIterator.next();
+            if (!entry.affectedBy.test(value)) {
+                continue;
+            }
+            if (!entry.patchable) {
+                entryIterator.remove();
+                weight -= entry.weight;
+                invalidations++;
+                continue;
+            }
+            // Copy on write, so that the lists already returned never change
+            @SuppressWarnings("unchecked")
+            List<T> values = new ArrayList<>((List<T>) entry.result);
+            int index = Collections.binarySearch(values, value, tree::compare);
+            if (inserted && index < 0) {
+                values.add(-index - 1, value);
+                grew = true;
+            } else if (!inserted && index >= 0) {
+                values.remove(index);
+            } else {
+                continue;
+            }
+            entry.result = Collections.unmodifiableList(values);
+            weight += weightOf(values) - entry.weight;
+            entry.weight = weightOf(values);
+            patches++;
+        }
+        if (grew) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry<T>> leastRecentlyUsed = entries.values().iterator();
+        while (weight > maxWeight && leastRecentlyUsed.hasNext()) {
+            weight -= leastRecentlyUsed.next().weight;
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    private static int weightOf(Object result) {
+        return (result instanceof Collection) ? ((Collection<?>) result).size() + 1 : 1;
+    }
+}
@@ -0,0 +1,126 @@
+package rbt;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy view of the values of a RedBlackTree that fall between two bounds,
+ * returned by subRange, headRange and tailRange. The view holds no values of
+ * its own: every call reads the tree as it is at that moment. Iteration seeks
+ * the first value within the range in O(log n), then moves from node to node
+ * through the parent references and stops at the upper bound, so reading k
+ * values costs O(log n + k). size() is computed from the subtree sizes in
+ * O(log n).
+ *
+ * @param <T> the type of the values stored in the tree
+ * @author Naif Abdullah
+ */
+public final class RangeView<T extends Comparable<T>> implements Iterable<T> {
+
+    private final RedBlackTree<T> tree;
+    private final T from; // null when the range has no lower bound
+    private final boolean fromInclusive;
+    private final T to; // null when the range has no upper bound
+    private final boolean toInclusive;
+
+    RangeView(RedBlackTree<T> tree, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        this.tree = tree;
+        this.from = from;
+        this.fromInclusive = fromInclusive;
+        this.to = to;
+        this.toInclusive = toInclusive;
+    }
+
+    /**
+     * @param data the value to check
+     * @return true if the value lies within the bounds of this range
+     */
+    public boolean inRange(T data) {
+        if (from != null) {
+            int compare = tree.compare(data, from);
+            if (compare < 0 || (compare == 0 && !fromInclusive)) {
+                return false;
+            }
+        }
+        if (to != null) {
+            int compare = tree.compare(data, to);
+            if (compare > 0 || (compare == 0 && !toInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the values of the tree within this range in O(log n).
+     *
+     * @return the number of values within this range
+     */
+    public int size() {
+        int upper = (to == null) ? tree.size() : tree.countBelow(to, toInclusive);
+        int lower = (from == null) ? 0 : tree.countBelow(from, !fromInclusive);
+        return Math.max(0, upper - lower);
+    }
+
+    /**
+     * @return true if no value of the tree lies within this range
+     */
+    public boolean isEmpty() {
+        return !iterator().hasNext();
+    }
+
+    /**
+     * Returns an iterator over the values within this range, in ascending
+     * order.
+     *
+     * @return iterator over the values within this range
+     */
+    @Override
+    public Iterator<T> iterator() {
+        RedBlackTree.Node<T> first = (from == null) ? tree.firstNode() : tree.ceilingNode(from, fromInclusive);
+        return new Iterator<T>() {
+            RedBlackTree.Node<T> next = withinUpperBound(first);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException("There are no more elements in the range");
+                }
+                T data = next.data;
+                next = withinUpperBound(RedBlackTree.successor(next));
+                return data;
+            }
+        };
+    }
+
+    /**
+     * @return the given node if it lies below the upper bound, null otherwise
+     */
+    private RedBlackTree.Node<T> withinUpperBound(RedBlackTree.Node<T> node) {
+        if (node == null || to == null) {
+            return node;
+        }
+        int compare = tree.compare(node.data, to);
+        return (compare < 0 || (compare == 0 && toInclusive)) ? node : null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        Iterator<T> rangeIterator = this.iterator();
+        while (rangeIterator.hasNext()) {
+            sb.append(rangeIterator.next());
+            if (rangeIterator.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append(" ]");
+        return sb.toString();
+    }
+}
@@ -1,9 +1,33 @@
 package rbt;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Stack;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * Red-Black Tree implementation with a Node inner class for representing the
@@ -16,7 +40,7 @@ import java.util.Stack;
  *
  * @author Naif Abdullah
  */
-public class RedBlackTree<T extends Comparable<T>> {
+public class RedBlackTree<T extends Comparable<T>> implements Iterable<T> {
 
     /**
      * This class represents a node holding a single value within a binary tree
@@ -29,6 +53,7 @@ public class RedBlackTree<T extends Comparable<T>> {
         public Node<T> leftChild;
         public Node<T> rightChild;
         public boolean isBlack; // true = node is black - false = node is red.
+        public int subtreeSize = 1; // number of nodes in the subtree rooted at this node
 
         public Node(T data) {
             this.data = data;
@@ -78,20 +103,195 @@ public class RedBlackTree<T extends Comparable<T>> {
         }
     }
 
+    // Snapshot file header: magic, version, record count, payload CRC32, payload length
+    private static final int SNAPSHOT_MAGIC = 0x52425453; // "RBTS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+
     protected Node<T> root; // reference to root node of tree, null when empty
     protected int size = 0; // the number of values in the tree
+    private final List<MutationListener<? super T>> listeners = new ArrayList<>();
+    private TreeMetrics metrics; // null unless metrics are enabled
+    private final Comparator<? super T> comparator; // null for the natural order of the values
+    private final ToIntFunction<? super T> intKey; // the key of a tree made by keyedByInt, null otherwise
+
+    /**
+     * Creates an empty tree ordering its values by their natural order, that
+     * is by compareTo.
+     */
+    public RedBlackTree() {
+        this(null, null);
+    }
+
+    /**
+     * Creates an empty tree ordering its values with the given comparator
+     * instead of compareTo. Values the comparator finds equal are duplicates.
+     *
+     * @param comparator the order of the values, null for the natural order
+     */
+    public RedBlackTree(Comparator<? super T> comparator) {
+        this(comparator, null);
+    }
+
+    private RedBlackTree(Comparator<? super T> comparator, ToIntFunction<? super T> intKey) {
+        this.comparator = comparator;
+        this.intKey = intKey;
+    }
+
+    /**
+     * Creates an empty tree ordered by an int key of its values, for example
+     * Candidate::getId. Each comparison is then a single int comparison
+     * instead of a full compareTo, and get(int) finds a value from its key
+     * alone. Values with the same key are duplicates.
+     *
+     * @param keyExtractor function returning the key of a value
+     * @return the new empty tree
+     * @throws NullPointerException when the key extractor is null
+     */
+    public static <T extends Comparable<T>> RedBlackTree<T> keyedByInt(ToIntFunction<? super T> keyExtractor)
+            throws NullPointerException {
+        if (keyExtractor == null) {
+            throw new NullPointerException("The key extractor cannot be null.");
+        }
+        return new RedBlackTree<>(Comparator.comparingInt(keyExtractor), keyExtractor);
+    }
+
+    /**
+     * Finds the value with the given key in a tree made by keyedByInt, with
+     * one int comparison per level and without building a probe value.
+     *
+     * @param key the key of the value to find
+     * @return the value with that key, or null if there is none
+     * @throws IllegalStateException when this tree was not made by keyedByInt
+     */
+    public T get(int key) throws IllegalStateException {
+        if (intKey == null) {
+            throw new IllegalStateException("This RedBlackTree is not keyed by an int.");
+        }
+        Node<T> current = root;
+        while (current != null) {
+            int compare = Integer.compare(key, intKey.applyAsInt(current.data));
+            if (compare < 0) {
+                current = current.leftChild;
+            } else if (compare > 0) {
+                current = current.rightChild;
+            } else {
+                return current.data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the comparator ordering this tree, or null when it uses the
+     * natural order of its values
+     */
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Compares two values in the order of this tree.
+     */
+    int compare(T a, T b) {
+        return (comparator == null) ? a.compareTo(b) : comparator.compare(a, b);
+    }
+
+    /**
+     * Starts counting the work done by insert, remove and contains. While
+     * metrics are disabled each of these operations only pays for a null
+     * check. The bulk operations (removeAll, removeIf, union, intersect and
+     * difference) add the values they insert or remove to the counters and
+     * emit one event each, but record no latency, rotations or fixup steps.
+     *
+     * @return the metrics of this tree, the existing ones when they were
+     * already enabled
+     */
+    public TreeMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new TreeMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops counting the work done by this tree and drops its metrics.
+     */
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    /**
+     * @return the metrics of this tree, or null when they are disabled
+     */
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Measures the height of this tree by visiting every node, for comparison
+     * with the 2 * log2(n + 1) bound every red-black tree stays within.
+     *
+     * @return the number of nodes on the longest path from the root to a
+     * leaf, 0 when the tree is empty
+     */
+    public int height() {
+        return height(root);
+    }
+
+    private static int height(Node<?> node) {
+        return (node == null) ? 0 : 1 + Math.max(height(node.leftChild), height(node.rightChild));
+    }
+
+    /**
+     * Counts the black nodes on the path from the root to the leftmost leaf,
+     * which every path from the root to a leaf shares in a valid tree.
+     *
+     * @return the black height of this tree, 0 when the tree is empty
+     */
+    public int blackHeight() {
+        int blackHeight = 0;
+        for (Node<T> node = root; node != null; node = node.leftChild) {
+            if (node.isBlack) {
+                blackHeight++;
+            }
+        }
+        return blackHeight;
+    }
+
+    /**
+     * Registers a listener to be told about every value inserted into or
+     * removed from this tree from now on.
+     *
+     * @param listener the listener to register
+     * @throws NullPointerException when the listener is null
+     */
+    public void addMutationListener(MutationListener<? super T> listener) throws NullPointerException {
+        if (listener == null) {
+            throw new NullPointerException("The mutation listener cannot be null.");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to unregister
+     * @return true if the listener was registered, false if not
+     */
+    public boolean removeMutationListener(MutationListener<? super T> listener) {
+        return listeners.remove(listener);
+    }
 
     /**
-     * Performs a naive insertion into a binary search tree: adding the input
-     * data value to a new node in a leaf position within the tree. After this
-     * insertion, no attempt is made to restructure or balance the tree. This
-     * tree will not hold null references, nor duplicate data values.
+     * Inserts the input data value into a new red node in a leaf position
+     * within the tree, found by a single top-down descent from the root, and
+     * then restores the red-black tree properties bottom-up. This tree will
+     * not hold null references, nor duplicate data values.
      *
-     * @param data to be added into this binary search tree
-     * @return true if the value was inserted, false if not
+     * @param data to be added into this red-black tree
+     * @return true if the value was inserted
      * @throws NullPointerException when the provided data argument is null
-     * @throws IllegalArgumentException when the newNode and subtree contain
-     * equal data references
+     * @throws IllegalArgumentException when the tree already contains a value
+     * equal to data
      */
     public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
         // null references cannot be stored within this tree
@@ -100,184 +300,1055 @@ public class RedBlackTree<T extends Comparable<T>> {
                     "This RedBlackTree cannot store null references.");
         }
 
-        Node<T> newNode = new Node<>(data);
-        if (root == null) { // if root is null, then the tree is empty, then we'll just set the root
-            root = newNode;
-            size++;
-            root.isBlack = true; // Since we're inserting the root, we should make it black.
-            return true;
+        TreeMetrics metrics = this.metrics;
+        if (metrics == null) {
+            insertNode(data);
+        } else {
+            TreeOperationEvent event = new TreeOperationEvent();
+            event.begin();
+            long start = System.nanoTime();
+            int fixupSteps = insertNode(data);
+            metrics.inserted(event, start, fixupSteps, size);
+        }
+        notifyInserted(data);
+        return true;
+    }
+
+    /**
+     * Links a new red node holding the given value into its leaf position and
+     * restores the red-black tree properties.
+     *
+     * @param data the value to insert, not null
+     * @return the number of fixup steps the insert needed
+     * @throws IllegalArgumentException when the tree already contains a value
+     * equal to data
+     */
+    private int insertNode(T data) throws IllegalArgumentException {
+        if (root == null) { // if root is null, then the tree is empty, then we'll just set the root
+            root = new Node<>(data);
+            root.isBlack = true; // Since we're inserting the root, we should make it black.
+            size++;
+            return 0;
+        }
+
+        // Descend to the leaf position of the new value, remembering its parent
+        Node<T> parent = root;
+        int compare;
+        while (true) {
+            compare = compare(data, parent.data);
+            // do not allow duplicate values to be stored within this tree
+            if (compare == 0) {
+                throw new IllegalArgumentException(
+                        "This RedBlackTree already contains that value.");
+            }
+            Node<T> next = (compare < 0) ? parent.leftChild : parent.rightChild;
+            if (next == null) {
+                break;
+            }
+            parent = next;
+        }
+
+        return link(new Node<>(data), parent, compare < 0);
+    }
+
+    /**
+     * Links a new red node below the given parent, in an empty child slot,
+     * and restores the red-black tree properties.
+     *
+     * @param newNode the node to link
+     * @param parent the node whose empty child slot receives the new node
+     * @param asLeftChild true to link the new node as the left child
+     * @return the number of fixup steps the insert needed
+     */
+    private int link(Node<T> newNode, Node<T> parent, boolean asLeftChild) {
+        newNode.parent = parent;
+        if (asLeftChild) {
+            parent.leftChild = newNode;
+        } else {
+            parent.rightChild = newNode;
+        }
+        size++;
+        for (Node<T> ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.subtreeSize++;
+        }
+        return enforceRBTreePropertiesAfterInsert(newNode);
+    }
+
+    /**
+     * Outcome of insertAll: how many values were inserted, and which values
+     * were left out because the tree already held an equal value.
+     *
+     * @param <T> the type of the values
+     */
+    public static final class InsertAllResult<T> {
+
+        private final int inserted;
+        private final List<T> duplicates;
+
+        InsertAllResult(int inserted, List<T> duplicates) {
+            this.inserted = inserted;
+            this.duplicates = Collections.unmodifiableList(duplicates);
+        }
+
+        /**
+         * @return the number of values inserted
+         */
+        public int getInserted() {
+            return inserted;
+        }
+
+        /**
+         * @return the values that were not inserted, in the order they came
+         */
+        public List<T> getDuplicates() {
+            return duplicates;
+        }
+
+        @Override
+        public String toString() {
+            return "InsertAllResult[ inserted=" + inserted + ", duplicates=" + duplicates.size() + " ]";
+        }
+    }
+
+    /**
+     * Inserts every value of the given iterable, and reports the values
+     * already present (or repeated within the iterable) instead of throwing.
+     *
+     * Each insertion remembers the new node and its in-order neighbours. A
+     * value that falls between the last inserted value and one of its
+     * neighbours, as the next value of an ascending or descending feed does,
+     * is linked next to it with one or two comparisons instead of a descent
+     * from the root, so sorted and nearly sorted input needs O(1) comparisons
+     * per value. Any other value is inserted with a descent from the root in
+     * O(log n) comparisons. Either way, linking a node still updates the
+     * subtree size of every ancestor, so each insertion costs O(log n) time:
+     * the finger saves comparisons, not the walk up to the root. Mutation
+     * listeners must not change the tree while insertAll runs.
+     *
+     * @param values the values to insert
+     * @return the number of inserted values and the duplicates
+     * @throws NullPointerException when the iterable or one of its values is
+     * null; the values before the null one are inserted
+     */
+    public InsertAllResult<T> insertAll(Iterable<? extends T> values) throws NullPointerException {
+        if (values == null) {
+            throw new NullPointerException("The values to insert cannot be null.");
+        }
+        List<T> duplicates = new ArrayList<>();
+        int inserted = 0;
+        // The last inserted node and its in-order predecessor and successor (null when none)
+        Node<T> finger = null;
+        Node<T> predecessor = null;
+        Node<T> successor = null;
+        for (T data : values) {
+            if (data == null) {
+                throw new NullPointerException(
+                        "This RedBlackTree cannot store null references.");
+            }
+            TreeMetrics metrics = this.metrics;
+            TreeOperationEvent event = null;
+            long start = 0;
+            if (metrics != null) {
+                event = new TreeOperationEvent();
+                event.begin();
+                start = System.nanoTime();
+            }
+
+            Node<T> newNode = new Node<>(data);
+            int steps;
+            int compare = (finger == null) ? 0 : compare(data, finger.data);
+            if (finger != null && compare > 0 && (successor == null || compare(data, successor.data) < 0)) {
+                // Between the finger and its successor: one of them has the free slot
+                steps = (finger.rightChild == null) ? link(newNode, finger, false) : link(newNode, successor, true);
+                predecessor = finger;
+            } else if (finger != null && compare < 0 && (predecessor == null || compare(data, predecessor.data) > 0)) {
+                steps = (finger.leftChild == null) ? link(newNode, finger, true) : link(newNode, predecessor, false);
+                successor = finger;
+            } else if (root == null) {
+                root = newNode;
+                root.isBlack = true;
+                size++;
+                steps = 0;
+                predecessor = null;
+                successor = null;
+            } else {
+                // Descend from the root, remembering the last nodes where the search went right and left
+                Node<T> parent = root;
+                Node<T> lower = null;
+                Node<T> upper = null;
+                while (true) {
+                    compare = compare(data, parent.data);
+                    if (compare == 0) {
+                        break;
+                    }
+                    if (compare < 0) {
+                        upper = parent;
+                    } else {
+                        lower = parent;
+                    }
+                    Node<T> next = (compare < 0) ? parent.leftChild : parent.rightChild;
+                    if (next == null) {
+                        break;
+                    }
+                    parent = next;
+                }
+                if (compare == 0) {
+                    duplicates.add(data);
+                    continue;
+                }
+                steps = link(newNode, parent, compare < 0);
+                predecessor = lower;
+                successor = upper;
+            }
+            finger = newNode;
+
+            if (metrics != null) {
+                metrics.inserted(event, start, steps, size);
+            }
+            notifyInserted(data);
+            inserted++;
+        }
+        return new InsertAllResult<>(inserted, duplicates);
+    }
+
+    /**
+     * This method resolves any red property violations that may occur from
+     * inserting a new node into a red-black tree. It also preserves all other
+     * red-black tree properties. The violation is resolved bottom-up in a loop:
+     * recoloring may push it two levels up the tree, while the rotation cases
+     * always finish the repair.
+     *
+     * @param newNode the node that was newly created and inserted into the tree
+     * (before the enforcement of the properties)
+     * @return the number of iterations of the repair loop
+     */
+    private int enforceRBTreePropertiesAfterInsert(Node<T> newNode) {
+        int steps = 0;
+        Node<T> current = newNode;
+        Node<T> parent = current.parent;
+        // A red-on-red violation exists as long as current's parent is red. A red
+        // parent is never the root, so the grandparent always exists
+        while (parent != null && !parent.isBlack) {
+            steps++;
+            Node<T> grandparent = parent.parent;
+            boolean parentIsLeft = grandparent.leftChild == parent;
+            Node<T> uncle = parentIsLeft ? grandparent.rightChild : grandparent.leftChild;
+
+            if (uncle != null && !uncle.isBlack) {
+                // Case 3: red uncle, regardless of the side current is on. Swap the
+                // colors of the parent, uncle and grandparent, which may push the
+                // violation up to the grandparent
+                parent.isBlack = true;
+                uncle.isBlack = true;
+                grandparent.isBlack = false;
+                recolored(3);
+                current = grandparent;
+                parent = current.parent;
+                continue;
+            }
+
+            // Case 2: black uncle and current on the same side as the uncle (the
+            // inner side). Rotate current above its parent to turn it into case 1
+            if ((parent.leftChild == current) != parentIsLeft) {
+                rotate(current, parent);
+                Node<T> formerParent = parent;
+                parent = current;
+                current = formerParent;
+            }
+
+            // Case 1: black uncle and current on the outer side. Rotate the parent
+            // above the grandparent and swap their colors
+            rotate(parent, grandparent);
+            parent.isBlack = true;
+            grandparent.isBlack = false;
+            recolored(2);
+            break;
+        }
+        // A valid red-black tree must always have a black root
+        if (!root.isBlack) {
+            root.isBlack = true;
+            recolored(1);
+        }
+        return steps;
+    }
+
+    /**
+     * Removes the node holding a value equal to the given data from this tree,
+     * then restores the red-black tree properties. When the node to remove has
+     * two children, its in-order successor's value is moved into it and the
+     * successor node (which has at most one child) is removed instead.
+     *
+     * @param data the value to remove from this tree
+     * @return true if a matching value was found and removed, false if not
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public boolean remove(T data) throws NullPointerException {
+        // null references will not be stored within this tree
+        if (data == null) {
+            throw new NullPointerException(
+                    "This RedBlackTree cannot store null references.");
+        }
+
+        TreeMetrics metrics = this.metrics;
+        TreeOperationEvent event = null;
+        if (metrics != null) {
+            event = new TreeOperationEvent();
+            event.begin();
+        }
+        Node<T> node = findNode(data);
+        if (node == null) {
+            return false;
+        }
+        T removed = node.data; // removeNode may move another value into this node
+        int fixupSteps = removeNode(node);
+        if (metrics != null) {
+            metrics.removed(event, fixupSteps, size);
+        }
+        notifyRemoved(removed);
+        return true;
+    }
+
+    /**
+     * Removes every value in the given collection from this tree. Small
+     * batches are removed one at a time. Large batches are sorted and merged
+     * against a single in-order pass over the tree, after which the tree is
+     * rebuilt from the survivors in linear time, so the whole batch costs
+     * O(n + m log m) instead of m separate descents and fixups.
+     *
+     * @param values the values to remove from this tree
+     * @return true if at least one value was removed, false if not
+     * @throws NullPointerException when the collection or any of its values is
+     * null
+     */
+    public boolean removeAll(Collection<? extends T> values) throws NullPointerException {
+        if (values == null) {
+            throw new NullPointerException("The collection of values to remove cannot be null.");
+        }
+        if (values.isEmpty() || root == null) {
+            return false;
+        }
+
+        // A single descent costs about log2(n) comparisons, so only fall back
+        // to a full pass when the batch would cost more than walking the tree
+        int descentCost = 32 - Integer.numberOfLeadingZeros(size);
+        if ((long) values.size() * descentCost < size) {
+            boolean changed = false;
+            for (T value : values) {
+                changed |= remove(value);
+            }
+            return changed;
+        }
+
+        TreeMetrics metrics = this.metrics;
+        TreeOperationEvent event = beginBulk(metrics);
+        @SuppressWarnings("unchecked")
+        T[] batch = (T[]) values.toArray(new Comparable<?>[0]);
+        for (T value : batch) {
+            if (value == null) {
+                throw new NullPointerException(
+                        "This RedBlackTree cannot store null references.");
+            }
+        }
+        Arrays.sort(batch, comparator);
+
+        // Merge the sorted batch against the in-order sequence of the tree
+        Object[] survivors = new Object[size];
+        List<T> removed = new ArrayList<>();
+        int kept = 0;
+        int next = 0;
+        Iterator<T> treeNodeIterator = this.iterator();
+        while (treeNodeIterator.hasNext()) {
+            T data = treeNodeIterator.next();
+            while (next < batch.length && compare(batch[next], data) < 0) {
+                next++;
+            }
+            if (next == batch.length || compare(batch[next], data) != 0) {
+                survivors[kept++] = data;
+            } else if (!listeners.isEmpty()) {
+                removed.add(data);
+            }
+        }
+        int removedCount = size - kept;
+        boolean changed = rebuildFrom(survivors, kept);
+        if (metrics != null) {
+            metrics.bulk(event, "removeAll", 0, removedCount, size);
+        }
+        removed.forEach(this::notifyRemoved);
+        return changed;
+    }
+
+    /**
+     * Removes every value of this tree that satisfies the given predicate,
+     * using a single in-order pass followed by a linear-time rebuild.
+     *
+     * @param filter returns true for the values to be removed
+     * @return true if at least one value was removed, false if not
+     * @throws NullPointerException when the provided filter is null
+     */
+    public boolean removeIf(Predicate<? super T> filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("The removal filter cannot be null.");
+        }
+
+        TreeMetrics metrics = this.metrics;
+        TreeOperationEvent event = beginBulk(metrics);
+        Object[] survivors = new Object[size];
+        List<T> removed = new ArrayList<>();
+        int kept = 0;
+        Iterator<T> treeNodeIterator = this.iterator();
+        while (treeNodeIterator.hasNext()) {
+            T data = treeNodeIterator.next();
+            if (!filter.test(data)) {
+                survivors[kept++] = data;
+            } else if (!listeners.isEmpty()) {
+                removed.add(data);
+            }
+        }
+        int removedCount = size - kept;
+        boolean changed = rebuildFrom(survivors, kept);
+        if (metrics != null) {
+            metrics.bulk(event, "removeIf", 0, removedCount, size);
+        }
+        removed.forEach(this::notifyRemoved);
+        return changed;
+    }
+
+    /**
+     * Adds every value of the other tree to this tree, like Set.addAll, with
+     * a join-based union running in parallel on the common fork/join pool.
+     * Merging a tree of m values into one of n values costs O(m log(n / m + 1))
+     * work instead of m separate inserts. The other tree is left unchanged:
+     * its nodes are copied in O(m) first.
+     *
+     * @param other the tree holding the values to add
+     * @return true if this tree changed, false if it held every value already
+     * @throws NullPointerException when the other tree is null
+     * @throws IllegalArgumentException when the other tree orders its values
+     * differently
+     */
+    public boolean union(RedBlackTree<T> other) throws NullPointerException {
+        Queue<Node<T>> dropped = listeners.isEmpty() ? null : new ConcurrentLinkedQueue<>();
+        TreeMetrics metrics = this.metrics;
+        TreeOperationEvent event = beginBulk(metrics);
+        int oldSize = size;
+        root = SetOperations.union(root, copyOf(other), order(), dropped);
+        size = subtreeSize(root);
+        if (metrics != null) {
+            metrics.bulk(event, "union", size - oldSize, 0, size);
+        }
+        if (dropped != null) {
+            // Every value of other was inserted, except for the ones dropped as duplicates
+            Object[] duplicates = sortedValues(dropped);
+            int next = 0;
+            for (T data : other) {
+                if (next < duplicates.length && duplicates[next] == data) {
+                    next++;
+                } else {
+                    notifyInserted(data);
+                }
+            }
+        }
+        return size != oldSize;
+    }
+
+    /**
+     * Keeps only the values of this tree that the other tree also holds, like
+     * Set.retainAll, with a join-based intersection running in parallel on
+     * the common fork/join pool. The other tree is left unchanged.
+     *
+     * @param other the tree holding the values to keep
+     * @return true if this tree changed, false if every value was kept
+     * @throws NullPointerException when the other tree is null
+     * @throws IllegalArgumentException when the other tree orders its values
+     * differently
+     * @see #union(RedBlackTree)
+     */
+    public boolean intersect(RedBlackTree<T> other) throws NullPointerException {
+        Queue<Node<T>> dropped = listeners.isEmpty() ? null : new ConcurrentLinkedQueue<>();
+        TreeMetrics metrics = this.metrics;
+        TreeOperationEvent event = beginBulk(metrics);
+        int oldSize = size;
+        root = SetOperations.intersect(root, copyOf(other), order(), dropped);
+        size = subtreeSize(root);
+        if (metrics != null) {
+            metrics.bulk(event, "intersect", 0, oldSize - size, size);
+        }
+        notifyDropped(dropped);
+        return size != oldSize;
+    }
+
+    /**
+     * Removes every value of this tree that the other tree holds, like
+     * Set.removeAll, with a join-based difference running in parallel on the
+     * common fork/join pool. The other tree is left unchanged.
+     *
+     * @param other the tree holding the values to remove
+     * @return true if this tree changed, false if no value was removed
+     * @throws NullPointerException when the other tree is null
+     * @throws IllegalArgumentException when the other tree orders its values
+     * differently
+     * @see #union(RedBlackTree)
+     */
+    public boolean difference(RedBlackTree<T> other) throws NullPointerException {
+        Queue<Node<T>> dropped = listeners.isEmpty() ? null : new ConcurrentLinkedQueue<>();
+        TreeMetrics metrics = this.metrics;
+        TreeOperationEvent event = beginBulk(metrics);
+        int oldSize = size;
+        root = SetOperations.difference(root, copyOf(other), order(), dropped);
+        size = subtreeSize(root);
+        if (metrics != null) {
+            metrics.bulk(event, "difference", 0, oldSize - size, size);
+        }
+        notifyDropped(dropped);
+        return size != oldSize;
+    }
+
+    /**
+     * @return a begun event for a bulk operation, or null when metrics are
+     * disabled
+     */
+    private static TreeOperationEvent beginBulk(TreeMetrics metrics) {
+        if (metrics == null) {
+            return null;
+        }
+        TreeOperationEvent event = new TreeOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Copies the nodes of a tree ordered like this one, keeping its shape,
+     * colors and subtree sizes.
+     */
+    private Node<T> copyOf(RedBlackTree<T> tree) {
+        if (tree == null) {
+            throw new NullPointerException("The other tree cannot be null.");
+        }
+        if (!ordersLike(tree)) {
+            throw new IllegalArgumentException("The other tree must order its values like this tree.");
+        }
+        return copyOf(tree.root, null);
+    }
+
+    /**
+     * Checks that the other tree orders its values like this one. keyedByInt
+     * builds a new comparator on every call, and each Candidate::getId
+     * expression may be a new function object, so two trees keyed by an int
+     * are compared by their key extractors, and when those differ by checking
+     * in O(m) that the values of the other tree ascend in the order of this
+     * one.
+     */
+    private boolean ordersLike(RedBlackTree<T> tree) {
+        if (Objects.equals(comparator, tree.comparator)) {
+            return true;
+        }
+        if (intKey == null || tree.intKey == null) {
+            return false;
+        }
+        if (intKey == tree.intKey) {
+            return true;
+        }
+        T previous = null;
+        for (T data : tree) {
+            if (previous != null && compare(previous, data) >= 0) {
+                return false;
+            }
+            previous = data;
+        }
+        return true;
+    }
+
+    /**
+     * @return the order of this tree, never null
+     */
+    private Comparator<? super T> order() {
+        return (comparator != null) ? comparator : Comparator.naturalOrder();
+    }
+
+    private static <T> Node<T> copyOf(Node<T> node, Node<T> parent) {
+        if (node == null) {
+            return null;
+        }
+        Node<T> copy = new Node<>(node.data);
+        copy.isBlack = node.isBlack;
+        copy.subtreeSize = node.subtreeSize;
+        copy.parent = parent;
+        copy.leftChild = copyOf(node.leftChild, copy);
+        copy.rightChild = copyOf(node.rightChild, copy);
+        return copy;
+    }
+
+    private void notifyDropped(Queue<Node<T>> dropped) {
+        if (dropped != null) {
+            for (Object data : sortedValues(dropped)) {
+                @SuppressWarnings("unchecked")
+                T removed = (T) data;
+                notifyRemoved(removed);
+            }
+        }
+    }
+
+    /**
+     * @return the values of the given nodes, in ascending order
+     */
+    private Object[] sortedValues(Queue<Node<T>> nodes) {
+        @SuppressWarnings("unchecked")
+        T[] values = (T[]) new Comparable<?>[nodes.size()];
+        int count = 0;
+        for (Node<T> node : nodes) {
+            values[count++] = node.data;
+        }
+        Arrays.sort(values, comparator);
+        return values;
+    }
+
+    /**
+     * Builds a balanced red-black tree out of the values produced by the given
+     * iterator in linear time, without any rotations or recoloring. The values
+     * are expected in ascending order, as in our id-sorted candidate exports;
+     * when they turn out not to be sorted they are sorted first, which costs
+     * O(n log n) instead.
+     *
+     * @param values iterator producing at least size values
+     * @param size the number of values to read from the iterator
+     * @return a new tree holding the first size values of the iterator
+     * @throws NullPointerException when the iterator or any of its values is
+     * null
+     * @throws IllegalArgumentException when size is negative, when the
+     * iterator runs out of values, or when two values are equal
+     */
+    public static <T extends Comparable<T>> RedBlackTree<T> fromSorted(Iterator<? extends T> values, int size)
+            throws NullPointerException, IllegalArgumentException {
+        return fromSorted(values, size, null);
+    }
+
+    /**
+     * Builds a balanced red-black tree ordered by the given comparator out of
+     * the values produced by the given iterator, in linear time when they
+     * come in the comparator's order.
+     *
+     * @param values iterator producing at least size values
+     * @param size the number of values to read from the iterator
+     * @param comparator the order of the new tree, null for the natural order
+     * @return a new tree holding the first size values of the iterator
+     * @throws NullPointerException when the iterator or any of its values is
+     * null
+     * @throws IllegalArgumentException when size is negative, when the
+     * iterator runs out of values, or when two values are equal
+     * @see #fromSorted(Iterator, int)
+     */
+    public static <T extends Comparable<T>> RedBlackTree<T> fromSorted(Iterator<? extends T> values, int size,
+            Comparator<? super T> comparator) throws NullPointerException, IllegalArgumentException {
+        if (values == null) {
+            throw new NullPointerException("The iterator of values cannot be null.");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("The size cannot be negative: " + size);
+        }
+
+        RedBlackTree<T> tree = new RedBlackTree<T>(comparator);
+        @SuppressWarnings("unchecked")
+        T[] sorted = (T[]) new Comparable<?>[size];
+        boolean isSorted = true;
+        for (int i = 0; i < size; i++) {
+            if (!values.hasNext()) {
+                throw new IllegalArgumentException(
+                        "Expected " + size + " values but the iterator ended after " + i);
+            }
+            T data = values.next();
+            if (data == null) {
+                throw new NullPointerException(
+                        "This RedBlackTree cannot store null references.");
+            }
+            if (isSorted && i > 0 && tree.compare(sorted[i - 1], data) >= 0) {
+                isSorted = false;
+            }
+            sorted[i] = data;
+        }
+
+        if (!isSorted) {
+            Arrays.sort(sorted, comparator);
+            for (int i = 1; i < size; i++) {
+                if (tree.compare(sorted[i - 1], sorted[i]) == 0) {
+                    throw new IllegalArgumentException(
+                            "This RedBlackTree already contains that value.");
+                }
+            }
+        }
+
+        tree.rebuildFrom(sorted, size);
+        return tree;
+    }
+
+    /**
+     * Writes the values of this tree, in ascending order, to a binary snapshot
+     * file. The file starts with a header holding a magic number, the format
+     * version, the number of records, the payload length and a CRC32 checksum
+     * of the payload, followed by one record per value as produced by the
+     * codec. The file is forced to the storage device before returning.
+     *
+     * @param path the file to write, replaced when it already exists
+     * @param codec the codec writing the record of each value
+     * @throws IOException when the file cannot be written
+     * @throws NullPointerException when the path or codec is null
+     */
+    public void writeSnapshot(Path path, SnapshotCodec<? super T> codec) throws IOException, NullPointerException {
+        if (path == null || codec == null) {
+            throw new NullPointerException("The snapshot path and codec cannot be null.");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Records go after the header, which is filled in once the checksum is known.
+            // The streams are not closed, as that would close the channel as well
+            channel.position(SNAPSHOT_HEADER_BYTES);
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 1 << 16));
+            int count = 0;
+            Iterator<T> treeNodeIterator = this.iterator();
+            while (treeNodeIterator.hasNext()) {
+                codec.write(treeNodeIterator.next(), out);
+                count++;
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES);
+            header.putInt(SNAPSHOT_MAGIC);
+            header.putInt(SNAPSHOT_VERSION);
+            header.putInt(count);
+            header.putInt((int) checksum.getValue());
+            header.putLong(channel.position() - SNAPSHOT_HEADER_BYTES);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Opens a snapshot file written by writeSnapshot and builds a tree out of
+     * it. The file is memory-mapped, its header and checksum are verified
+     * before any record is decoded, and since the records are stored in
+     * ascending order the tree is built in linear time by fromSorted.
+     *
+     * @param path the snapshot file to read
+     * @param codec the codec reading the record of each value
+     * @return a new tree holding the values of the snapshot
+     * @throws IOException when the file cannot be read, is not a snapshot,
+     * has an unsupported version or is corrupt
+     * @throws NullPointerException when the path or codec is null
+     */
+    public static <T extends Comparable<T>> RedBlackTree<T> openSnapshot(Path path, SnapshotCodec<T> codec)
+            throws IOException, NullPointerException {
+        if (path == null || codec == null) {
+            throw new NullPointerException("The snapshot path and codec cannot be null.");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < SNAPSHOT_HEADER_BYTES) {
+                throw new IOException(path + " is too short to be a RedBlackTree snapshot");
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException(path + " is larger than a single mapping can hold");
+            }
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+            // Cheap header checks first, so that foreign or truncated files are rejected quickly
+            if (file.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(path + " is not a RedBlackTree snapshot");
+            }
+            int version = file.getInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException(path + " has unsupported snapshot version " + version);
+            }
+            int count = file.getInt();
+            int expectedChecksum = file.getInt();
+            long payloadLength = file.getLong();
+            if (count < 0 || payloadLength != fileSize - SNAPSHOT_HEADER_BYTES) {
+                throw new IOException(path + " is truncated or corrupt");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(file.duplicate());
+            if ((int) checksum.getValue() != expectedChecksum) {
+                throw new IOException(path + " failed its checksum");
+            }
+
+            Iterator<T> records = new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return file.hasRemaining();
+                }
+
+                @Override
+                public T next() {
+                    return codec.read(file);
+                }
+            };
+            try {
+                return fromSorted(records, count);
+            } catch (RuntimeException e) {
+                throw new IOException(path + " holds invalid records", e);
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of this tree with the first count values of the
+     * given sorted array, unless nothing was removed from the current tree.
+     *
+     * @param sorted the surviving values in ascending order
+     * @param count the number of surviving values
+     * @return true if the tree changed, false if every value survived
+     */
+    boolean rebuildFrom(Object[] sorted, int count) {
+        if (count == size) {
+            return false;
+        }
+        root = buildFromSorted(sorted, 0, count - 1, 0, computeRedLevel(count));
+        size = count;
+        return true;
+    }
+
+    private void notifyInserted(T data) {
+        for (MutationListener<? super T> listener : listeners) {
+            listener.inserted(data);
+        }
+    }
+
+    private void notifyRemoved(T data) {
+        for (MutationListener<? super T> listener : listeners) {
+            listener.removed(data);
+        }
+    }
+
+    /**
+     * Recursively builds a perfectly balanced subtree out of a range of a
+     * sorted array in linear time. Every node is black except the ones on the
+     * deepest level of an incomplete tree, which are red, so every root to
+     * leaf path contains the same number of black nodes.
+     *
+     * @param sorted the values in ascending order
+     * @param low index of the first value of the subtree (inclusive)
+     * @param high index of the last value of the subtree (inclusive)
+     * @param level depth of the subtree root within the tree being built
+     * @param redLevel depth at which nodes should be colored red
+     * @return the root of the subtree, or null when the range is empty
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T> buildFromSorted(Object[] sorted, int low, int high, int level, int redLevel) {
+        if (low > high) {
+            return null;
+        }
+        int middle = (low + high) >>> 1;
+        Node<T> node = new Node<>((T) sorted[middle]);
+        node.isBlack = level != redLevel;
+        node.subtreeSize = high - low + 1;
+        node.leftChild = buildFromSorted(sorted, low, middle - 1, level + 1, redLevel);
+        if (node.leftChild != null) {
+            node.leftChild.parent = node;
+        }
+        node.rightChild = buildFromSorted(sorted, middle + 1, high, level + 1, redLevel);
+        if (node.rightChild != null) {
+            node.rightChild.parent = node;
+        }
+        return node;
+    }
+
+    /**
+     * Finds the level of the tree built by buildFromSorted at which nodes
+     * have to be red: the deepest level, unless that level is full.
+     *
+     * @param count the number of values the tree will hold
+     * @return the depth whose nodes are colored red
+     */
+    private static int computeRedLevel(int count) {
+        int level = 0;
+        for (int m = count - 1; m >= 0; m = m / 2 - 1) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Finds the node holding a value equal to the given data.
+     *
+     * @param data the value to search for
+     * @return the matching node, or null if there is none
+     */
+    private Node<T> findNode(T data) {
+        Node<T> current = root;
+        while (current != null) {
+            int compare = compare(data, current.data);
+            if (compare < 0) {
+                current = current.leftChild;
+            } else if (compare > 0) {
+                current = current.rightChild;
+            } else {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Unlinks the given node from this tree and resolves the black height
+     * violation that removing a black node may cause.
+     *
+     * @param node the node to remove, which must belong to this tree
+     * @return the number of fixup steps the removal needed
+     */
+    private int removeNode(Node<T> node) {
+        int fixupSteps = 0;
+        // A node with two children swaps places with its in-order successor,
+        // which has no left child
+        if (node.leftChild != null && node.rightChild != null) {
+            Node<T> successor = node.rightChild;
+            while (successor.leftChild != null) {
+                successor = successor.leftChild;
+            }
+            node.data = successor.data;
+            node = successor;
+        }
+
+        Node<T> child = (node.leftChild != null) ? node.leftChild : node.rightChild;
+        if (child != null) {
+            // The only child of a node with one child is always red, and the
+            // removed node black, so recoloring the child keeps the black height
+            replaceInParent(node, child);
+            child.isBlack = true;
+            recolored(1);
+            decrementSubtreeSizes(child.parent);
+        } else if (node.parent == null) {
+            root = null; // the last node of the tree
         } else {
-            boolean returnValue = insertHelper(newNode, root); // recursively insert into subtree
-            if (returnValue) {
-                size++;
-            } else {
-                throw new IllegalArgumentException(
-                        "This RedBlackTree already contains that value.");
+            // A leaf is fixed up while it still occupies its position, so that
+            // the sibling and parent can be found through it, then unlinked
+            if (node.isBlack) {
+                fixupSteps = enforceRBTreePropertiesBeforeRemove(node);
             }
-            /*A valid red-black tree must always have a black root, thus we have this
-      statement so that this rule is never broken.*/
-            root.isBlack = true;
-            return returnValue;
+            decrementSubtreeSizes(node.parent);
+            replaceInParent(node, null);
         }
+        node.parent = null;
+        node.leftChild = null;
+        node.rightChild = null;
+        size--;
+        return fixupSteps;
     }
 
     /**
-     * Recursive helper method to find the subtree with a null reference in the
-     * position that the newNode should be inserted, and then extend this tree
-     * by the newNode in that position.
+     * Decrements the subtree size of the given node and all of its ancestors,
+     * after a node below them was unlinked.
      *
-     * @param newNode is the new node that is being added to this tree
-     * @param subtree is the reference to a node within this tree which the
-     * newNode should be inserted as a descenedent beneath
-     * @return true is the value was inserted in subtree, false if not
+     * @param node the lowest node whose subtree lost a node, may be null
      */
-    private boolean insertHelper(Node<T> newNode, Node<T> subtree) {
-        int compare = newNode.data.compareTo(subtree.data);
-        // do not allow duplicate values to be stored within this tree
-        if (compare == 0) {
-            return false;
-        } // store newNode within left subtree of subtree
-        else if (compare < 0) {
-            if (subtree.leftChild == null) { // left subtree empty, add here
-                subtree.leftChild = newNode;
-                newNode.parent = subtree;
-                enforceRBTreePropertiesAfterInsert(newNode); // Checking for violations
-                return true;
-                // otherwise continue recursive search for location to insert
-            } else {
-                return insertHelper(newNode, subtree.leftChild);
-            }
-        } // store newNode within the right subtree of subtree
-        else {
-            if (subtree.rightChild == null) { // right subtree empty, add here
-                subtree.rightChild = newNode;
-                newNode.parent = subtree;
-                enforceRBTreePropertiesAfterInsert(newNode); // Checking for violations
-                return true;
-                // otherwise continue recursive search for location to insert
-            } else {
-                return insertHelper(newNode, subtree.rightChild);
-            }
+    private static void decrementSubtreeSizes(Node<?> node) {
+        for (; node != null; node = node.parent) {
+            node.subtreeSize--;
         }
     }
 
     /**
-     * This method resolves any red property violations that may occur from
-     * inserting a new node into a red-black tree. It also preserved all other
-     * red-black tree properties.
+     * Makes the replacement take the given node's place below its parent.
      *
-     * @param newNode the node that was newly created and inserted into the tree
-     * (before the enforcement of the properties)
+     * @param node the node being unlinked
+     * @param replacement the node that takes its place, may be null
      */
-    private void enforceRBTreePropertiesAfterInsert(Node<T> newNode) {
-        /*If the parent node of the newly inserted node (newNode) is black, then
-      no red-on-red violations were made. Therefore we can exit the method */
-        if (newNode.parent != null && newNode.parent.isBlack) {
-            return;
-        }
-
-        /* 
-      Note the following: 
-      -In the following cases description note that a newly inserted node is 
-      red by default. And in all the cases, the newly inserted node AND the 
-      parent are red. (i.e. all of the 3 cases are red-on-red violations
-      
-      -"Uncle" = Parent's sibling
-      
-      -When we say "parent" or "grandparent". We're talking in the 
-      perspective of the newly inserted node */
- /* To shorten the code, it's possible that saving the parent's and grandparent's references
-      in a variable of type Node<T> */
- /*Notice the conditional statement. By DeMorgan's law, the conditional 
-      statement is equal to !(newNode.parent == null || newNode.parent.isBlack) */
-        if (newNode.parent != null && !newNode.parent.isBlack) { // checking for red on red violation
-            // Once we confirm we have a red-on-red violation. Then we can look at the 3 cases:
-
-            /*
-      Note that in the if statement of the first and second case, we shortened the if-statement 
-      by replacing [(newNode.parent.leftChild != null && newNode.parent.leftChild.equals(newNode)]
-      with [newNode.isLeftChild()]
-      We also replaced [(newNode.parent.rightChild != null && newNode.parent.rightChild.equals(newNode)]
-      with [!newNode.isLeftChild()]
-             */
- /* Case 1: newNode's uncle is black and newNode is on the opposite side (the farther 
-      side away from the uncle). Then we'll rotate the parent and grandparent. 
-      Then color swap the parent and grandparent*/
-            if ((newNode.isLeftChild()
-                    && (newNode.parent.parent.rightChild == null || newNode.parent.parent.rightChild.isBlack))
-                    || (!newNode.isLeftChild() //i.e. is it the right child? If it's not the left, then it's the right
-                    && (newNode.parent.parent.leftChild == null || newNode.parent.parent.leftChild.isBlack))) {
-                rotate(newNode.parent, newNode.parent.parent);
-
-                // Swapping parent's color
-                /* We have to check if the parent/grandparent is null or not first. 
-          This is to prevent NullPointerException from being thrown*/
-                if (newNode.parent != null) {
-                    newNode.parent.isBlack = !newNode.parent.isBlack;
-                }
+    private void replaceInParent(Node<T> node, Node<T> replacement) {
+        if (replacement != null) {
+            replacement.parent = node.parent;
+        }
+        if (node.parent == null) {
+            root = replacement;
+        } else if (node.isLeftChild()) {
+            node.parent.leftChild = replacement;
+        } else {
+            node.parent.rightChild = replacement;
+        }
+    }
 
-                // Swapping grandparent's color
-                if (newNode.parent.rightChild.isBlack) {
-                    newNode.parent.rightChild.isBlack = !newNode.parent.rightChild.isBlack;
-                } else if (newNode.parent.leftChild.isBlack) {
-                    newNode.parent.leftChild.isBlack = !newNode.parent.leftChild.isBlack;
-                }
-                // We need to make sure that the root doesn't have a parent.
-                root.parent = null;
-                // Once we're done, we will exit the method so that other cases are not triggered.
-                return;
-            }
+    /**
+     * This method resolves the "double black" violation caused by removing a
+     * black leaf: the path through the given node would otherwise hold one
+     * black node less than every other path.
+     *
+     * @param doubleBlack the node whose path is missing a black node
+     * @return the number of iterations of the repair loop
+     */
+    private int enforceRBTreePropertiesBeforeRemove(Node<T> doubleBlack) {
+        int steps = 0;
+        Node<T> current = doubleBlack;
+        while (current != root && current.isBlack) {
+            steps++;
+            Node<T> parent = current.parent;
+            boolean isLeft = current.isLeftChild();
+            // A black non-root node always has a sibling
+            Node<T> sibling = isLeft ? parent.rightChild : parent.leftChild;
 
-            /*Case 2: newNode's uncle is black and newNode is on the same side (the side closer to the 
-    uncle). Then rotate the red nodes, the ones that are involved in the red-on-red violations, 
-    then apply case 1
-             */
-            if ((newNode.isLeftChild()
-                    && (newNode.parent.parent.leftChild == null || newNode.parent.parent.leftChild.isBlack))
-                    || (!newNode.isLeftChild()
-                    && (newNode.parent.parent.rightChild == null || newNode.parent.parent.rightChild.isBlack))) {
-                rotate(newNode, newNode.parent);
-                // To apply case 1, we just recurse this method. Case 1 block will run
-                enforceRBTreePropertiesAfterInsert((newNode.leftChild == null)
-                        ? newNode.rightChild : newNode.leftChild);
-                return;
-            }
-
-            /*Case 3: newNode's uncle is red REGARDLESS OF THE SIDE newNode IS ON. 
-      In this case, we just swap the colors of the parent, grandparent, and uncle.
-      Finally, just set the root node (NOT THE PARENT OR GRANDPARENT), to black
-             */
- /*First, do a null check before every comparison and then check if it's a red-on-red violation 
-    before we proceed
-             */
-            if ((newNode.parent.parent.leftChild != null && !newNode.parent.parent.leftChild.isBlack)
-                    && (newNode.parent.parent.rightChild != null && !newNode.parent.parent.rightChild.isBlack)) {
-
-                // Swapping the parent's color
-                newNode.parent.isBlack = !newNode.parent.isBlack;
-
-                //Swapping grandparent's color
-                newNode.parent.parent.isBlack = !newNode.parent.parent.isBlack;
-
-                //Swapping uncle's color
-                if (newNode.parent.parent.rightChild.equals(newNode.parent)) {
-                    //if the uncle is on the right side and the node in question is on the opposite side
-                    // Swap grandparent leftchild's color
-                    newNode.parent.parent.leftChild.isBlack = !newNode.parent.parent.leftChild.isBlack;
-                } else if (newNode.parent.parent.leftChild.equals(newNode.parent)) {
-                    //if the uncle is on the right side and the node in question is on the opposite side
-                    newNode.parent.parent.rightChild.isBlack = !newNode.parent.parent.rightChild.isBlack;
-                }
+            // Case 1: red sibling. Rotate it above the parent so that the new
+            // sibling is black, then continue with the remaining cases
+            if (!sibling.isBlack) {
+                sibling.isBlack = true;
+                parent.isBlack = false;
+                recolored(2);
+                rotate(sibling, parent);
+                sibling = isLeft ? parent.rightChild : parent.leftChild;
+            }
 
-                /* Because the violation may have been pushed up the tree, check the grandparent
-          Since the tree might be small, do a null check in case if there was no grandparent*/
-                if (newNode.parent.parent != null) {
-                    enforceRBTreePropertiesAfterInsert(newNode.parent.parent);
+            Node<T> nearNephew = isLeft ? sibling.leftChild : sibling.rightChild;
+            Node<T> farNephew = isLeft ? sibling.rightChild : sibling.leftChild;
+            if (isBlack(nearNephew) && isBlack(farNephew)) {
+                // Case 2: black sibling with black children. Recolor the sibling
+                // and push the missing black up to the parent
+                sibling.isBlack = false;
+                recolored(1);
+                current = parent;
+            } else {
+                // Case 3: only the nephew closer to current is red. Rotate it
+                // above the sibling so that the far nephew becomes red
+                if (isBlack(farNephew)) {
+                    nearNephew.isBlack = true;
+                    sibling.isBlack = false;
+                    recolored(2);
+                    rotate(nearNephew, sibling);
+                    farNephew = sibling;
+                    sibling = nearNephew;
                 }
-                // Finally, we need to ensure that the root is black.
-                root.isBlack = true;
+                // Case 4: the far nephew is red. Rotate the sibling above the
+                // parent and recolor, which adds the missing black node
+                sibling.isBlack = parent.isBlack;
+                parent.isBlack = true;
+                farNephew.isBlack = true;
+                recolored(3);
+                rotate(sibling, parent);
+                current = root;
             }
         }
+        if (!current.isBlack) {
+            current.isBlack = true;
+            recolored(1);
+        }
+        return steps;
+    }
+
+    /**
+     * Counts nodes recolored by a fixup when metrics are enabled.
+     *
+     * @param nodes the number of nodes whose color was set
+     */
+    private void recolored(int nodes) {
+        if (metrics != null) {
+            metrics.recolored(nodes);
+        }
+    }
+
+    /**
+     * @param node the node to check, null for an empty leaf
+     * @return true when the node is black, empty leaves count as black
+     */
+    static boolean isBlack(Node<?> node) {
+        return node == null || node.isBlack;
     }
 
     /**
@@ -296,12 +1367,26 @@ public class RedBlackTree<T extends Comparable<T>> {
      * references are not initially (pre-rotation) related that way
      */
     private void rotate(Node<T> child, Node<T> parent) throws IllegalArgumentException {
-        // Null check: if both children are null, then it's a tree with 1 node, no ration
-        if (parent.leftChild == null && parent.rightChild == null) {
-            return;
+        rotateNodes(child, parent);
+        if (child.parent == null) { // if there was no grandparent, the child becomes the root
+            root = child;
+        }
+        if (metrics != null) {
+            metrics.rotated();
         }
+    }
 
-        if ((parent.leftChild != null && !parent.leftChild.equals(child)) && (parent.rightChild != null && !parent.rightChild.equals(child))) {
+    /**
+     * Performs the rotation of rotate(child, parent) on nodes that may not
+     * belong to a tree object, leaving the root reference to the caller.
+     *
+     * @param child is the node being rotated from child to parent position
+     * @param parent is the node being rotated from parent to child position
+     * @throws IllegalArgumentException when the provided child and parent
+     * node references are not initially (pre-rotation) related that way
+     */
+    static <T> void rotateNodes(Node<T> child, Node<T> parent) throws IllegalArgumentException {
+        if (child == null || child.parent != parent) {
             throw new IllegalArgumentException("Given parent and child are not related");
         }
 
@@ -312,143 +1397,474 @@ public class RedBlackTree<T extends Comparable<T>> {
     former root as its parent node. Therefore, we'll set the references after every shift in 
     position. 
          */
-        if (parent.leftChild != null && parent.leftChild.equals(child)) { // rotate RIGHT
-            Node<T> leftNodeOld = parent.leftChild;
-            parent.leftChild = leftNodeOld.rightChild;
-
-            if (parent.parent == null) { // if there was no parent above the given parent, the left child becomes the root
-                root = leftNodeOld;
-                //if (leftNodeOld != null) { // Setting the parent's reference
-                leftNodeOld.parent = null;
-                //}
-
-            } else if (parent.parent.leftChild != null && parent.parent.leftChild.equals(parent)) {
-                //if (leftNodeOld != null) { // Setting the reference
-                leftNodeOld.parent = parent.parent;
-                //}
-                parent.parent.leftChild = leftNodeOld;
+        Node<T> grandparent = parent.parent;
+        if (parent.leftChild == child) { // rotate RIGHT
+            parent.leftChild = child.rightChild;
+            if (child.rightChild != null) { // the moved subtree now hangs off parent
+                child.rightChild.parent = parent;
+            }
+            child.rightChild = parent;
+        } else { // rotate LEFT
+            parent.rightChild = child.leftChild;
+            if (child.leftChild != null) { // the moved subtree now hangs off parent
+                child.leftChild.parent = parent;
+            }
+            child.leftChild = parent;
+        }
+
+        // The child takes the parent's place below the grandparent
+        child.parent = grandparent;
+        if (grandparent != null) { // without a grandparent, the caller makes the child its root
+            if (grandparent.leftChild == parent) {
+                grandparent.leftChild = child;
             } else {
-                //if (leftNodeOld != null) { // Setting the reference
-                leftNodeOld.parent = parent.parent;
-                //}
-                parent.parent.rightChild = leftNodeOld;
+                grandparent.rightChild = child;
             }
+        }
+        parent.parent = child;
+
+        // Only the two rotated nodes have different descendants now
+        child.subtreeSize = parent.subtreeSize;
+        parent.subtreeSize = subtreeSize(parent.leftChild) + subtreeSize(parent.rightChild) + 1;
+    }
+
+    /**
+     * @param node the root of a subtree, null for an empty leaf
+     * @return the number of nodes in the subtree
+     */
+    static int subtreeSize(Node<?> node) {
+        return (node == null) ? 0 : node.subtreeSize;
+    }
+
+    /**
+     * Get the size of the tree (its number of nodes).
+     *
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method to check if the tree is empty (does not contain any node).
+     *
+     * @return true of this.size() return 0, false if this.size() > 0
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
 
-            //if (parent != null) { // Setting the reference
-            parent.parent = leftNodeOld;
-            //}
-            leftNodeOld.rightChild = parent;
-        } else if (parent.rightChild != null && parent.rightChild.equals(child)) { //Rotate left
+    /**
+     * Finds the rank of a value: the number of values of the tree that are
+     * smaller than it. For a value in the tree, this is its 0-based position
+     * in in-order (sorted) order. Runs in O(log n) using the subtree sizes.
+     *
+     * @param data the value to rank, which does not have to be in the tree
+     * @return the number of values in the tree smaller than data
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public int rank(T data) throws NullPointerException {
+        if (data == null) {
+            throw new NullPointerException(
+                    "This RedBlackTree cannot store null references.");
+        }
+        int rank = 0;
+        Node<T> current = root;
+        while (current != null) {
+            int compare = compare(data, current.data);
+            if (compare < 0) {
+                current = current.leftChild;
+            } else {
+                // current and its whole left subtree are smaller (or equal) than data
+                rank += subtreeSize(current.leftChild);
+                if (compare == 0) {
+                    return rank;
+                }
+                rank++;
+                current = current.rightChild;
+            }
+        }
+        return rank;
+    }
 
-            Node<T> rightNodeOld = parent.rightChild;
+    /**
+     * Returns the value at the given 0-based position in in-order (sorted)
+     * order, in O(log n) using the subtree sizes.
+     *
+     * @param index the position of the value, 0 for the smallest one
+     * @return the value at that position
+     * @throws IndexOutOfBoundsException when index is negative or not smaller
+     * than size()
+     */
+    public T select(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+        }
+        return selectNode(index).data;
+    }
 
-            if (rightNodeOld.leftChild != null) { // Setting the reference
-                rightNodeOld.leftChild.parent = parent.rightChild;
+    /**
+     * @param index the 0-based position of the node in sorted order, which
+     * must be within bounds
+     * @return the node holding the value at that position
+     */
+    Node<T> selectNode(int index) {
+        Node<T> current = root;
+        while (true) {
+            int leftSize = subtreeSize(current.leftChild);
+            if (index < leftSize) {
+                current = current.leftChild;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                current = current.rightChild;
+            } else {
+                return current;
             }
+        }
+    }
+
+    /**
+     * Returns the value at the given percentile, using the nearest-rank
+     * method: the smallest value such that at least p percent of the values
+     * are smaller than or equal to it.
+     *
+     * @param p the percentile, from 0 to 100
+     * @return the value at that percentile
+     * @throws IllegalArgumentException when p is not between 0 and 100
+     * @throws NoSuchElementException when the tree is empty
+     */
+    public T percentile(double p) throws IllegalArgumentException, NoSuchElementException {
+        if (!(p >= 0 && p <= 100)) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100: " + p);
+        }
+        if (size == 0) {
+            throw new NoSuchElementException("There are no elements in the tree");
+        }
+        int index = (int) Math.ceil(p / 100 * size) - 1;
+        return select(Math.max(0, Math.min(index, size - 1)));
+    }
+
+    /**
+     * @param data the value to compare with
+     * @return the largest value smaller than or equal to data, or null if
+     * there is none
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public T floor(T data) throws NullPointerException {
+        return dataOf(floorNode(data, true));
+    }
+
+    /**
+     * @param data the value to compare with
+     * @return the smallest value larger than or equal to data, or null if
+     * there is none
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public T ceiling(T data) throws NullPointerException {
+        return dataOf(ceilingNode(data, true));
+    }
+
+    /**
+     * @param data the value to compare with
+     * @return the smallest value strictly larger than data, or null if there
+     * is none
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public T higher(T data) throws NullPointerException {
+        return dataOf(ceilingNode(data, false));
+    }
+
+    /**
+     * @param data the value to compare with
+     * @return the largest value strictly smaller than data, or null if there
+     * is none
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public T lower(T data) throws NullPointerException {
+        return dataOf(floorNode(data, false));
+    }
+
+    /**
+     * Returns a lazy view of the values from fromInclusive (included) up to
+     * toExclusive (excluded). The view reads through to this tree: it is not a
+     * copy, and its iterator seeks its first value in O(log n) and then walks
+     * the parent references, so reading k values costs O(log n + k).
+     *
+     * @param fromInclusive the smallest value of the range
+     * @param toExclusive the value right after the range
+     * @return the view of the values within the range
+     * @throws NullPointerException when a bound is null
+     * @throws IllegalArgumentException when fromInclusive is larger than
+     * toExclusive
+     */
+    public RangeView<T> subRange(T fromInclusive, T toExclusive)
+            throws NullPointerException, IllegalArgumentException {
+        return subRange(fromInclusive, true, toExclusive, false);
+    }
+
+    /**
+     * Returns a lazy view of the values between the two bounds, each of which
+     * may be included or excluded.
+     *
+     * @param from the lower bound of the range
+     * @param fromInclusive true if a value equal to from belongs to the range
+     * @param to the upper bound of the range
+     * @param toInclusive true if a value equal to to belongs to the range
+     * @return the view of the values within the range
+     * @throws NullPointerException when a bound is null
+     * @throws IllegalArgumentException when from is larger than to
+     * @see #subRange(Comparable, Comparable)
+     */
+    public RangeView<T> subRange(T from, boolean fromInclusive, T to, boolean toInclusive)
+            throws NullPointerException, IllegalArgumentException {
+        if (from == null || to == null) {
+            throw new NullPointerException("The bounds of a range cannot be null.");
+        }
+        if (compare(from, to) > 0) {
+            throw new IllegalArgumentException("The lower bound of a range cannot be larger than its upper bound.");
+        }
+        return new RangeView<>(this, from, fromInclusive, to, toInclusive);
+    }
 
-            parent.rightChild = rightNodeOld.leftChild;
+    /**
+     * Returns a lazy view of the values smaller than toExclusive.
+     *
+     * @param toExclusive the value right after the range
+     * @return the view of the values within the range
+     * @throws NullPointerException when the bound is null
+     * @see #subRange(Comparable, Comparable)
+     */
+    public RangeView<T> headRange(T toExclusive) throws NullPointerException {
+        if (toExclusive == null) {
+            throw new NullPointerException("The bounds of a range cannot be null.");
+        }
+        return new RangeView<>(this, null, false, toExclusive, false);
+    }
 
-            if (parent.parent == null) { // Setting the reference
-                root = rightNodeOld;
+    /**
+     * Returns a lazy view of the values larger than or equal to fromInclusive.
+     *
+     * @param fromInclusive the smallest value of the range
+     * @return the view of the values within the range
+     * @throws NullPointerException when the bound is null
+     * @see #subRange(Comparable, Comparable)
+     */
+    public RangeView<T> tailRange(T fromInclusive) throws NullPointerException {
+        if (fromInclusive == null) {
+            throw new NullPointerException("The bounds of a range cannot be null.");
+        }
+        return new RangeView<>(this, fromInclusive, true, null, false);
+    }
 
-            } else if (parent.parent.leftChild != null && parent.parent.leftChild.equals(parent)) {
-                //if (rightNodeOld != null) { // Setting the reference
-                rightNodeOld.parent = parent.parent;
-                //}
+    private static <T> T dataOf(Node<T> node) {
+        return (node == null) ? null : node.data;
+    }
 
-                parent.parent.leftChild = rightNodeOld;
+    /**
+     * Finds the node holding the smallest value larger than (or equal to,
+     * when inclusive) the given data.
+     *
+     * @param data the value to compare with
+     * @param inclusive true if a node equal to data qualifies
+     * @return the matching node, or null if there is none
+     */
+    Node<T> ceilingNode(T data, boolean inclusive) {
+        if (data == null) {
+            throw new NullPointerException(
+                    "This RedBlackTree cannot store null references.");
+        }
+        Node<T> best = null;
+        Node<T> current = root;
+        while (current != null) {
+            int compare = compare(data, current.data);
+            if (compare < 0 || (compare == 0 && inclusive)) {
+                if (compare == 0) {
+                    return current;
+                }
+                best = current; // a candidate, but a smaller one may be to the left
+                current = current.leftChild;
             } else {
-                //if (rightNodeOld != null) { // Setting the reference
-                rightNodeOld.parent = parent.parent;
-                //}
+                current = current.rightChild;
+            }
+        }
+        return best;
+    }
 
-                parent.parent.rightChild = rightNodeOld;
+    /**
+     * Finds the node holding the largest value smaller than (or equal to,
+     * when inclusive) the given data.
+     *
+     * @param data the value to compare with
+     * @param inclusive true if a node equal to data qualifies
+     * @return the matching node, or null if there is none
+     */
+    Node<T> floorNode(T data, boolean inclusive) {
+        if (data == null) {
+            throw new NullPointerException(
+                    "This RedBlackTree cannot store null references.");
+        }
+        Node<T> best = null;
+        Node<T> current = root;
+        while (current != null) {
+            int compare = compare(data, current.data);
+            if (compare > 0 || (compare == 0 && inclusive)) {
+                if (compare == 0) {
+                    return current;
+                }
+                best = current; // a candidate, but a larger one may be to the right
+                current = current.rightChild;
+            } else {
+                current = current.leftChild;
             }
+        }
+        return best;
+    }
 
-            //if (parent != null) {// Setting the reference
-            parent.parent = rightNodeOld;
-            //}
-            rightNodeOld.leftChild = parent;
+    /**
+     * @return the node holding the smallest value, or null when empty
+     */
+    Node<T> firstNode() {
+        Node<T> current = root;
+        if (current != null) {
+            while (current.leftChild != null) {
+                current = current.leftChild;
+            }
         }
+        return current;
     }
 
     /**
-     * Get the size of the tree (its number of nodes).
+     * Finds the next node in in-order sequence by following the parent
+     * references, in amortized O(1) time over a full traversal.
      *
-     * @return the number of nodes in the tree
+     * @param node a node of this tree
+     * @return the node holding the next larger value, or null if there is none
      */
-    public int size() {
-        return size;
+    static <T> Node<T> successor(Node<T> node) {
+        if (node.rightChild != null) {
+            Node<T> current = node.rightChild;
+            while (current.leftChild != null) {
+                current = current.leftChild;
+            }
+            return current;
+        }
+        // Climb until we come up from a left subtree
+        Node<T> current = node;
+        while (current.parent != null && !current.isLeftChild()) {
+            current = current.parent;
+        }
+        return current.parent;
     }
 
     /**
-     * Method to check if the tree is empty (does not contain any node).
+     * Counts the values smaller than (or equal to, when inclusive) the given
+     * data, in O(log n).
      *
-     * @return true of this.size() return 0, false if this.size() > 0
+     * @param data the value to compare with
+     * @param inclusive true if a value equal to data is counted
+     * @return the number of such values
      */
-    public boolean isEmpty() {
-        return this.size() == 0;
+    int countBelow(T data, boolean inclusive) {
+        int count = 0;
+        Node<T> current = root;
+        while (current != null) {
+            int compare = compare(data, current.data);
+            if (compare < 0 || (compare == 0 && !inclusive)) {
+                current = current.leftChild;
+            } else {
+                count += subtreeSize(current.leftChild) + 1;
+                current = current.rightChild;
+            }
+        }
+        return count;
     }
 
     /**
-     * Checks whether the tree contains the given candidate.
+     * Checks whether the tree contains a value equal to the given one in the
+     * order of this tree. In a tree made by keyedByInt, the probe only needs
+     * its key to be set; get(int) does not need a probe at all.
      *
-     * @param candidate the candidate to search for
-     * @return true if a candidate with matching attributes is in the tree,
-     * false otherwise
+     * @param data the value to search for
+     * @return true if an equal value is in the tree, false otherwise
+     * @throws NullPointerException when the provided data argument is null
      */
-    public boolean contains(Candidate candidate) {
+    public boolean contains(T data) throws NullPointerException {
         // null references will not be stored within this tree
-        if (candidate == null) {
+        if (data == null) {
             throw new NullPointerException(
                     "This RedBlackTree cannot store null references.");
         }
-        return containsHelper(candidate, root);
+        TreeMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return containsHelper(data, root);
+        }
+
+        // Measured lookup: the same descent, counting its comparisons
+        TreeOperationEvent event = new TreeOperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int comparisons = 0;
+        boolean found = false;
+        Node<T> current = root;
+        while (current != null && !found) {
+            comparisons++;
+            int compare = compare(data, current.data);
+            if (compare < 0) {
+                current = current.leftChild;
+            } else if (compare > 0) {
+                current = current.rightChild;
+            } else {
+                found = true;
+            }
+        }
+        metrics.looked(event, start, comparisons, size);
+        return found;
     }
 
     /**
-     * Checks whether the tree contains a candidate with the attributes matching
-     * the given candidate.
+     * Checks whether the given subtree contains a value equal to the given
+     * one.
      *
-     * @param candidate the candidate to search for
+     * @param data the value to search for
      * @param subtree the subtree to search through
-     * @return true if a candidate with matching attributes is in the subtree,
-     * false otherwise
+     * @return true if an equal value is in the subtree, false otherwise
      */
-    private boolean containsHelper(Candidate candidate, Node<T> subtree) {
+    private boolean containsHelper(T data, Node<T> subtree) {
         if (subtree == null) {
-            // We reached a null child, so the candidate is not in this subtree
+            // We reached a null child, so the value is not in this subtree
             return false;
         } else {
-            // Compare the candidate with the data in the current node using compareTo
-            int compare = candidate.compareTo((Candidate) subtree.data);
+            // Compare the value with the data in the current node
+            int compare = compare(data, subtree.data);
             if (compare < 0) {
                 // Go left in the tree
-                return containsHelper(candidate, subtree.leftChild);
+                return containsHelper(data, subtree.leftChild);
             } else if (compare > 0) {
                 // Go right in the tree
-                return containsHelper(candidate, subtree.rightChild);
+                return containsHelper(data, subtree.rightChild);
             } else {
-                // We found a candidate with matching attributes
+                // We found an equal value
                 return true;
             }
         }
     }
 
     /**
-     * Returns an iterator over the values in in-order (sorted) order.
+     * Returns an iterator over the values in in-order (sorted) order. The
+     * iterator keeps a reference to the next node only and moves to its
+     * successor through the parent references, so it needs no stack and takes
+     * amortized O(1) time per value.
      *
      * @return iterator object that traverses the tree in in-order sequence
      */
+    @Override
     public Iterator<T> iterator() {
         // use an anonymous class here that implements the Iterator interface
         // we create a new on-off object of this class everytime the iterator
         // method is called
         return new Iterator<T>() {
-            // a stack and current reference store the progress of the traversal
-            // so that we can return one value at a time with the Iterator
-            Stack<Node<T>> stack = null;
-            Node<T> current = root;
+            // the node holding the next value of the traversal, null once done
+            Node<T> next = firstNode();
 
             /**
              * The next method is called for each value in the traversal
@@ -460,30 +1876,13 @@ public class RedBlackTree<T extends Comparable<T>> {
              */
             @Override
             public T next() {
-                // if stack == null, we need to initialize the stack and current element
-                if (stack == null) {
-                    stack = new Stack<>();
-                    current = root;
-                }
-                // go left as far as possible in the sub tree we are in until we hit a null
-                // leaf (current is null), pushing all the nodes we fund on our way onto the
-                // stack to process later
-                while (current != null) {
-                    stack.push(current);
-                    current = current.leftChild;
-                }
-                // as long as the stack is not empty, we haven't finished the traversal yet;
-                // take the next element from the stack and return it, then start to step down
-                // its right subtree (set its right sub tree to current)
-                if (!stack.isEmpty()) {
-                    Node<T> processedNode = stack.pop();
-                    current = processedNode.rightChild;
-                    return processedNode.data;
-                } else {
-                    // if the stack is empty, we are done with our traversal
+                if (next == null) {
+                    // we are done with our traversal
                     throw new NoSuchElementException("There are no more elements in the tree");
                 }
-
+                Node<T> processedNode = next;
+                next = successor(processedNode);
+                return processedNode.data;
             }
 
             /**
@@ -495,14 +1894,118 @@ public class RedBlackTree<T extends Comparable<T>> {
              */
             @Override
             public boolean hasNext() {
-                // return true if we either still have a current reference, or the stack
-                // is not empty yet
-                return !(current == null && (stack == null || stack.isEmpty()));
+                return next != null;
             }
 
         };
     }
 
+    /**
+     * Returns a spliterator over the values in sorted order. It splits its
+     * range of positions exactly in half, finding the middle node in O(log n)
+     * through the subtree sizes, so every part knows its exact size and
+     * parallel streams get balanced work.
+     *
+     * @return spliterator reporting ORDERED, SORTED, DISTINCT, NONNULL, SIZED
+     * and SUBSIZED
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new TreeSpliterator<>(this, firstNode(), 0, size);
+    }
+
+    /**
+     * @return a sequential stream over the values in sorted order
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return a parallel stream over the values in sorted order
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Spliterator over the values at the positions [from, to) in sorted order.
+     * The tree must not be modified while it is in use.
+     */
+    private static final class TreeSpliterator<T extends Comparable<T>> implements Spliterator<T> {
+
+        // Below this many values splitting costs more than it saves
+        private static final int MIN_SPLIT_SIZE = 64;
+
+        private final RedBlackTree<T> tree;
+        private Node<T> current; // the node at position from
+        private int from;
+        private final int to;
+
+        TreeSpliterator(RedBlackTree<T> tree, Node<T> current, int from, int to) {
+            this.tree = tree;
+            this.current = current;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException("The action cannot be null.");
+            }
+            if (from >= to) {
+                return false;
+            }
+            T data = current.data;
+            current = successor(current);
+            from++;
+            action.accept(data);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException("The action cannot be null.");
+            }
+            Node<T> node = current;
+            for (int remaining = to - from; remaining > 0; remaining--) {
+                action.accept(node.data);
+                node = successor(node);
+            }
+            current = node;
+            from = to;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (to - from < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            int middle = (from + to) >>> 1;
+            TreeSpliterator<T> prefix = new TreeSpliterator<>(tree, current, from, middle);
+            current = tree.selectNode(middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return tree.comparator;
+        }
+    }
+
     /**
      * This method performs an inorder traversal of the tree. The string
      * representations of each data value within this tree are assembled into a
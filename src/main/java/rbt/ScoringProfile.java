@@ -0,0 +1,83 @@
+package rbt;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Named, immutable weighting of the grades and ratings of a candidate. The
+ * score of a candidate is the weighted sum of its english, math, sciences and
+ * language grades and of its portfolio, cover letter and reference letter
+ * ratings.
+ *
+ * @author Naif Abdullah
+ */
+public final class ScoringProfile {
+
+    private final String name;
+    private final double[] weights;
+
+    /**
+     * Creates a profile with the given weights, one per scored attribute.
+     *
+     * @param name the unique name of the profile
+     * @throws NullPointerException when the name is null
+     * @throws IllegalArgumentException when a weight is not finite
+     */
+    public ScoringProfile(String name, double englishWeight, double mathWeight, double sciencesWeight,
+            double languageWeight, double portfolioWeight, double coverLetterWeight, double referenceLetterWeight)
+            throws NullPointerException, IllegalArgumentException {
+        if (name == null) {
+            throw new NullPointerException("The name of a ScoringProfile cannot be null.");
+        }
+        this.name = name;
+        this.weights = new double[] {englishWeight, mathWeight, sciencesWeight, languageWeight,
+            portfolioWeight, coverLetterWeight, referenceLetterWeight};
+        for (double weight : weights) {
+            if (!Double.isFinite(weight)) {
+                throw new IllegalArgumentException("The weights of a ScoringProfile must be finite: " + weight);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the english, math, sciences and language grade weights followed
+     * by the portfolio, cover letter and reference letter rating weights
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * @param candidate a candidate
+     * @return the weighted score of the candidate
+     */
+    public double score(Candidate candidate) {
+        return weights[0] * candidate.getEnglishGrade()
+                + weights[1] * candidate.getMathGrade()
+                + weights[2] * candidate.getSciencesGrade()
+                + weights[3] * candidate.getLanguageGrade()
+                + weights[4] * candidate.getPortfolioRating()
+                + weights[5] * candidate.getCoverLetterRating()
+                + weights[6] * candidate.getReferenceLetterRating();
+    }
+
+    /**
+     * @return an order putting the highest scores first, and candidates with
+     * the same score in their natural order
+     */
+    public Comparator<Candidate> ranking() {
+        return (a, b) -> {
+            int byScore = Double.compare(score(b), score(a));
+            return (byScore != 0) ? byScore : a.compareTo(b);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,225 @@
+package rbt;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Secondary index over the values of a RedBlackTree, ordered by one attribute
+ * of the values, such as the math grade or the age of a candidate. The index
+ * is its own RedBlackTree of (key, value) entries: entries are ordered by key,
+ * and values sharing the same key are ordered like in the source tree (by id,
+ * for candidates), so every entry is unique. Equality and range queries seek
+ * their first entry in O(log n) and read k matching values in O(log n + k).
+ *
+ * Indexes are created and kept in sync by an IndexManager. Null keys are
+ * allowed and are ordered before every other key. Values must not be modified
+ * in a way that changes their key while they are indexed.
+ *
+ * @param <T> the type of the indexed values
+ * @param <K> the type of the key
+ * @author Naif Abdullah
+ */
+public final class SecondaryIndex<T extends Comparable<T>, K extends Comparable<? super K>> {
+
+    // Bounds of a probe entry, which holds no value and sorts before or after
+    // every entry with the same key
+    private static final int LOW = -1;
+    private static final int EXACT = 0;
+    private static final int HIGH = 1;
+
+    /**
+     * A (key, value) pair stored in the index tree, or a probe used to seek
+     * the first or last entry of a key. The index tree orders its entries with
+     * order(valueOrder); compareTo breaks ties by the natural order of the
+     * values.
+     */
+    static final class Entry<K extends Comparable<? super K>, T extends Comparable<T>>
+            implements Comparable<Entry<K, T>> {
+
+        private static final Comparator<Comparable<Object>> KEY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+        final K key;
+        final T value; // null for probes
+        final int bound;
+
+        Entry(K key, T value, int bound) {
+            this.key = key;
+            this.value = value;
+            this.bound = bound;
+        }
+
+        /**
+         * @param valueOrder the order of the values sharing a key
+         * @return the order of the entries: by key, then probe bound, then
+         * value
+         */
+        @SuppressWarnings("unchecked")
+        static <K extends Comparable<? super K>, T extends Comparable<T>> Comparator<Entry<K, T>> order(
+                Comparator<? super T> valueOrder) {
+            return (a, b) -> {
+                int compare = KEY_ORDER.compare((Comparable<Object>) a.key, (Comparable<Object>) b.key);
+                if (compare != 0) {
+                    return compare;
+                }
+                if (a.bound != EXACT || b.bound != EXACT) {
+                    return Integer.compare(a.bound, b.bound);
+                }
+                return valueOrder.compare(a.value, b.value);
+            };
+        }
+
+        @Override
+        public int compareTo(Entry<K, T> other) {
+            return Entry.<K, T>order(Comparator.naturalOrder()).compare(this, other);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + key + ", " + value + ")";
+        }
+    }
+
+    private final String name;
+    private final Function<? super T, ? extends K> keyExtractor;
+    private final Comparator<Entry<K, T>> order;
+    private final RedBlackTree<Entry<K, T>> entries;
+
+    /**
+     * Creates an index holding the given values, built in O(n log n). Values
+     * sharing a key are ordered by valueOrder, the order of the source tree.
+     */
+    @SuppressWarnings("unchecked")
+    SecondaryIndex(String name, Function<? super T, ? extends K> keyExtractor, Comparator<? super T> valueOrder,
+            Iterable<T> values, int size) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.order = Entry.<K, T>order(valueOrder);
+        Entry<K, T>[] sorted = (Entry<K, T>[]) new Entry<?, ?>[size];
+        int count = 0;
+        for (T value : values) {
+            sorted[count++] = entryOf(value);
+        }
+        Arrays.sort(sorted, order);
+        this.entries = RedBlackTree.fromSorted(Arrays.asList(sorted).iterator(), count, order);
+    }
+
+    /**
+     * @return the name the index was registered with
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the indexed values whose key is equal to the given key, in the
+     * order of the source tree.
+     *
+     * @param key the key to look for
+     * @return lazy view of the matching values
+     */
+    public Iterable<T> equalTo(K key) {
+        return between(key, true, key, true);
+    }
+
+    /**
+     * Returns the indexed values whose key lies between the two given keys,
+     * both included, in key order.
+     *
+     * @param fromInclusive the smallest key of the range
+     * @param toInclusive the largest key of the range
+     * @return lazy view of the matching values
+     * @throws IllegalArgumentException when fromInclusive is larger than
+     * toInclusive
+     */
+    public Iterable<T> between(K fromInclusive, K toInclusive) throws IllegalArgumentException {
+        return between(fromInclusive, true, toInclusive, true);
+    }
+
+    /**
+     * Returns the indexed values whose key lies between the two given keys, in
+     * key order. Each bound may be included or excluded.
+     *
+     * @param from the lower bound of the keys
+     * @param fromInclusive true if values with a key equal to from match
+     * @param to the upper bound of the keys
+     * @param toInclusive true if values with a key equal to to match
+     * @return lazy view of the matching values
+     * @throws IllegalArgumentException when from is larger than to
+     */
+    public Iterable<T> between(K from, boolean fromInclusive, K to, boolean toInclusive)
+            throws IllegalArgumentException {
+        RangeView<Entry<K, T>> range = rangeOf(from, fromInclusive, to, toInclusive);
+        return () -> valuesOf(range.iterator());
+    }
+
+    /**
+     * Counts the indexed values whose key lies between the two given keys,
+     * both included, in O(log n).
+     *
+     * @param fromInclusive the smallest key of the range
+     * @param toInclusive the largest key of the range
+     * @return the number of matching values
+     * @throws IllegalArgumentException when fromInclusive is larger than
+     * toInclusive
+     */
+    public int count(K fromInclusive, K toInclusive) throws IllegalArgumentException {
+        return rangeOf(fromInclusive, true, toInclusive, true).size();
+    }
+
+    /**
+     * Get the size of the index (its number of entries).
+     *
+     * @return the number of indexed values
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    void add(T value) {
+        entries.insert(entryOf(value));
+    }
+
+    void remove(T value) {
+        entries.remove(entryOf(value));
+    }
+
+    private Entry<K, T> entryOf(T value) {
+        return new Entry<>(keyExtractor.apply(value), value, EXACT);
+    }
+
+    private RangeView<Entry<K, T>> rangeOf(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        // Probes placed just before or after every entry of their key turn the
+        // key bounds into bounds over the entries
+        Entry<K, T> low = new Entry<>(from, null, fromInclusive ? LOW : HIGH);
+        Entry<K, T> high = new Entry<>(to, null, toInclusive ? HIGH : LOW);
+        if (order.compare(low, high) > 0) {
+            if (low.key == high.key || (low.key != null && high.key != null && low.key.compareTo(high.key) == 0)) {
+                return entries.subRange(low, true, low, false); // an excluded key on both sides: empty
+            }
+            throw new IllegalArgumentException("The lower key of a range cannot be larger than its upper key.");
+        }
+        return entries.subRange(low, true, high, true);
+    }
+
+    private static <K extends Comparable<? super K>, T extends Comparable<T>> Iterator<T> valuesOf(
+            Iterator<Entry<K, T>> entryIterator) {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return entryIterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return entryIterator.next().value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + entries;
+    }
+}
@@ -0,0 +1,414 @@
+package rbt;
+
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import rbt.RedBlackTree.Node;
+
+/**
+ * Join-based union, intersection and difference of red-black trees, after
+ * Blelloch, Ferizovic and Sun, "Just Join for Parallel Ordered Sets". Every
+ * operation is built on join(left, pivot, right), which links two trees whose
+ * values are all smaller, respectively larger, than the pivot in time
+ * proportional to the difference of their black heights. Combining two trees
+ * of sizes m and n (m &lt;= n) costs O(m log(n / m + 1)) work, and the two
+ * recursive calls of every level run in parallel on the common fork/join pool.
+ *
+ * The operations work on the nodes of their inputs directly: both inputs are
+ * consumed and their nodes are reused in the result. Subtrees are passed
+ * around detached (their root has no parent) and always with a black root, so
+ * that any two of them can be joined.
+ *
+ * @author Naif Abdullah
+ */
+final class SetOperations {
+
+    // The work of a call grows with its smaller input: below this many values
+    // on the smaller side, forking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private SetOperations() {
+    }
+
+    /**
+     * A detached subtree with a black (or null) root, and its black height:
+     * the number of black nodes on any path from its root down to a leaf.
+     */
+    private static final class Subtree<T> {
+
+        final Node<T> root;
+        final int blackHeight;
+
+        Subtree(Node<T> root, int blackHeight) {
+            this.root = root;
+            this.blackHeight = blackHeight;
+        }
+    }
+
+    /**
+     * The result of splitting a subtree at a value: the values smaller than
+     * it, the node holding it (null if there is none), and the larger values.
+     */
+    private static final class Split<T> {
+
+        final Subtree<T> left;
+        final Node<T> match;
+        final Subtree<T> right;
+
+        Split(Subtree<T> left, Node<T> match, Subtree<T> right) {
+            this.left = left;
+            this.match = match;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Computes the union of two trees.
+     *
+     * @param a the root of the first tree, whose values win over equal values
+     * of the second tree
+     * @param b the root of the second tree
+     * @param order the order of both trees
+     * @param dropped when not null, receives the nodes of b that were left out
+     * because a holds an equal value
+     * @return the root of the union
+     */
+    static <T> Node<T> union(Node<T> a, Node<T> b, Comparator<? super T> order, Queue<Node<T>> dropped) {
+        return union(subtree(a), subtree(b), order, dropped).root;
+    }
+
+    /**
+     * Computes the intersection of two trees.
+     *
+     * @param a the root of the first tree, whose nodes make up the result
+     * @param b the root of the second tree
+     * @param order the order of both trees
+     * @param dropped when not null, receives the nodes of a that were left out
+     * @return the root of the intersection
+     */
+    static <T> Node<T> intersect(Node<T> a, Node<T> b, Comparator<? super T> order, Queue<Node<T>> dropped) {
+        return intersect(subtree(a), subtree(b), order, dropped).root;
+    }
+
+    /**
+     * Computes the values of the first tree that are not in the second one.
+     *
+     * @param a the root of the first tree, whose nodes make up the result
+     * @param b the root of the second tree
+     * @param order the order of both trees
+     * @param dropped when not null, receives the nodes of a that were left out
+     * @return the root of the difference
+     */
+    static <T> Node<T> difference(Node<T> a, Node<T> b, Comparator<? super T> order, Queue<Node<T>> dropped) {
+        return difference(subtree(a), subtree(b), order, dropped).root;
+    }
+
+    private static <T> Subtree<T> union(Subtree<T> a, Subtree<T> b, Comparator<? super T> order,
+            Queue<Node<T>> dropped) {
+        if (a.root == null) {
+            return b;
+        }
+        if (b.root == null) {
+            return a;
+        }
+        int work = Math.min(a.root.subtreeSize, b.root.subtreeSize);
+        Node<T> pivot = a.root;
+        Subtree<T> aLeft = leftOf(a);
+        Subtree<T> aRight = rightOf(a);
+        Split<T> split = split(b, pivot.data, order);
+        if (split.match != null && dropped != null) {
+            dropped.add(split.match);
+        }
+        if (work < PARALLEL_THRESHOLD) {
+            return join(union(aLeft, split.left, order, dropped), pivot,
+                    union(aRight, split.right, order, dropped));
+        }
+        Subtree<T>[] parts = inParallel(
+                () -> union(aLeft, split.left, order, dropped),
+                () -> union(aRight, split.right, order, dropped));
+        return join(parts[0], pivot, parts[1]);
+    }
+
+    private static <T> Subtree<T> intersect(Subtree<T> a, Subtree<T> b, Comparator<? super T> order,
+            Queue<Node<T>> dropped) {
+        if (a.root == null || b.root == null) {
+            if (dropped != null) {
+                collect(a.root, dropped);
+            }
+            return empty();
+        }
+        int work = Math.min(a.root.subtreeSize, b.root.subtreeSize);
+        Node<T> pivot = a.root;
+        Subtree<T> aLeft = leftOf(a);
+        Subtree<T> aRight = rightOf(a);
+        Split<T> split = split(b, pivot.data, order);
+        Subtree<T> left;
+        Subtree<T> right;
+        if (work < PARALLEL_THRESHOLD) {
+            left = intersect(aLeft, split.left, order, dropped);
+            right = intersect(aRight, split.right, order, dropped);
+        } else {
+            Subtree<T>[] parts = inParallel(
+                    () -> intersect(aLeft, split.left, order, dropped),
+                    () -> intersect(aRight, split.right, order, dropped));
+            left = parts[0];
+            right = parts[1];
+        }
+        if (split.match != null) {
+            return join(left, pivot, right);
+        }
+        if (dropped != null) {
+            dropped.add(pivot);
+        }
+        return join2(left, right);
+    }
+
+    private static <T> Subtree<T> difference(Subtree<T> a, Subtree<T> b, Comparator<? super T> order,
+            Queue<Node<T>> dropped) {
+        if (a.root == null || b.root == null) {
+            return a;
+        }
+        int work = Math.min(a.root.subtreeSize, b.root.subtreeSize);
+        Subtree<T> bLeft = leftOf(b);
+        Subtree<T> bRight = rightOf(b);
+        Split<T> split = split(a, b.root.data, order);
+        if (split.match != null && dropped != null) {
+            dropped.add(split.match);
+        }
+        if (work < PARALLEL_THRESHOLD) {
+            return join2(difference(split.left, bLeft, order, dropped),
+                    difference(split.right, bRight, order, dropped));
+        }
+        Subtree<T>[] parts = inParallel(
+                () -> difference(split.left, bLeft, order, dropped),
+                () -> difference(split.right, bRight, order, dropped));
+        return join2(parts[0], parts[1]);
+    }
+
+    /**
+     * Splits a subtree into the values smaller than the given one, the node
+     * equal to it if any, and the larger values, in O(log n).
+     */
+    private static <T> Split<T> split(Subtree<T> tree, T data, Comparator<? super T> order) {
+        if (tree.root == null) {
+            return new Split<>(empty(), null, empty());
+        }
+        Node<T> root = tree.root;
+        Subtree<T> left = leftOf(tree);
+        Subtree<T> right = rightOf(tree);
+        int compare = order.compare(data, root.data);
+        if (compare == 0) {
+            return new Split<>(left, root, right);
+        } else if (compare < 0) {
+            Split<T> split = split(left, data, order);
+            return new Split<>(split.left, split.match, join(split.right, root, right));
+        } else {
+            Split<T> split = split(right, data, order);
+            return new Split<>(join(left, root, split.left), split.match, split.right);
+        }
+    }
+
+    /**
+     * Links two subtrees, where every value of left is smaller than the pivot
+     * and every value of right is larger, in O(|difference of black heights|).
+     */
+    private static <T> Subtree<T> join(Subtree<T> left, Node<T> pivot, Subtree<T> right) {
+        if (left.blackHeight > right.blackHeight) {
+            return joinIntoSpine(left, pivot, right, true);
+        }
+        if (left.blackHeight < right.blackHeight) {
+            return joinIntoSpine(right, pivot, left, false);
+        }
+        link(pivot, left.root, right.root);
+        pivot.parent = null;
+        pivot.isBlack = true;
+        return new Subtree<>(pivot, left.blackHeight + 1);
+    }
+
+    /**
+     * Joins a lower subtree into the spine of a higher one: the pivot becomes
+     * a red node in place of the first black node of the spine that has the
+     * same black height as the lower subtree, and any red-red violation is
+     * then repaired bottom-up as after an insert.
+     *
+     * @param higher the subtree with the larger black height
+     * @param pivot the node linking the two subtrees
+     * @param lower the subtree with the smaller black height
+     * @param alongRight true to descend the right spine of higher (higher
+     * holds the smaller values), false to descend the left spine
+     */
+    private static <T> Subtree<T> joinIntoSpine(Subtree<T> higher, Node<T> pivot, Subtree<T> lower, boolean alongRight) {
+        Node<T> parent = null;
+        Node<T> current = higher.root;
+        int blackHeight = higher.blackHeight;
+        while (!(RedBlackTree.isBlack(current) && blackHeight == lower.blackHeight)) {
+            blackHeight -= current.isBlack ? 1 : 0;
+            parent = current;
+            current = alongRight ? current.rightChild : current.leftChild;
+        }
+
+        // parent is never null: the root of higher is black and too high
+        if (alongRight) {
+            link(pivot, current, lower.root);
+            parent.rightChild = pivot;
+        } else {
+            link(pivot, lower.root, current);
+            parent.leftChild = pivot;
+        }
+        pivot.parent = parent;
+        pivot.isBlack = false;
+        int added = RedBlackTree.subtreeSize(lower.root) + 1;
+        for (Node<T> ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.subtreeSize += added;
+        }
+
+        boolean grew = repairRedRed(pivot);
+        // A rotation at the top moves the old root below its new parent
+        Node<T> root = (higher.root.parent != null) ? higher.root.parent : higher.root;
+        return new Subtree<>(root, higher.blackHeight + (grew ? 1 : 0));
+    }
+
+    /**
+     * Repairs a red node with a red parent the way an insert does: recoloring
+     * moves the violation two levels up, and a rotation ends it.
+     *
+     * @return true if the violation reached the root, whose recoloring to
+     * black added one to the black height of the whole tree
+     */
+    private static <T> boolean repairRedRed(Node<T> node) {
+        while (node.parent != null && !node.parent.isBlack) {
+            Node<T> parent = node.parent;
+            Node<T> grandparent = parent.parent; // a red node is never the root here
+            Node<T> uncle = (grandparent.leftChild == parent) ? grandparent.rightChild : grandparent.leftChild;
+            if (!RedBlackTree.isBlack(uncle)) {
+                parent.isBlack = true;
+                uncle.isBlack = true;
+                grandparent.isBlack = false;
+                node = grandparent;
+                continue;
+            }
+            if (node.isLeftChild() != parent.isLeftChild()) { // inner grandchild: rotate it outwards first
+                RedBlackTree.rotateNodes(node, parent);
+                parent = node;
+            }
+            RedBlackTree.rotateNodes(parent, grandparent);
+            parent.isBlack = true;
+            grandparent.isBlack = false;
+            return false;
+        }
+        if (node.parent == null && !node.isBlack) {
+            node.isBlack = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Links the last value of left with right, for subtrees where every value
+     * of left is smaller than every value of right.
+     */
+    private static <T> Subtree<T> join2(Subtree<T> left, Subtree<T> right) {
+        if (left.root == null) {
+            return right;
+        }
+        if (right.root == null) {
+            return left;
+        }
+        Split<T> split = splitLast(left);
+        return join(split.left, split.match, right);
+    }
+
+    /**
+     * Splits off the node holding the largest value of a non-empty subtree.
+     */
+    private static <T> Split<T> splitLast(Subtree<T> tree) {
+        Node<T> root = tree.root;
+        Subtree<T> left = leftOf(tree);
+        if (root.rightChild == null) {
+            return new Split<>(left, root, empty());
+        }
+        Split<T> split = splitLast(rightOf(tree));
+        return new Split<>(join(left, root, split.left), split.match, empty());
+    }
+
+    /**
+     * Runs two independent parts of an operation at the same time, forking
+     * the first one onto the common pool.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Subtree<T>[] inParallel(Supplier<Subtree<T>> first, Supplier<Subtree<T>> second) {
+        RecursiveTask<Subtree<T>> forked = new RecursiveTask<Subtree<T>>() {
+            @Override
+            protected Subtree<T> compute() {
+                return first.get();
+            }
+        };
+        forked.fork();
+        Subtree<T>[] parts = (Subtree<T>[]) new Subtree<?>[2];
+        parts[1] = second.get();
+        parts[0] = forked.join();
+        return parts;
+    }
+
+    private static <T> void link(Node<T> node, Node<T> left, Node<T> right) {
+        node.leftChild = left;
+        node.rightChild = right;
+        if (left != null) {
+            left.parent = node;
+        }
+        if (right != null) {
+            right.parent = node;
+        }
+        node.subtreeSize = RedBlackTree.subtreeSize(left) + RedBlackTree.subtreeSize(right) + 1;
+    }
+
+    /**
+     * Wraps the root of a whole tree, computing its black height from its
+     * leftmost path.
+     */
+    private static <T> Subtree<T> subtree(Node<T> root) {
+        int blackHeight = 0;
+        for (Node<T> current = root; current != null; current = current.leftChild) {
+            blackHeight += current.isBlack ? 1 : 0;
+        }
+        return new Subtree<>(root, blackHeight);
+    }
+
+    private static <T> Subtree<T> leftOf(Subtree<T> tree) {
+        return detach(tree.root.leftChild, tree.blackHeight - (tree.root.isBlack ? 1 : 0));
+    }
+
+    private static <T> Subtree<T> rightOf(Subtree<T> tree) {
+        return detach(tree.root.rightChild, tree.blackHeight - (tree.root.isBlack ? 1 : 0));
+    }
+
+    /**
+     * Detaches a child from its parent, turning a red root black so that the
+     * subtree can take part in any join.
+     */
+    private static <T> Subtree<T> detach(Node<T> child, int blackHeight) {
+        if (child == null) {
+            return empty();
+        }
+        child.parent = null;
+        if (!child.isBlack) {
+            child.isBlack = true;
+            blackHeight++;
+        }
+        return new Subtree<>(child, blackHeight);
+    }
+
+    private static <T> Subtree<T> empty() {
+        return new Subtree<>(null, 0);
+    }
+
+    private static <T> void collect(Node<T> node, Queue<Node<T>> nodes) {
+        if (node != null) {
+            nodes.add(node);
+            collect(node.leftChild, nodes);
+            collect(node.rightChild, nodes);
+        }
+    }
+}
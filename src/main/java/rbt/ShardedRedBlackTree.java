@@ -0,0 +1,515 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Thread-safe tree of values partitioned by an int key, such as the id of a
+ * candidate, into independent RedBlackTree shards. Each shard holds one range
+ * of keys and has its own lock, so writers working on different shards never
+ * wait for each other, where a single ConcurrentRedBlackTree admits one
+ * writer at a time.
+ *
+ * Every shard is a RedBlackTree made by keyedByInt, so values are ordered by
+ * their key and two values with the same key are duplicates, as candidates
+ * with the same id. Point operations (insert, remove, contains, get) find
+ * their shard with a binary search of the shard bounds and lock that shard
+ * only. Ordered iteration, ranges and size visit the shards in key order;
+ * since the shards cover consecutive key ranges, concatenating them gives the
+ * global order.
+ *
+ * Shards that grow too large are split at their median key, and neighbours
+ * that shrink too much are merged, by rebalance() or explicitly by split and
+ * merge. Both rebuild the affected shards in linear time while holding their
+ * locks, publish the new shard table, and retire the old shards: an operation
+ * that locked a retired shard routes itself again. Note that range
+ * partitioning sends ascending keys to the last shard, so ingesting ids in
+ * increasing order does not spread over the shards.
+ *
+ * @param <T> the type of the values stored in the tree
+ * @author Naif Abdullah
+ */
+public class ShardedRedBlackTree<T extends Comparable<T>> implements Iterable<T> {
+
+    private static final class Shard<T extends Comparable<T>> {
+
+        final RedBlackTree<T> tree;
+        final int lowerKey; // smallest key of the shard, Integer.MIN_VALUE for the first one
+        final StampedLock lock = new StampedLock();
+        boolean retired = false; // only accessed while holding the lock
+
+        Shard(RedBlackTree<T> tree, int lowerKey) {
+            this.tree = tree;
+            this.lowerKey = lowerKey;
+        }
+    }
+
+    private final ToIntFunction<? super T> shardKey;
+    private final int targetShardSize;
+    private final Object rebalancing = new Object(); // serializes the changes of the shard table
+    private volatile Shard<T>[] shards;
+
+    /**
+     * Creates an empty tree with one shard per key range: the first shard
+     * holds the keys below splitKeys[0], shard i the keys from splitKeys[i - 1]
+     * to splitKeys[i] excluded, and the last one the keys from the last split
+     * key up.
+     *
+     * @param shardKey returns the key of a value
+     * @param targetShardSize the shard size that rebalance() aims for
+     * @param splitKeys the strictly increasing keys separating the shards
+     * @throws NullPointerException when shardKey or splitKeys is null
+     * @throws IllegalArgumentException when targetShardSize is not positive or
+     * the split keys are not strictly increasing
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedRedBlackTree(ToIntFunction<? super T> shardKey, int targetShardSize, int... splitKeys)
+            throws NullPointerException, IllegalArgumentException {
+        if (shardKey == null || splitKeys == null) {
+            throw new NullPointerException("The shard key and split keys of a ShardedRedBlackTree cannot be null.");
+        }
+        if (targetShardSize <= 0) {
+            throw new IllegalArgumentException("The target shard size must be positive: " + targetShardSize);
+        }
+        for (int i = 1; i < splitKeys.length; i++) {
+            if (splitKeys[i - 1] >= splitKeys[i]) {
+                throw new IllegalArgumentException("The split keys must be strictly increasing: "
+                        + Arrays.toString(splitKeys));
+            }
+        }
+        this.shardKey = shardKey;
+        this.targetShardSize = targetShardSize;
+        Shard<T>[] initial = (Shard<T>[]) new Shard<?>[splitKeys.length + 1];
+        initial[0] = newShard(new Object[0], 0, Integer.MIN_VALUE);
+        for (int i = 0; i < splitKeys.length; i++) {
+            initial[i + 1] = newShard(new Object[0], 0, splitKeys[i]);
+        }
+        this.shards = initial;
+    }
+
+    /**
+     * Creates an empty tree of candidates sharded by id, with shards of equal
+     * id ranges from 0 to maxId.
+     *
+     * @param shardCount the initial number of shards
+     * @param maxId the largest expected id
+     * @return the new tree
+     * @throws IllegalArgumentException when shardCount or maxId is not
+     * positive
+     */
+    public static ShardedRedBlackTree<Candidate> ofCandidates(int shardCount, int maxId)
+            throws IllegalArgumentException {
+        if (shardCount <= 0 || maxId <= 0) {
+            throw new IllegalArgumentException("The number of shards and the largest id must be positive.");
+        }
+        int[] splitKeys = new int[shardCount - 1];
+        for (int i = 1; i < shardCount; i++) {
+            splitKeys[i - 1] = (int) ((long) maxId * i / shardCount);
+        }
+        int targetShardSize = Math.max(1, maxId / shardCount);
+        return new ShardedRedBlackTree<>(Candidate::getId, targetShardSize, distinct(splitKeys));
+    }
+
+    /**
+     * Inserts a value into its shard, while holding the lock of that shard.
+     *
+     * @param data to be added into this tree
+     * @return true if the value was inserted
+     * @throws NullPointerException when the provided data argument is null
+     * @throws IllegalArgumentException when the tree already contains a value
+     * equal to data
+     * @see RedBlackTree#insert(Comparable)
+     */
+    public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+        int key = keyOf(data);
+        while (true) {
+            Shard<T> shard = route(key);
+            long stamp = shard.lock.writeLock();
+            try {
+                if (!shard.retired) {
+                    return shard.tree.insert(data);
+                }
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Removes a value from its shard, while holding the lock of that shard.
+     *
+     * @param data the value to remove from this tree
+     * @return true if a matching value was found and removed, false if not
+     * @throws NullPointerException when the provided data argument is null
+     * @see RedBlackTree#remove(Comparable)
+     */
+    public boolean remove(T data) throws NullPointerException {
+        int key = keyOf(data);
+        while (true) {
+            Shard<T> shard = route(key);
+            long stamp = shard.lock.writeLock();
+            try {
+                if (!shard.retired) {
+                    return shard.tree.remove(data);
+                }
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the tree contains a value equal to the given one.
+     *
+     * @param data the value to search for
+     * @return true if an equal value is in the tree, false otherwise
+     * @throws NullPointerException when the provided data argument is null
+     */
+    public boolean contains(T data) throws NullPointerException {
+        int key = keyOf(data);
+        while (true) {
+            Shard<T> shard = route(key);
+            long stamp = shard.lock.readLock();
+            try {
+                if (!shard.retired) {
+                    return shard.tree.contains(data);
+                }
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Finds the value with the given key, when keys are unique.
+     *
+     * @param key the key to look for
+     * @return the value with that key, or null if there is none
+     */
+    public T get(int key) {
+        while (true) {
+            Shard<T> shard = route(key);
+            long stamp = shard.lock.readLock();
+            try {
+                if (!shard.retired) {
+                    return shard.tree.get(key);
+                }
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Get the size of the tree, the sum of the sizes of its shards. The sum
+     * is exact when no write runs at the same time.
+     *
+     * @return the number of values in the tree
+     */
+    public int size() {
+        int size = 0;
+        for (int shardSize : shardSizes()) {
+            size += shardSize;
+        }
+        return size;
+    }
+
+    /**
+     * Method to check if the tree is empty (does not contain any node).
+     *
+     * @return true of this.size() return 0, false if this.size() > 0
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return the number of values of every shard, in key order
+     */
+    public int[] shardSizes() {
+        while (true) {
+            Shard<T>[] table = shards;
+            int[] sizes = new int[table.length];
+            boolean retired = false;
+            for (int i = 0; i < table.length && !retired; i++) {
+                long stamp = table[i].lock.readLock();
+                try {
+                    retired = table[i].retired;
+                    sizes[i] = table[i].tree.size();
+                } finally {
+                    table[i].lock.unlockRead(stamp);
+                }
+            }
+            if (!retired) {
+                return sizes;
+            }
+        }
+    }
+
+    /**
+     * Returns the values from fromInclusive to toExclusive, read shard by
+     * shard, each under its read lock.
+     *
+     * @param fromInclusive the lower bound of the range
+     * @param toExclusive the value right after the range
+     * @return the values within the range in key order
+     * @throws NullPointerException when a bound is null
+     * @throws IllegalArgumentException when fromInclusive has a larger key
+     * than toExclusive
+     */
+    public List<T> range(T fromInclusive, T toExclusive) throws NullPointerException, IllegalArgumentException {
+        int fromKey = keyOf(fromInclusive);
+        int toKey = keyOf(toExclusive);
+        if (fromKey > toKey) {
+            throw new IllegalArgumentException("The lower bound of a range cannot be above its upper bound.");
+        }
+        return collect(fromKey, toKey, shard -> shard.tree.subRange(fromInclusive, toExclusive));
+    }
+
+    /**
+     * Splits every shard larger than twice the target shard size at its
+     * median key, until no shard is, and merges every pair of neighbouring
+     * shards holding less than half the target size together.
+     *
+     * @return the number of shards split or merged
+     */
+    public int rebalance() {
+        int changes = 0;
+        synchronized (rebalancing) {
+            // A shard many times too large is split again until its halves fit
+            boolean splitting = true;
+            while (splitting) {
+                splitting = false;
+                int[] sizes = shardSizes();
+                for (int i = sizes.length - 1; i >= 0; i--) {
+                    if (sizes[i] > 2 * targetShardSize && split(i)) {
+                        changes++;
+                        splitting = true;
+                    }
+                }
+            }
+            int[] sizes = shardSizes();
+            for (int i = sizes.length - 2; i >= 0; i--) {
+                if (sizes[i] + sizes[i + 1] < targetShardSize / 2 && merge(i)) {
+                    sizes[i] += sizes[i + 1];
+                    changes++;
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Splits a shard in two at the key of its median value. Writes to other
+     * shards go on during the split.
+     *
+     * @param index the index of the shard, in key order
+     * @return true if the shard was split, false if it holds less than two
+     * values
+     * @throws IndexOutOfBoundsException when there is no shard at that index
+     */
+    @SuppressWarnings("unchecked")
+    public boolean split(int index) throws IndexOutOfBoundsException {
+        synchronized (rebalancing) {
+            Shard<T>[] table = shards;
+            Shard<T> shard = table[index];
+            long stamp = shard.lock.writeLock();
+            try {
+                RedBlackTree<T> tree = shard.tree;
+                if (tree.size() < 2) {
+                    return false;
+                }
+                // Keys are unique, so the median key is above the smallest one
+                Object[] values = valuesOf(Collections.singletonList(tree));
+                int middle = values.length / 2;
+                Object[] upper = Arrays.copyOfRange(values, middle, values.length);
+                Shard<T>[] updated = (Shard<T>[]) new Shard<?>[table.length + 1];
+                System.arraycopy(table, 0, updated, 0, index);
+                updated[index] = newShard(values, middle, shard.lowerKey);
+                updated[index + 1] = newShard(upper, upper.length, keyOfValue(upper[0]));
+                System.arraycopy(table, index + 1, updated, index + 2, table.length - index - 1);
+                shards = updated;
+                shard.retired = true;
+                return true;
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Merges a shard with the next one. Writes to other shards go on during
+     * the merge.
+     *
+     * @param index the index of the first shard, in key order
+     * @return true if the shards were merged, false if there is no next shard
+     * @throws IndexOutOfBoundsException when there is no shard at that index
+     */
+    @SuppressWarnings("unchecked")
+    public boolean merge(int index) throws IndexOutOfBoundsException {
+        synchronized (rebalancing) {
+            Shard<T>[] table = shards;
+            Shard<T> first = table[index];
+            if (index + 1 == table.length) {
+                return false;
+            }
+            Shard<T> second = table[index + 1];
+            long firstStamp = first.lock.writeLock();
+            long secondStamp = second.lock.writeLock();
+            try {
+                Object[] values = valuesOf(Arrays.asList(first.tree, second.tree));
+                Shard<T>[] updated = (Shard<T>[]) new Shard<?>[table.length - 1];
+                System.arraycopy(table, 0, updated, 0, index);
+                updated[index] = newShard(values, values.length, first.lowerKey);
+                System.arraycopy(table, index + 2, updated, index + 1, table.length - index - 2);
+                shards = updated;
+                first.retired = true;
+                second.retired = true;
+                return true;
+            } finally {
+                second.lock.unlockWrite(secondStamp);
+                first.lock.unlockWrite(firstStamp);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over an in-order copy of the values, taken shard by
+     * shard, each under its read lock. Later writes are not reflected by the
+     * iterator, which does not support remove().
+     *
+     * @return iterator over the values present when each shard was copied
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return Collections.unmodifiableList(
+                collect(Integer.MIN_VALUE, Integer.MAX_VALUE, shard -> shard.tree)).iterator();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        Iterator<T> treeNodeIterator = this.iterator();
+        while (treeNodeIterator.hasNext()) {
+            sb.append(treeNodeIterator.next());
+            if (treeNodeIterator.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append(" ]");
+        return sb.toString();
+    }
+
+    /**
+     * Copies the values of the shards holding keys from fromKey to toKey, in
+     * key order, starting over when one of them is retired on the way.
+     */
+    private List<T> collect(int fromKey, int toKey, Function<Shard<T>, Iterable<T>> values) {
+        while (true) {
+            Shard<T>[] table = shards;
+            List<T> result = new ArrayList<>();
+            boolean retired = false;
+            int first = indexOf(table, fromKey);
+            for (int i = first; i < table.length && !retired && (i == first || table[i].lowerKey <= toKey); i++) {
+                long stamp = table[i].lock.readLock();
+                try {
+                    retired = table[i].retired;
+                    if (!retired) {
+                        for (T data : values.apply(table[i])) {
+                            result.add(data);
+                        }
+                    }
+                } finally {
+                    table[i].lock.unlockRead(stamp);
+                }
+            }
+            if (!retired) {
+                return result;
+            }
+        }
+    }
+
+    private Shard<T> route(int key) {
+        Shard<T>[] table = shards;
+        return table[indexOf(table, key)];
+    }
+
+    /**
+     * @return the index of the shard holding the key: the last shard whose
+     * lower key is not above it
+     */
+    private static int indexOf(Shard<?>[] table, int key) {
+        int low = 0;
+        int high = table.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (table[middle].lowerKey <= key) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return a shard holding the first count values of the array, which are
+     * in key order, built in linear time
+     */
+    private Shard<T> newShard(Object[] sorted, int count, int lowerKey) {
+        RedBlackTree<T> tree = RedBlackTree.<T>keyedByInt(shardKey);
+        tree.rebuildFrom(sorted, count);
+        return new Shard<>(tree, lowerKey);
+    }
+
+    private int keyOf(T data) throws NullPointerException {
+        if (data == null) {
+            throw new NullPointerException("This RedBlackTree cannot store null references.");
+        }
+        return shardKey.applyAsInt(data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int keyOfValue(Object data) {
+        return shardKey.applyAsInt((T) data);
+    }
+
+    private static <T extends Comparable<T>> Object[] valuesOf(List<RedBlackTree<T>> trees) {
+        int size = 0;
+        for (RedBlackTree<T> tree : trees) {
+            size += tree.size();
+        }
+        Object[] values = new Object[size];
+        int count = 0;
+        for (RedBlackTree<T> tree : trees) {
+            for (T data : tree) {
+                values[count++] = data;
+            }
+        }
+        return values;
+    }
+
+    private static int[] distinct(int[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+}
@@ -0,0 +1,36 @@
+package rbt;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the values of a RedBlackTree to and from the binary records of a
+ * snapshot file. Each record must be readable on its own: read() consumes
+ * exactly the bytes that write() produced for the same value.
+ *
+ * @param <T> the type of the values stored in the tree
+ * @author Naif Abdullah
+ */
+public interface SnapshotCodec<T> {
+
+    /**
+     * Writes the binary record of a value.
+     *
+     * @param value the value to write, never null
+     * @param out the output to write the record to
+     * @throws IOException when the output cannot be written
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads the binary record of a value, starting at the buffer's position
+     * and leaving the position right after the record.
+     *
+     * @param in the buffer to read the record from
+     * @return the value held by the record
+     * @throws java.nio.BufferUnderflowException when the buffer ends in the
+     * middle of the record
+     */
+    T read(ByteBuffer in);
+}
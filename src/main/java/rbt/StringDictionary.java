@@ -0,0 +1,67 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary assigning a dense int code to every distinct string it is given,
+ * so that repeated values such as nationalities and cities are stored once and
+ * referred to by their code everywhere else.
+ *
+ * @author Naif Abdullah
+ */
+final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Returns the code of the given string, assigning the next free code the
+     * first time the string is seen.
+     *
+     * @param string the string to encode
+     * @return the code of the string
+     * @throws NullPointerException when the string is null
+     */
+    int encode(String string) throws NullPointerException {
+        if (string == null) {
+            throw new NullPointerException("The dictionary cannot store null references.");
+        }
+        Integer code = codes.get(string);
+        if (code == null) {
+            code = strings.size();
+            codes.put(string, code);
+            strings.add(string);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the single shared instance of the given string, adding it to
+     * the dictionary if needed.
+     *
+     * @param string the string to look up
+     * @return the dictionary's instance of an equal string
+     * @throws NullPointerException when the string is null
+     */
+    String intern(String string) throws NullPointerException {
+        return decode(encode(string));
+    }
+
+    /**
+     * @param code a code returned by encode
+     * @return the string with that code
+     */
+    String decode(int code) {
+        return strings.get(code);
+    }
+
+    /**
+     * @return the number of distinct strings in the dictionary
+     */
+    int size() {
+        return strings.size();
+    }
+}
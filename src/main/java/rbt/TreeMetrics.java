@@ -0,0 +1,290 @@
+package rbt;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing how hard a RedBlackTree works: inserts, removals and
+ * lookups, the rotations and recolorings done to rebalance, the number of
+ * fixup steps per insert, the comparisons per lookup, and latency histograms
+ * of inserts and lookups. Metrics are opt-in, see
+ * RedBlackTree.enableMetrics(); a tree without metrics only pays for one null
+ * check per operation.
+ *
+ * Counters can be read from any thread while the tree is in use. Every
+ * instrumented operation also emits a TreeOperationEvent ("rbt.TreeOperation")
+ * to Java Flight Recorder, so the tree's work can be lined up with GC pauses
+ * in a recording.
+ *
+ * @author Naif Abdullah
+ */
+public final class TreeMetrics {
+
+    /**
+     * Histogram of durations in power of two buckets: bucket b counts the
+     * durations d with 2^(b-1) <= d < 2^b nanoseconds (bucket 0 counts d = 0).
+     */
+    public static final class LatencyHistogram {
+
+        private static final int BUCKETS = 64;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        LatencyHistogram() {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                buckets[bucket] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            long clamped = Math.max(0, nanos);
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(clamped))].increment();
+            count.increment();
+            totalNanos.add(clamped);
+        }
+
+        /**
+         * @return the number of recorded durations
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the mean duration in nanoseconds, or 0 when empty
+         */
+        public double getMeanNanos() {
+            long recorded = count.sum();
+            return (recorded == 0) ? 0 : (double) totalNanos.sum() / recorded;
+        }
+
+        /**
+         * Returns an upper bound of the given percentile: the end of the
+         * bucket holding it, which is at most twice the actual duration.
+         *
+         * @param p the percentile, between 0 and 100
+         * @return the upper bound in nanoseconds, or 0 when empty
+         * @throws IllegalArgumentException when p is not between 0 and 100
+         */
+        public long getPercentileNanos(double p) throws IllegalArgumentException {
+            if (!(p >= 0 && p <= 100)) {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100: " + p);
+            }
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                counts[bucket] = buckets[bucket].sum();
+                total += counts[bucket];
+            }
+            long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return (bucket == 0) ? 0 : (bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1);
+                }
+            }
+            return 0;
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            totalNanos.reset();
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + getCount() + ", mean=" + Math.round(getMeanNanos()) + "ns"
+                    + ", p50<=" + getPercentileNanos(50) + "ns, p99<=" + getPercentileNanos(99) + "ns}";
+        }
+    }
+
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupComparisons = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder recolors = new LongAdder();
+    private final LongAdder fixupSteps = new LongAdder();
+    private volatile int maxFixupSteps;
+    private final LatencyHistogram insertLatency = new LatencyHistogram();
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+
+    // Work of the operation in progress, reported to Flight Recorder when it
+    // ends; only touched by the thread modifying the tree
+    private int operationRotations;
+    private int operationRecolors;
+
+    TreeMetrics() {
+    }
+
+    void rotated() {
+        rotations.increment();
+        operationRotations++;
+    }
+
+    void recolored(int nodes) {
+        recolors.add(nodes);
+        operationRecolors += nodes;
+    }
+
+    /**
+     * Records a finished insert.
+     *
+     * @param event the event begun with the insert
+     * @param startNanos System.nanoTime() when the insert began
+     * @param steps the number of fixup loop iterations
+     * @param treeSize the size of the tree after the insert
+     */
+    void inserted(TreeOperationEvent event, long startNanos, int steps, int treeSize) {
+        insertLatency.record(System.nanoTime() - startNanos);
+        inserts.increment();
+        fixupSteps.add(steps);
+        if (steps > maxFixupSteps) {
+            maxFixupSteps = steps;
+        }
+        commit(event, "insert", treeSize, 0, steps, 1);
+    }
+
+    /**
+     * Records a finished removal.
+     */
+    void removed(TreeOperationEvent event, int steps, int treeSize) {
+        removals.increment();
+        fixupSteps.add(steps);
+        commit(event, "remove", treeSize, 0, steps, 1);
+    }
+
+    /**
+     * Records a finished lookup.
+     */
+    void looked(TreeOperationEvent event, long startNanos, int comparisons, int treeSize) {
+        lookupLatency.record(System.nanoTime() - startNanos);
+        lookups.increment();
+        lookupComparisons.add(comparisons);
+        commit(event, "lookup", treeSize, comparisons, 0, 0);
+    }
+
+    /**
+     * Records a finished bulk operation, which rebuilds or joins the tree
+     * instead of running one fixup per value: its values count as inserts
+     * and removals, without latencies or fixup steps.
+     *
+     * @param event the event begun with the operation
+     * @param operation the name of the operation, such as "removeAll"
+     * @param inserted the number of values inserted
+     * @param removed the number of values removed
+     * @param treeSize the size of the tree after the operation
+     */
+    void bulk(TreeOperationEvent event, String operation, int inserted, int removed, int treeSize) {
+        inserts.add(inserted);
+        removals.add(removed);
+        commit(event, operation, treeSize, 0, 0, inserted + removed);
+    }
+
+    private void commit(TreeOperationEvent event, String operation, int treeSize, int comparisons, int steps,
+            int valuesChanged) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.treeSize = treeSize;
+            event.comparisons = comparisons;
+            event.rotations = operationRotations;
+            event.recolors = operationRecolors;
+            event.fixupSteps = steps;
+            event.valuesChanged = valuesChanged;
+            event.commit();
+        }
+        operationRotations = 0;
+        operationRecolors = 0;
+    }
+
+    public long getInserts() {
+        return inserts.sum();
+    }
+
+    public long getRemovals() {
+        return removals.sum();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    /**
+     * @return the number of nodes whose color was changed by the fixups
+     */
+    public long getRecolors() {
+        return recolors.sum();
+    }
+
+    /**
+     * @return the total number of insert and remove fixup loop iterations
+     */
+    public long getFixupSteps() {
+        return fixupSteps.sum();
+    }
+
+    /**
+     * @return the largest number of fixup loop iterations of a single insert
+     */
+    public int getMaxFixupSteps() {
+        return maxFixupSteps;
+    }
+
+    /**
+     * @return the mean number of comparisons per lookup, or 0 when there
+     * was no lookup
+     */
+    public double getComparisonsPerLookup() {
+        long count = lookups.sum();
+        return (count == 0) ? 0 : (double) lookupComparisons.sum() / count;
+    }
+
+    public LatencyHistogram getInsertLatency() {
+        return insertLatency;
+    }
+
+    public LatencyHistogram getLookupLatency() {
+        return lookupLatency;
+    }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public void reset() {
+        inserts.reset();
+        removals.reset();
+        lookups.reset();
+        lookupComparisons.reset();
+        rotations.reset();
+        recolors.reset();
+        fixupSteps.reset();
+        maxFixupSteps = 0;
+        insertLatency.reset();
+        lookupLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TreeMetrics{"
+                + "inserts=" + getInserts()
+                + ", removals=" + getRemovals()
+                + ", lookups=" + getLookups()
+                + ", rotations=" + getRotations()
+                + ", recolors=" + getRecolors()
+                + ", fixupSteps=" + getFixupSteps()
+                + ", maxFixupSteps=" + getMaxFixupSteps()
+                + ", comparisonsPerLookup=" + getComparisonsPerLookup()
+                + ", insertLatency=" + insertLatency
+                + ", lookupLatency=" + lookupLatency
+                + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package rbt;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one insert, remove or lookup on a RedBlackTree
+ * with metrics enabled, or for one bulk operation (removeAll, removeIf,
+ * union, intersect, difference) as a whole. Trees without metrics never create it. Recording it
+ * next to the GC events shows whether slow tree operations line up with
+ * collections or with rebalancing work.
+ *
+ * @author Naif Abdullah
+ */
+@Name("rbt.TreeOperation")
+@Label("Red-Black Tree Operation")
+@Category("Red-Black Tree")
+@Description("An insert, remove or lookup on a RedBlackTree with metrics enabled")
+@StackTrace(false)
+final class TreeOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Tree Size")
+    int treeSize;
+
+    @Label("Comparisons")
+    int comparisons;
+
+    @Label("Rotations")
+    int rotations;
+
+    @Label("Recolors")
+    int recolors;
+
+    @Label("Fixup Steps")
+    int fixupSteps;
+
+    @Label("Values Changed")
+    @Description("The number of values inserted or removed by the operation")
+    int valuesChanged;
+}
@@ -0,0 +1,490 @@
+package rbt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, binary write-ahead log of the inserts and removes of a
+ * RedBlackTree, kept in a directory next to the latest checkpoint of the tree.
+ * open() rebuilds the tree from the checkpoint and replays the log on top of
+ * it, then keeps recording every mutation of the tree as a listener, bulk
+ * removals and set operations included. checkpoint() writes a new snapshot of
+ * the tree and truncates the log.
+ *
+ * The log starts with a magic number and a format version, followed by one
+ * record per mutation: the length of the record body, the CRC32 of the body,
+ * and the body itself, an operation byte followed by the value as written by
+ * the SnapshotCodec. A record torn by a crash fails its length or checksum
+ * check, so recovery stops at the last complete record and cuts the rest off.
+ *
+ * Replay is idempotent (an insert of a value already present or a remove of
+ * a missing value is skipped), so a crash between writing a checkpoint and
+ * truncating the log only replays mutations the checkpoint already holds.
+ *
+ * The tree must only be mutated by one thread at a time, as is the case for
+ * a tree wrapped in a ConcurrentRedBlackTree, and checkpoint() must not run
+ * concurrently with a mutation.
+ *
+ * @author Naif Abdullah
+ */
+public final class WriteAheadLog<T extends Comparable<T>> implements MutationListener<T>, Closeable {
+
+    /**
+     * When the records of the log are forced to the storage device.
+     */
+    public enum SyncPolicy {
+
+        /**
+         * Every mutation is written and forced before the tree operation
+         * returns. A crash never loses an operation that returned.
+         */
+        EVERY_WRITE,
+
+        /**
+         * Mutations are buffered and a background thread writes and forces
+         * them together every group commit interval, so that many mutations
+         * share a single fsync. A crash loses at most the mutations of the
+         * last interval; sync() waits until everything appended is durable.
+         */
+        GROUP_COMMIT,
+
+        /**
+         * Mutations are written to the operating system in large batches and
+         * only forced by sync(), checkpoint() and close(). A crash of the
+         * process loses nothing written, a crash of the machine may lose
+         * everything since the last sync.
+         */
+        OS_BUFFERED
+    }
+
+    static final String CHECKPOINT_FILE = "checkpoint.rbts";
+    static final String LOG_FILE = "wal.log";
+
+    private static final int LOG_MAGIC = 0x5242544C; // "RBTL"
+    private static final int LOG_VERSION = 1;
+    private static final int LOG_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES; // body length and CRC32
+    private static final byte INSERT = 1;
+    private static final byte REMOVE = 2;
+    private static final int BATCH_BYTES = 1 << 16; // OS_BUFFERED writes once this much is pending
+    private static final long DEFAULT_GROUP_COMMIT_MILLIS = 10;
+
+    /**
+     * Growable byte buffer exposing its contents, so records can be encoded
+     * in place and written without copying.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        final DataOutputStream out = new DataOutputStream(this);
+
+        RecordBuffer() {
+            super(BATCH_BYTES);
+        }
+
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        void putInt(int position, int value) {
+            buf[position] = (byte) (value >>> 24);
+            buf[position + 1] = (byte) (value >>> 16);
+            buf[position + 2] = (byte) (value >>> 8);
+            buf[position + 3] = (byte) value;
+        }
+
+        void checksum(CRC32 checksum, int from) {
+            checksum.update(buf, from, count - from);
+        }
+    }
+
+    private final Path directory;
+    private final SnapshotCodec<T> codec;
+    private final SyncPolicy policy;
+    private final RedBlackTree<T> tree;
+    private final FileChannel log;
+    private final long replayed;
+    private final CRC32 checksum = new CRC32();
+    private final Thread groupCommitter; // only for GROUP_COMMIT
+    private final Object channelLock = new Object(); // held while writing or forcing the log
+
+    // Guarded by this: records waiting to be written, and the spare buffer
+    // they are swapped with while the committer writes them
+    private RecordBuffer pending = new RecordBuffer();
+    private RecordBuffer writing = new RecordBuffer();
+    private long records = 0;
+    private long syncs = 0;
+    private boolean closed = false;
+    private IOException groupCommitFailure; // reported by the next mutation, sync or close
+
+    private WriteAheadLog(Path directory, SnapshotCodec<T> codec, SyncPolicy policy, long groupCommitMillis,
+            RedBlackTree<T> tree, FileChannel log, long replayed) {
+        this.directory = directory;
+        this.codec = codec;
+        this.policy = policy;
+        this.tree = tree;
+        this.log = log;
+        this.replayed = replayed;
+        if (policy == SyncPolicy.GROUP_COMMIT) {
+            groupCommitter = new Thread(() -> runGroupCommits(groupCommitMillis), "rbt-wal-group-commit");
+            groupCommitter.setDaemon(true);
+            groupCommitter.start();
+        } else {
+            groupCommitter = null;
+        }
+        tree.addMutationListener(this);
+    }
+
+    /**
+     * Opens the log kept in the given directory with the default group
+     * commit interval of 10 ms.
+     *
+     * @see #open(Path, SnapshotCodec, SyncPolicy, long)
+     */
+    public static <T extends Comparable<T>> WriteAheadLog<T> open(Path directory, SnapshotCodec<T> codec,
+            SyncPolicy policy) throws IOException, NullPointerException {
+        return open(directory, codec, policy, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+
+    /**
+     * Recovers the tree kept in the given directory and starts logging its
+     * mutations. The tree is read from the latest checkpoint, or starts empty
+     * when there is none, and every complete record of the log is replayed on
+     * top of it. A torn record at the end of the log is cut off.
+     *
+     * @param directory the directory holding the checkpoint and the log,
+     * created when missing
+     * @param codec the codec writing and reading the values
+     * @param policy when records are forced to the storage device
+     * @param groupCommitMillis the interval between two group commits, only
+     * used by GROUP_COMMIT
+     * @return the log, whose tree is available from getTree()
+     * @throws IOException when the directory, checkpoint or log cannot be
+     * read, or are not a checkpoint and a log
+     * @throws NullPointerException when the directory, codec or policy is null
+     * @throws IllegalArgumentException when the group commit interval is not
+     * positive
+     */
+    public static <T extends Comparable<T>> WriteAheadLog<T> open(Path directory, SnapshotCodec<T> codec,
+            SyncPolicy policy, long groupCommitMillis)
+            throws IOException, NullPointerException, IllegalArgumentException {
+        if (directory == null || codec == null || policy == null) {
+            throw new NullPointerException("The log directory, codec and sync policy cannot be null.");
+        }
+        if (groupCommitMillis <= 0) {
+            throw new IllegalArgumentException("The group commit interval must be positive: " + groupCommitMillis);
+        }
+        Files.createDirectories(directory);
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        RedBlackTree<T> tree = Files.exists(checkpoint)
+                ? RedBlackTree.openSnapshot(checkpoint, codec)
+                : new RedBlackTree<>();
+
+        FileChannel log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long replayed = replay(log, directory.resolve(LOG_FILE), codec, tree);
+            return new WriteAheadLog<>(directory, codec, policy, groupCommitMillis, tree, log, replayed);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the complete records of the log to the tree, cuts off a torn
+     * last record and leaves the channel positioned at the end of the log.
+     *
+     * @return the number of records replayed
+     */
+    private static <T extends Comparable<T>> long replay(FileChannel log, Path path, SnapshotCodec<T> codec,
+            RedBlackTree<T> tree) throws IOException {
+        long fileSize = log.size();
+        if (fileSize < LOG_HEADER_BYTES) {
+            // A new log, or one torn before its header was complete
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+            header.putInt(LOG_MAGIC).putInt(LOG_VERSION).flip();
+            log.truncate(0);
+            while (header.hasRemaining()) {
+                log.write(header, header.position());
+            }
+            log.force(true);
+            log.position(LOG_HEADER_BYTES);
+            return 0;
+        }
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException(path + " is larger than a single mapping can hold");
+        }
+        ByteBuffer file = log.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        if (file.getInt() != LOG_MAGIC) {
+            throw new IOException(path + " is not a RedBlackTree write-ahead log");
+        }
+        int version = file.getInt();
+        if (version != LOG_VERSION) {
+            throw new IOException(path + " has unsupported log version " + version);
+        }
+
+        CRC32 checksum = new CRC32();
+        long replayed = 0;
+        while (file.remaining() >= RECORD_HEADER_BYTES) {
+            int start = file.position();
+            int length = file.getInt();
+            int expectedChecksum = file.getInt();
+            if (length < 1 || length > file.remaining()) {
+                file.position(start);
+                break;
+            }
+            ByteBuffer body = file.slice();
+            body.limit(length);
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if ((int) checksum.getValue() != expectedChecksum) {
+                file.position(start);
+                break;
+            }
+            byte operation = body.get();
+            T value;
+            try {
+                value = codec.read(body);
+            } catch (RuntimeException e) {
+                throw new IOException(path + " holds an invalid record at offset " + start, e);
+            }
+            if (operation == INSERT) {
+                if (!tree.contains(value)) {
+                    tree.insert(value);
+                }
+            } else if (operation == REMOVE) {
+                tree.remove(value);
+            } else {
+                throw new IOException(path + " holds an unknown operation at offset " + start);
+            }
+            file.position(start + RECORD_HEADER_BYTES + length);
+            replayed++;
+        }
+
+        if (file.position() < fileSize) {
+            log.truncate(file.position()); // the torn tail of the last run
+            log.force(true);
+        }
+        log.position(file.position());
+        return replayed;
+    }
+
+    /**
+     * @return the tree whose mutations this log records
+     */
+    public RedBlackTree<T> getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the policy deciding when records are forced
+     */
+    public SyncPolicy getSyncPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of log records replayed by open()
+     */
+    public long getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * @return the number of records appended since open()
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return the number of times the log was forced to the storage device
+     * since open()
+     */
+    public synchronized long getSyncs() {
+        return syncs;
+    }
+
+    @Override
+    public void inserted(T value) {
+        append(INSERT, value);
+    }
+
+    @Override
+    public void removed(T value) {
+        append(REMOVE, value);
+    }
+
+    /**
+     * Encodes a record into the pending buffer and, depending on the policy,
+     * writes and forces it right away.
+     *
+     * @throws UncheckedIOException when the record cannot be written; the
+     * tree is already changed in memory, but the change is not durable
+     */
+    private void append(byte operation, T value) throws UncheckedIOException {
+        boolean commitNow;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("This WriteAheadLog is closed.");
+            }
+            if (groupCommitFailure != null) {
+                throw new UncheckedIOException("The last group commit failed", groupCommitFailure);
+            }
+            RecordBuffer buffer = pending;
+            int start = buffer.size();
+            try {
+                DataOutputStream out = buffer.out;
+                out.writeInt(0); // length and checksum, patched below
+                out.writeInt(0);
+                out.writeByte(operation);
+                codec.write(value, out);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // writing to memory does not fail
+            }
+            int bodyStart = start + RECORD_HEADER_BYTES;
+            checksum.reset();
+            buffer.checksum(checksum, bodyStart);
+            buffer.putInt(start, buffer.size() - bodyStart);
+            buffer.putInt(start + Integer.BYTES, (int) checksum.getValue());
+            records++;
+            commitNow = policy == SyncPolicy.EVERY_WRITE
+                    || (policy == SyncPolicy.OS_BUFFERED && buffer.size() >= BATCH_BYTES);
+        }
+        if (commitNow) {
+            try {
+                commit(policy == SyncPolicy.EVERY_WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes every pending record to the log and optionally forces it.
+     * Records appended while the write is in progress wait for the next
+     * commit.
+     */
+    private void commit(boolean force) throws IOException {
+        synchronized (channelLock) {
+            RecordBuffer batch;
+            synchronized (this) {
+                batch = pending;
+                pending = writing;
+                writing = batch;
+            }
+            ByteBuffer contents = batch.contents();
+            while (contents.hasRemaining()) {
+                log.write(contents);
+            }
+            batch.reset();
+            if (force) {
+                log.force(false);
+                synchronized (this) {
+                    syncs++;
+                }
+            }
+        }
+    }
+
+    private void runGroupCommits(long intervalMillis) {
+        while (true) {
+            synchronized (this) {
+                try {
+                    wait(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+                if (pending.size() == 0) {
+                    continue;
+                }
+            }
+            try {
+                commit(true);
+            } catch (IOException e) {
+                synchronized (this) {
+                    groupCommitFailure = e;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes and forces every record appended so far, whatever the policy.
+     *
+     * @throws IOException when the log cannot be written
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            if (groupCommitFailure != null) {
+                throw new IOException("The last group commit failed", groupCommitFailure);
+            }
+        }
+        commit(true);
+    }
+
+    /**
+     * Writes a snapshot of the tree as the new checkpoint and truncates the
+     * log. The snapshot is written to a temporary file and moved over the old
+     * checkpoint, so a crash at any point leaves a complete checkpoint whose
+     * log replays to the current tree.
+     *
+     * @throws IOException when the checkpoint or the log cannot be written
+     */
+    public void checkpoint() throws IOException {
+        sync();
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        tree.writeSnapshot(temporary, codec);
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (channelLock) {
+            log.truncate(LOG_HEADER_BYTES);
+            log.position(LOG_HEADER_BYTES);
+            log.force(true);
+        }
+    }
+
+    /**
+     * Stops recording the tree's mutations, forces every record appended so
+     * far and closes the log.
+     *
+     * @throws IOException when the last records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        tree.removeMutationListener(this);
+        try {
+            if (groupCommitter != null) {
+                groupCommitter.join();
+            }
+            commit(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the log", e);
+        } finally {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import rbt.CandidateBitmapIndex.Attribute;
+import rbt.CandidateBitmapIndex.Filter;
+
+/**
+ * This class contains JUnit tests for the CandidateBitmapIndex class, checked
+ * against a scan of the tree
+ *
+ * @author Naif Abdullah
+ */
+public class TestCandidateBitmapIndex {
+
+    @Test
+    public void testQueriesMatchTreeScan() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        for (Candidate candidate : candidates) {
+            candidateRBT.insert(candidate);
+        }
+        CandidateBitmapIndex index = new CandidateBitmapIndex(candidateRBT);
+        assertEquals(candidates.size(), index.size());
+        assertEquals(3, index.distinctValues(Attribute.GENDER)); // F, M and other
+
+        String nationality = candidates.get(0).getNationality();
+        String otherNationality = candidates.get(1).getNationality();
+        Filter screening = Filter.and(
+                Filter.equalTo(Attribute.GENDER, 'F'),
+                Filter.in(Attribute.NATIONALITY, nationality, otherNationality, "Atlantis"),
+                Filter.between(Attribute.AGE, 20, 24),
+                Filter.atLeast(Attribute.PORTFOLIO_RATING, 4));
+        assertEquals(scan(candidateRBT, screening), index.select(screening));
+        assertEquals(scan(candidateRBT, screening).size(), index.count(screening));
+
+        Random random = new Random(8);
+        for (int query = 0; query < 200; query++) {
+            Filter filter = randomFilter(random, candidates, 3);
+            assertEquals(scan(candidateRBT, filter), index.select(filter), filter.toString());
+        }
+
+        // Updates made through the tree are visible to the following queries,
+        // and freed ordinals are reused
+        candidateRBT.removeIf(candidate -> candidate.getAge() % 3 == 0);
+        assertEquals(candidateRBT.size(), index.size());
+        assertEquals(scan(candidateRBT, screening), index.select(screening));
+        Candidate newcomer = new Candidate(100000, "New Comer", "Atlantis", "Poseidonis",
+                10.5, 20.5, 'F', 22, 5, 5, 5, 5, 5, 5, 5);
+        candidateRBT.insert(newcomer);
+        assertTrue(index.select(screening).contains(newcomer));
+        for (int query = 0; query < 100; query++) {
+            Filter filter = randomFilter(random, candidates, 3);
+            assertEquals(scan(candidateRBT, filter), index.select(filter), filter.toString());
+        }
+
+        candidateRBT.removeIf(candidate -> true);
+        assertEquals(0, index.size());
+        assertEquals(0, index.distinctValues(Attribute.CITY));
+        index.close();
+        candidateRBT.insert(newcomer);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> Filter.equalTo(Attribute.AGE, "twenty"));
+        assertThrows(NullPointerException.class, () -> Filter.atLeast(Attribute.CITY, null));
+        assertThrows(IllegalArgumentException.class, () -> Filter.in(Attribute.GENDER));
+        assertThrows(IllegalArgumentException.class, () -> Filter.and());
+        assertThrows(NullPointerException.class, () -> new CandidateBitmapIndex(null));
+        assertEquals(0, new CandidateBitmapIndex(new RedBlackTree<>()).count(Filter.between(Attribute.AGE, 24, 20)));
+    }
+
+    private static List<Candidate> scan(RedBlackTree<Candidate> tree, Filter filter) {
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : tree) {
+            if (filter.test(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private static Filter randomFilter(Random random, List<Candidate> candidates, int depth) {
+        Attribute attribute = Attribute.values()[random.nextInt(Attribute.values().length)];
+        int kind = random.nextInt(depth > 0 ? 6 : 4);
+        Object value = attribute.valueOf(candidates.get(random.nextInt(candidates.size())));
+        Object other = attribute.valueOf(candidates.get(random.nextInt(candidates.size())));
+        switch (kind) {
+            case 0:
+                return Filter.in(attribute, value, other);
+            case 1:
+                return Filter.between(attribute, value, other);
+            case 2:
+                return Filter.atLeast(attribute, value);
+            case 3:
+                return Filter.atMost(attribute, value);
+            case 4:
+                return Filter.and(randomFilter(random, candidates, depth - 1), randomFilter(random, candidates, depth - 1));
+            default:
+                return Filter.or(randomFilter(random, candidates, depth - 1), randomFilter(random, candidates, depth - 1),
+                        randomFilter(random, candidates, depth - 1));
+        }
+    }
+}
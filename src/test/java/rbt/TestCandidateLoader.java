@@ -0,0 +1,113 @@
+package rbt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains JUnit tests for the CandidateLoader class
+ *
+ * @author Naif Abdullah
+ */
+public class TestCandidateLoader {
+
+    private static final String HEADER = "id,name,nationality,city,latitude,longitude,gender,age,english.grade,"
+            + "math.grade,sciences.grade,language.grade,portfolio.rating,coverletter.rating,refletter.rating\n";
+
+    @Test
+    public void testLoadMatchesOpenCsv() throws IOException {
+        String candidatesCSVPath = "./src/main/resources/candidate-info.csv";
+        RedBlackTree<Candidate> expected = new RedBlackTree<>();
+        for (Candidate candidate : TestRedBlackTree.readCandidatesFromCSV(candidatesCSVPath)) {
+            expected.insert(candidate);
+        }
+
+        // Tiny chunks force lines to be carried over between many chunks
+        for (int chunkBytes : new int[]{1, 100, 1 << 20}) {
+            RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+            CandidateLoader.LoadResult result = new CandidateLoader(3, chunkBytes)
+                    .load(Paths.get(candidatesCSVPath), candidateRBT);
+            assertEquals(expected.size(), result.getLoaded());
+            assertEquals(0, result.getRejected());
+            assertEquals(expected.toString(), candidateRBT.toString());
+        }
+    }
+
+    @Test
+    public void testReimportReportsEveryRowAsDuplicate() throws IOException {
+        Path csv = Paths.get("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        CandidateLoader loader = new CandidateLoader(2, 4096);
+        long loaded = loader.load(csv, candidateRBT).getLoaded();
+
+        CandidateLoader.LoadResult result = loader.load(csv, candidateRBT);
+        assertEquals(0, result.getLoaded());
+        assertEquals(loaded, result.getRejected());
+        assertEquals(loaded, candidateRBT.size());
+        List<CandidateLoader.RowError> errors = result.getErrors();
+        for (int i = 0; i < errors.size(); i++) {
+            assertEquals(i + 2, errors.get(i).getLineNumber());
+            assertTrue(errors.get(i).getMessage().contains("duplicate"));
+        }
+    }
+
+    @Test
+    public void testQuotedAndNonAsciiGender(@TempDir Path directory) throws IOException {
+        Path csv = directory.resolve("candidates.csv");
+        Files.write(csv, (HEADER
+                + "0,Kiana Lor,China,Suzhou,31.31,120.62,\"F\",22,3.5,3.7,3.1,1,4,4,4\n"
+                + "1,Ana Ruiz,Mexico,Puebla,19.04,-98.2,\u00c9,21,3.0,2.5,3.1,4,3,3,3\n"
+                + "2,Joshua Lonaker,United States of America,Santa Clarita,34.39,-118.54,\"\",22,2.9,3.2,3.6,5,5,4,4\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        CandidateLoader.LoadResult result = new CandidateLoader(1, 1 << 20).load(csv, candidateRBT);
+
+        assertEquals(2, result.getLoaded());
+        assertEquals(4, result.getErrors().get(0).getLineNumber());
+        assertTrue(result.getErrors().get(0).getMessage().contains("gender"));
+        Iterator<Candidate> candidates = candidateRBT.iterator();
+        assertEquals('F', candidates.next().getGender());
+        assertEquals('\u00c9', candidates.next().getGender());
+    }
+
+    @Test
+    public void testBadRowsAreReportedWithLineNumbers(@TempDir Path directory) throws IOException {
+        Path csv = directory.resolve("candidates.csv");
+        Files.write(csv, (HEADER
+                + "0,Kiana Lor,China,Suzhou,31.31,120.62,F,22,3.5,3.7,3.1,1,4,4,4\r\n"
+                + "1,Joshua Lonaker,United States of America,Santa Clarita,34.39,-118.54,M,22,2.9,3.2,3.6,5,5\n"
+                + "2,\"Blanco, Dakota\",United States of America,Oakland,37.8,-122.27,F,22,3.9,3.8,3.2,5,3,3,4\n"
+                + "\n"
+                + "3,Natasha Yarusso,United States of America,Castro Valley,north,-122.09,F,20,3.3,2.8,3.2,5,5,2,4\n"
+                + "0,Kiana Lor,China,Suzhou,31.31,120.62,F,22,3.5,3.7,3.1,1,4,4,4\n"
+                + "4,Ana Ruiz,Mexico,Puebla,19.04,-98.2,F,21,3.0,2.5e0,3.1,4,3,3,3").getBytes(StandardCharsets.UTF_8));
+
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        CandidateLoader.LoadResult result = new CandidateLoader(2, 64).load(csv, candidateRBT);
+
+        assertEquals(3, result.getLoaded());
+        assertEquals(3, result.getRejected());
+        List<CandidateLoader.RowError> errors = result.getErrors();
+        assertEquals(3, errors.get(0).getLineNumber());
+        assertTrue(errors.get(0).getMessage().contains("columns"));
+        assertEquals(6, errors.get(1).getLineNumber());
+        assertTrue(errors.get(1).getMessage().contains("latitude"));
+        assertEquals(7, errors.get(2).getLineNumber());
+        assertTrue(errors.get(2).getMessage().contains("duplicate"));
+
+        assertTrue(candidateRBT.contains(new Candidate(2, "Blanco, Dakota", "United States of America", "Oakland",
+                37.8, -122.27, 'F', 22, 3.9, 3.8, 3.2, 5, 3, 3, 4)));
+        assertTrue(candidateRBT.contains(new Candidate(4, "Ana Ruiz", "Mexico", "Puebla",
+                19.04, -98.2, 'F', 21, 3.0, 2.5, 3.1, 4, 3, 3, 3)));
+    }
+}
@@ -0,0 +1,89 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the CandidateRanking and ScoringProfile
+ * classes, checked against scoring and sorting the whole tree
+ *
+ * @author Naif Abdullah
+ */
+public class TestCandidateRanking {
+
+    @Test
+    public void testTopKFollowsTheTree() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        int half = candidates.size() / 2;
+        for (int i = 0; i < half; i++) {
+            candidateRBT.insert(candidates.get(i));
+        }
+
+        CandidateRanking ranking = new CandidateRanking(candidateRBT);
+        ScoringProfile academic = new ScoringProfile("academic", 1, 2, 1.5, 0.5, 0, 0, 0);
+        ScoringProfile balanced = new ScoringProfile("balanced", 1, 1, 1, 1, 2, 2, 2);
+        ranking.register(academic);
+        ranking.register(balanced);
+        assertEquals(sortedBy(candidateRBT, academic).subList(0, 10), ranking.topK("academic", 10));
+
+        // Inserts and removes made through the tree are ranked right away
+        for (int i = half; i < candidates.size(); i++) {
+            candidateRBT.insert(candidates.get(i));
+        }
+        candidateRBT.removeIf(candidate -> candidate.getAge() == 21);
+        assertEquals(sortedBy(candidateRBT, academic).subList(0, 25), ranking.topK("academic", 25));
+        assertEquals(sortedBy(candidateRBT, balanced), ranking.topK("balanced", candidateRBT.size() + 10));
+        assertTrue(ranking.topK("balanced", 0).isEmpty());
+        Candidate best = sortedBy(candidateRBT, balanced).get(3);
+        assertEquals(3, ranking.rankOf("balanced", best));
+        assertEquals(-1, ranking.rankOf("balanced", candidates.stream()
+                .filter(candidate -> candidate.getAge() == 21).findFirst().get()));
+
+        // Re-weighting ranks the candidates again
+        ScoringProfile reweighted = new ScoringProfile("academic", 0, 0, 0, 0, 1, -1, 0.5);
+        ranking.reweight(reweighted);
+        assertEquals(reweighted, ranking.getProfile("academic"));
+        assertEquals(sortedBy(candidateRBT, reweighted), ranking.topK("academic", candidateRBT.size()));
+        candidateRBT.remove(ranking.topK("academic", 1).get(0));
+        assertEquals(sortedBy(candidateRBT, reweighted).subList(0, 5), ranking.topK("academic", 5));
+
+        assertTrue(ranking.unregister("balanced"));
+        assertFalse(ranking.unregister("balanced"));
+        assertNull(ranking.getProfile("balanced"));
+        assertEquals(1, ranking.profileNames().size());
+        ranking.close();
+        assertTrue(ranking.profileNames().isEmpty());
+    }
+
+    @Test
+    public void testInvalidProfiles() {
+        CandidateRanking ranking = new CandidateRanking(new RedBlackTree<>());
+        ScoringProfile profile = new ScoringProfile("p", 1, 1, 1, 1, 1, 1, 1);
+        ranking.register(profile);
+        assertThrows(IllegalArgumentException.class, () -> ranking.register(profile));
+        assertThrows(IllegalArgumentException.class,
+                () -> ranking.reweight(new ScoringProfile("q", 1, 1, 1, 1, 1, 1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> ranking.topK("q", 5));
+        assertThrows(IllegalArgumentException.class, () -> ranking.topK("p", -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ScoringProfile("nan", Double.NaN, 1, 1, 1, 1, 1, 1));
+        assertThrows(NullPointerException.class, () -> new CandidateRanking(null));
+    }
+
+    private static List<Candidate> sortedBy(RedBlackTree<Candidate> tree, ScoringProfile profile) {
+        List<Candidate> sorted = new ArrayList<>();
+        for (Candidate candidate : tree) {
+            sorted.add(candidate);
+        }
+        sorted.sort(profile.ranking());
+        return sorted;
+    }
+}
@@ -0,0 +1,51 @@
+package rbt;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the CandidateStore class and the tree
+ * of CandidateRow flyweights indexing it
+ *
+ * @author Naif Abdullah
+ */
+public class TestCandidateStore {
+
+    @Test
+    public void testRowsIndexedByTree() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        // A tiny initial capacity makes the columns grow several times
+        CandidateStore store = new CandidateStore(4);
+        RedBlackTree<CandidateRow> rowRBT = new RedBlackTree<>();
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            rowRBT.insert(store.add(candidates.get(i)));
+            candidateRBT.insert(candidates.get(i));
+        }
+
+        assertEquals(candidates.size(), store.size());
+        assertTrue(store.distinctStrings() < 3 * candidates.size(), "repeated strings are stored once");
+        assertEquals(candidateRBT.toString(), rowRBT.toString());
+
+        Iterator<CandidateRow> rows = rowRBT.iterator();
+        Iterator<Candidate> expected = candidateRBT.iterator();
+        while (rows.hasNext()) {
+            CandidateRow row = rows.next();
+            Candidate candidate = expected.next();
+            assertEquals(0, candidate.compareTo(row.toCandidate()));
+            assertEquals(candidate.getId(), row.getId());
+            assertEquals(candidate.getCity(), row.getCity());
+            assertEquals(candidate.getMathGrade(), row.getMathGrade());
+            assertEquals(candidate.getGender(), row.getGender());
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> store.row(candidates.size()));
+        assertThrows(NullPointerException.class, () -> store.add(new Candidate()));
+        assertEquals(candidates.size(), store.size());
+    }
+}
@@ -0,0 +1,68 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the CompactCandidate class
+ *
+ * @author Naif Abdullah
+ */
+public class TestCompactCandidate {
+
+    @Test
+    public void testSameValuesAndOrder() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        // Values that do not fit the compact fields must survive unchanged
+        candidates.add(new Candidate(5000, "Wide Grades", "Mexico", "Puebla", 19.041, -98.2, 'F', 21,
+                3.75, 3.5, 2.0, 4.0, 5, 4, 3));
+        candidates.add(new Candidate(5001, "Negative Zero", "Mexico", "Puebla", -0.0, 0.0, 'M', 300,
+                3.0, 3.0, 3.0, 3.0, 1000, 1, 1));
+        candidates.add(new Candidate(5000, "Wide Grades", "Mexico", "Puebla", 19.04, -98.2, 'F', 21,
+                3.7, 3.5, 2.0, 4.0, 5, 4, 3));
+
+        CompactCandidate.Factory factory = new CompactCandidate.Factory();
+        List<CompactCandidate> compacts = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            compacts.add(factory.compact(candidate));
+        }
+        assertFalse(compacts.get(candidates.size() - 3).isCompact());
+        assertFalse(compacts.get(candidates.size() - 2).isCompact());
+        assertTrue(compacts.get(candidates.size() - 1).isCompact());
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            CompactCandidate compact = compacts.get(i);
+            assertEquals(candidate.toString(), compact.toString());
+            assertEquals(Double.doubleToLongBits(candidate.getLatitude()),
+                    Double.doubleToLongBits(compact.getLatitude()));
+            assertEquals(candidate.getReferenceLetterRating(), compact.getReferenceLetterRating());
+            assertEquals(0, candidate.compareTo(compact.toCandidate()));
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            for (int j = 0; j < candidates.size(); j++) {
+                assertEquals(Integer.signum(candidates.get(i).compareTo(candidates.get(j))),
+                        Integer.signum(compacts.get(i).compareTo(compacts.get(j))));
+            }
+        }
+
+        // Nationalities and cities are shared between candidates
+        CompactCandidate first = compacts.get(candidates.size() - 3);
+        CompactCandidate last = compacts.get(candidates.size() - 1);
+        assertSame(first.getNationality(), last.getNationality());
+        assertSame(first.getCity(), last.getCity());
+        assertTrue(factory.distinctStrings() < 2 * candidates.size());
+
+        RedBlackTree<CompactCandidate> tree = new RedBlackTree<>();
+        compacts.forEach(tree::insert);
+        TestRedBlackTree.assertValidRedBlackTree(tree);
+        assertThrows(NullPointerException.class, () -> factory.compact(new Candidate()));
+    }
+}
@@ -0,0 +1,103 @@
+package rbt;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the CompressedBitmap class, checked
+ * against java.util.BitSet with sparse and dense chunks
+ *
+ * @author Naif Abdullah
+ */
+public class TestCompressedBitmap {
+
+    @Test
+    public void testAddRemoveContains() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        assertTrue(bitmap.isEmpty());
+        assertEquals("[  ]", bitmap.toString());
+        assertTrue(bitmap.add(70000));
+        assertTrue(bitmap.add(3));
+        assertFalse(bitmap.add(3));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(4));
+        assertFalse(bitmap.contains(-1));
+        assertEquals("[ 3, 70000 ]", bitmap.toString());
+        assertTrue(bitmap.remove(70000));
+        assertFalse(bitmap.remove(70000));
+                assertThrows(IllegalArgumentException.class, () -> bitmap.add(-5));
+        assertTrue(bitmap.remove(3));
+        assertTrue(bitmap.isEmpty());
+
+        // A chunk grows from an array into a bitmap container, and back
+        for (int i = 0; i < 10000; i++) {
+            bitmap.add(2 * i);
+        }
+        assertEquals(10000, bitmap.cardinality());
+        for (int i = 0; i < 10000; i += 2) {
+            assertTrue(bitmap.remove(2 * i));
+        }
+        assertEquals(5000, bitmap.cardinality());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 2 == 1, bitmap.contains(2 * i));
+        }
+    }
+
+    @Test
+    public void testAndOrMatchBitSet() {
+        Random random = new Random(21);
+        for (int round = 0; round < 20; round++) {
+            // Densities from a few values per chunk to most of a chunk
+            double densityA = random.nextDouble() * (round % 2 == 0 ? 0.02 : 0.9);
+            double densityB = random.nextDouble() * (round % 3 == 0 ? 0.02 : 0.9);
+            BitSet expectedA = new BitSet();
+            BitSet expectedB = new BitSet();
+            CompressedBitmap a = new CompressedBitmap();
+            CompressedBitmap b = new CompressedBitmap();
+            for (int value = 0; value < 300000; value++) {
+                if (random.nextDouble() < densityA) {
+                    expectedA.set(value);
+                    a.add(value);
+                }
+                if (random.nextDouble() < densityB && value > 100000) {
+                    expectedB.set(value);
+                    b.add(value);
+                }
+            }
+            assertArrayEquals(expectedA.stream().toArray(), a.toArray());
+
+            BitSet expectedAnd = (BitSet) expectedA.clone();
+            expectedAnd.and(expectedB);
+            assertArrayEquals(expectedAnd.stream().toArray(), a.and(b).toArray());
+            assertArrayEquals(expectedAnd.stream().toArray(), b.and(a).toArray());
+            assertEquals(expectedAnd.cardinality(), a.and(b).cardinality());
+
+            BitSet expectedOr = (BitSet) expectedA.clone();
+            expectedOr.or(expectedB);
+            assertArrayEquals(expectedOr.stream().toArray(), a.or(b).toArray());
+            assertArrayEquals(expectedOr.stream().toArray(), b.or(a).toArray());
+
+            // The operands are left untouched
+            assertEquals(expectedA.cardinality(), a.cardinality());
+            assertEquals(expectedB.cardinality(), b.cardinality());
+
+            // addAll grows the receiver only
+            CompressedBitmap union = a.or(new CompressedBitmap());
+            union.addAll(b);
+            union.addAll(b);
+            assertArrayEquals(expectedOr.stream().toArray(), union.toArray());
+            assertEquals(expectedOr.cardinality(), union.cardinality());
+            union.add(50000);
+            union.remove(200001);
+            assertArrayEquals(expectedB.stream().toArray(), b.toArray());
+            assertArrayEquals(expectedA.stream().toArray(), a.toArray());
+        }
+    }
+}
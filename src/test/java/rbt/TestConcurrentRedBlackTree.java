@@ -0,0 +1,145 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the ConcurrentRedBlackTree class
+ *
+ * @author Naif Abdullah
+ */
+public class TestConcurrentRedBlackTree {
+
+    private static final int WRITERS = 2;
+    private static final int READERS = 4;
+    private static final int INSERTS_PER_WRITER = 50000;
+
+    @Test
+    public void testReadersDuringConcurrentInserts() throws InterruptedException {
+        ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+        // Writer w inserts w, w + WRITERS, w + 2 * WRITERS, ... and publishes its progress
+        AtomicInteger[] inserted = new AtomicInteger[WRITERS];
+        AtomicLong reads = new AtomicLong();
+        List<Throwable> failures = new ArrayList<>();
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            inserted[w] = new AtomicInteger();
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < INSERTS_PER_WRITER; i++) {
+                        tree.insert(i * WRITERS + writer);
+                        inserted[writer].set(i + 1);
+                    }
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            int reader = r;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    int i = reader;
+                    while (writersDone.getCount() > 0) {
+                        // Values published before the lookup must be found, values past the end never
+                        int writer = i % WRITERS;
+                        int published = inserted[writer].get();
+                        if (published > 0) {
+                            int value = (i % published) * WRITERS + writer;
+                            assertTrue(tree.contains(value), "missing " + value);
+                        }
+                        assertFalse(tree.contains(-1 - i));
+                        if (i % 5000 == 0) {
+                            Iterator<Integer> iterator = tree.iterator();
+                            int previous = Integer.MIN_VALUE;
+                            while (iterator.hasNext()) {
+                                int next = iterator.next();
+                                assertTrue(previous < next);
+                                previous = next;
+                            }
+                        }
+                        i++;
+                    }
+                    reads.addAndGet(2L * (i - reader));
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.get(0).toString());
+        assertEquals(WRITERS * INSERTS_PER_WRITER, tree.size());
+        TestRedBlackTree.assertValidRedBlackTree(tree.tree);
+        assertTrue(reads.get() > 0);
+    }
+
+    @Test
+    public void testIteratorAcrossChunks() {
+        ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(2 * i);
+        }
+        Iterator<Integer> iterator = tree.iterator();
+        List<Integer> seen = new ArrayList<>();
+        while (iterator.hasNext()) {
+            int next = iterator.next();
+            seen.add(next);
+            if (next == 100) {
+                // Writes between chunks: behind the iterator, ahead of it, and a removal ahead
+                tree.insert(1);
+                tree.insert(1501);
+                tree.remove(1600);
+            }
+        }
+        assertFalse(seen.contains(1));
+        assertTrue(seen.contains(1501));
+        assertFalse(seen.contains(1600));
+        assertEquals(1000, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1) < seen.get(i));
+        }
+        assertFalse(new ConcurrentRedBlackTree<Integer>().iterator().hasNext());
+    }
+
+    @Test
+    public void testSingleThreadedOperations() {
+        ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+        assertTrue(tree.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            tree.insert(i);
+        }
+        assertTrue(tree.remove(50));
+        assertFalse(tree.remove(50));
+        assertFalse(tree.contains(50));
+        assertTrue(tree.contains(49));
+        assertEquals(99, tree.size());
+        TestRedBlackTree.assertValidRedBlackTree(tree.tree);
+    }
+}
@@ -0,0 +1,101 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the GeoIndex class, checked against a
+ * brute-force haversine scan
+ *
+ * @author Naif Abdullah
+ */
+public class TestGeoIndex {
+
+    private static final double OAKLAND_LATITUDE = 37.80;
+    private static final double OAKLAND_LONGITUDE = -122.27;
+
+    @Test
+    public void testQueriesMatchBruteForce() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        for (Candidate candidate : candidates) {
+            candidateRBT.insert(candidate);
+        }
+        GeoIndex<Candidate> index = GeoIndex.ofCandidates(candidateRBT);
+        assertEquals(candidates.size(), index.size());
+
+        Random random = new Random(13);
+        for (int query = 0; query < 50; query++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            List<Candidate> expected = byDistance(candidateRBT, latitude, longitude);
+            assertEquals(expected.subList(0, 10), index.nearest(latitude, longitude, 10));
+
+            double radius = random.nextDouble() * 3000;
+            List<Candidate> within = new ArrayList<>();
+            for (Candidate candidate : expected) {
+                if (distance(candidate, latitude, longitude) <= radius) {
+                    within.add(candidate);
+                }
+            }
+            assertEquals(within, index.withinRadius(latitude, longitude, radius));
+        }
+
+        // Updates made through the tree are visible to the following queries
+        for (int i = 0; i < candidates.size(); i += 2) {
+            candidateRBT.remove(candidates.get(i));
+        }
+        candidateRBT.insert(new Candidate(100000, "Far Away", "Nowhere", "Nowhere",
+                -60.5, 150.5, 'F', 30, 5, 5, 5, 5, 5, 5, 5));
+        assertEquals(candidateRBT.size(), index.size());
+        assertEquals(100000, index.nearest(-60.5, 150.5, 1).get(0).getId());
+        assertEquals(byDistance(candidateRBT, 10, 20).subList(0, 25), index.nearest(10, 20, 25));
+        assertEquals(candidateRBT.size(), index.withinRadius(0, 0, 30000).size());
+
+        // The strongest candidates within 2000 km of Oakland, by math grade
+        Comparator<Candidate> byMath = Comparator.comparingDouble(Candidate::getMathGrade)
+                .thenComparing(Comparator.naturalOrder());
+        List<Candidate> expected = new ArrayList<>();
+        for (Candidate candidate : byDistance(candidateRBT, OAKLAND_LATITUDE, OAKLAND_LONGITUDE)) {
+            if (distance(candidate, OAKLAND_LATITUDE, OAKLAND_LONGITUDE) <= 2000) {
+                expected.add(candidate);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        expected.sort(byMath.reversed());
+        List<Candidate> strongest = index.strongestWithinRadius(OAKLAND_LATITUDE, OAKLAND_LONGITUDE, 2000, byMath, 5);
+        assertEquals(expected.subList(0, Math.min(5, expected.size())), strongest);
+
+        assertTrue(index.nearest(0, 0, 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.withinRadius(0, 0, -1));
+        index.close();
+    }
+
+    @Test
+    public void testDistance() {
+        // Oakland to New York City is about 4,130 km
+        assertEquals(4130, GeoIndex.distanceKm(OAKLAND_LATITUDE, OAKLAND_LONGITUDE, 40.71, -74.01), 20);
+        assertEquals(0, GeoIndex.distanceKm(10, 10, 10, 10), 1e-9);
+        assertEquals(Math.PI * GeoIndex.EARTH_RADIUS_KM, GeoIndex.distanceKm(0, 0, 0, 180), 1e-6);
+    }
+
+    private static double distance(Candidate candidate, double latitude, double longitude) {
+        return GeoIndex.distanceKm(latitude, longitude, candidate.getLatitude(), candidate.getLongitude());
+    }
+
+    private static List<Candidate> byDistance(RedBlackTree<Candidate> tree, double latitude, double longitude) {
+        List<Candidate> sorted = new ArrayList<>();
+        tree.iterator().forEachRemaining(sorted::add);
+        sorted.sort(Comparator.comparingDouble((Candidate candidate) -> distance(candidate, latitude, longitude))
+                .thenComparing(Comparator.naturalOrder()));
+        return sorted;
+    }
+}
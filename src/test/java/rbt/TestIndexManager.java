@@ -0,0 +1,132 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the IndexManager class and the
+ * secondary indexes it keeps in sync with a RedBlackTree
+ *
+ * @author Naif Abdullah
+ */
+public class TestIndexManager {
+
+    @Test
+    public void testIndexesFollowTheTree() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        int half = candidates.size() / 2;
+        for (int i = 0; i < half; i++) {
+            candidateRBT.insert(candidates.get(i));
+        }
+
+        // Indexes created on a filled tree are built from its current values
+        IndexManager<Candidate> indexes = new IndexManager<>(candidateRBT);
+        SecondaryIndex<Candidate, Double> byMath = indexes.addIndex("mathGrade", Candidate::getMathGrade);
+        SecondaryIndex<Candidate, Integer> byAge = indexes.addIndex("age", Candidate::getAge);
+        SecondaryIndex<Candidate, String> byNationality = indexes.addIndex("nationality", Candidate::getNationality);
+        for (int i = half; i < candidates.size(); i++) {
+            candidateRBT.insert(candidates.get(i));
+        }
+        for (int i = 0; i < candidates.size(); i += 4) {
+            candidateRBT.remove(candidates.get(i));
+        }
+        candidateRBT.removeIf(candidate -> candidate.getAge() == 20);
+        assertEquals(candidateRBT.size(), byMath.size());
+        assertEquals(candidateRBT.size(), byNationality.size());
+
+        assertMatches(candidateRBT, c -> c.getMathGrade() >= 3.0 && c.getMathGrade() <= 3.5, byMath.between(3.0, 3.5));
+        assertEquals(count(candidateRBT, c -> c.getMathGrade() >= 3.0 && c.getMathGrade() <= 3.5),
+                byMath.count(3.0, 3.5));
+        assertMatches(candidateRBT, c -> c.getMathGrade() > 3.0 && c.getMathGrade() < 3.5,
+                byMath.between(3.0, false, 3.5, false));
+        assertMatches(candidateRBT, c -> c.getAge() == 22, byAge.equalTo(22));
+        assertFalse(byAge.equalTo(20).iterator().hasNext());
+        assertFalse(byAge.between(22, false, 22, false).iterator().hasNext());
+        String nationality = candidateRBT.iterator().next().getNationality();
+        assertMatches(candidateRBT, c -> c.getNationality().equals(nationality), byNationality.equalTo(nationality));
+
+        // Values sharing a key come in the order of the tree (by id)
+        Iterator<Candidate> sameAge = byAge.equalTo(22).iterator();
+        Candidate previous = sameAge.next();
+        while (sameAge.hasNext()) {
+            Candidate next = sameAge.next();
+            assertTrue(previous.getId() < next.getId());
+            previous = next;
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> indexes.addIndex("age", Candidate::getAge));
+        assertThrows(IllegalArgumentException.class, () -> byMath.between(3.5, 3.0));
+        assertTrue(indexes.dropIndex("age"));
+        assertNull(indexes.getIndex("age"));
+        assertEquals(2, indexes.indexNames().size());
+        indexes.close();
+        candidateRBT.insert(candidates.get(0));
+        assertEquals(candidateRBT.size() - 1, byMath.size());
+    }
+
+    @Test
+    public void testValuesSharingAKeyFollowTheTreeOrder() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>(Comparator.comparing(Candidate::getId).reversed());
+        for (Candidate candidate : candidates) {
+            candidateRBT.insert(candidate);
+        }
+        IndexManager<Candidate> indexes = new IndexManager<>(candidateRBT);
+        SecondaryIndex<Candidate, Integer> byAge = indexes.addIndex("age", Candidate::getAge);
+        candidateRBT.removeIf(candidate -> candidate.getId() % 3 == 0);
+        assertEquals(candidateRBT.size(), byAge.size());
+
+        // Ties on the age are broken by the comparator of the tree: descending ids
+        Iterator<Candidate> sameAge = byAge.equalTo(22).iterator();
+        Candidate previous = sameAge.next();
+        int matches = 1;
+        while (sameAge.hasNext()) {
+            Candidate next = sameAge.next();
+            assertTrue(previous.getId() > next.getId());
+            assertTrue(next.getId() % 3 != 0);
+            previous = next;
+            matches++;
+        }
+        assertEquals(count(candidateRBT, c -> c.getAge() == 22), matches);
+    }
+
+    private static int count(RedBlackTree<Candidate> tree, Predicate<Candidate> filter) {
+        int count = 0;
+        for (Iterator<Candidate> it = tree.iterator(); it.hasNext();) {
+            if (filter.test(it.next())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertMatches(RedBlackTree<Candidate> tree, Predicate<Candidate> filter,
+            Iterable<Candidate> found) {
+        List<Integer> expected = new ArrayList<>();
+        for (Iterator<Candidate> it = tree.iterator(); it.hasNext();) {
+            Candidate candidate = it.next();
+            if (filter.test(candidate)) {
+                expected.add(candidate.getId());
+            }
+        }
+        List<Integer> actual = new ArrayList<>();
+        for (Candidate candidate : found) {
+            assertTrue(filter.test(candidate));
+            actual.add(candidate.getId());
+        }
+        actual.sort(null);
+        assertEquals(expected, actual);
+        assertFalse(expected.isEmpty(), "the query should match some candidates");
+    }
+}
@@ -0,0 +1,130 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the IntKeyedRedBlackTree class
+ *
+ * @author Naif Abdullah
+ */
+public class TestIntKeyedRedBlackTree {
+
+    @Test
+    public void testInsertCandidatesById() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        Collections.shuffle(candidates, new Random(3));
+        IntKeyedRedBlackTree<Candidate> candidateRBT = new IntKeyedRedBlackTree<>(Candidate::getId);
+        RedBlackTree<Candidate> reference = new RedBlackTree<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            candidateRBT.insert(candidates.get(i));
+            reference.insert(candidates.get(i));
+            if (i % 50 == 0) {
+                assertValidRedBlackTree(candidateRBT);
+            }
+        }
+        assertValidRedBlackTree(candidateRBT);
+
+        assertEquals(candidates.size(), candidateRBT.size());
+        assertEquals(reference.toString(), candidateRBT.toString());
+        for (Candidate candidate : candidates) {
+            assertTrue(candidateRBT.contains(candidate));
+            assertSame(candidate, candidateRBT.get(candidate.getId()));
+        }
+        assertFalse(candidateRBT.containsKey(-1));
+        assertNull(candidateRBT.get(100000));
+
+        Candidate sameId = candidates.get(0);
+        assertThrows(IllegalArgumentException.class, () -> candidateRBT.insert(sameId));
+        assertThrows(NullPointerException.class, () -> candidateRBT.insert(null));
+        assertEquals(candidates.size(), candidateRBT.size());
+    }
+
+    @Test
+    public void testIteratesInKeyOrder() {
+        IntKeyedRedBlackTree<Integer> tree = new IntKeyedRedBlackTree<>(Integer::intValue);
+        assertFalse(tree.iterator().hasNext());
+
+        List<Integer> values = new ArrayList<>();
+        for (int i = -5000; i < 5000; i++) {
+            values.add(i * 3);
+        }
+        Collections.shuffle(values, new Random(11));
+        for (Integer value : values) {
+            tree.insert(value);
+        }
+        assertValidRedBlackTree(tree);
+
+        Iterator<Integer> iterator = tree.iterator();
+        for (int i = -5000; i < 5000; i++) {
+            assertEquals(i * 3, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        assertTrue(tree.containsKey(-15000));
+        assertFalse(tree.containsKey(1));
+    }
+
+    @Test
+    public void testAscendingInsertsStayBalanced() {
+        IntKeyedRedBlackTree<Integer> tree = new IntKeyedRedBlackTree<>(Integer::intValue);
+        for (int i = 0; i < 10000; i++) {
+            tree.insert(i);
+        }
+        // 2 * log2(n + 1) bounds the height of a valid tree
+        assertTrue(assertValidRedBlackTree(tree) <= 2 * 14);
+    }
+
+    /**
+     * Checks the key ordering, parent indices, size and all red-black tree
+     * properties of the given tree.
+     *
+     * @param tree the tree to check
+     * @return the height of the tree
+     */
+    static <T> int assertValidRedBlackTree(IntKeyedRedBlackTree<T> tree) {
+        if (tree.root == IntKeyedRedBlackTree.NIL) {
+            assertEquals(0, tree.size());
+            return 0;
+        }
+        assertFalse(tree.isRed.get(tree.root), "the root must be black");
+        assertEquals(IntKeyedRedBlackTree.NIL, tree.parent[tree.root], "the root must not have a parent");
+        assertFalse(tree.isRed.get(IntKeyedRedBlackTree.NIL), "the empty leaf must be black");
+        int[] count = new int[1];
+        int[] height = new int[1];
+        blackHeight(tree, tree.root, Long.MIN_VALUE, Long.MAX_VALUE, 1, count, height);
+        assertEquals(tree.size(), count[0]);
+        return height[0];
+    }
+
+    private static <T> int blackHeight(IntKeyedRedBlackTree<T> tree, int node, long min, long max, int depth,
+            int[] count, int[] height) {
+        if (node == IntKeyedRedBlackTree.NIL) {
+            return 1;
+        }
+        count[0]++;
+        height[0] = Math.max(height[0], depth);
+        int key = tree.keys[node];
+        assertTrue(min < key && key < max, "keys must be in strictly ascending order");
+        for (int child : new int[]{tree.leftChild[node], tree.rightChild[node]}) {
+            if (child != IntKeyedRedBlackTree.NIL) {
+                assertEquals(node, tree.parent[child], "child must refer back to its parent");
+                assertFalse(tree.isRed.get(node) && tree.isRed.get(child), "a red node cannot have a red child");
+            }
+        }
+        int left = blackHeight(tree, tree.leftChild[node], min, key, depth + 1, count, height);
+        int right = blackHeight(tree, tree.rightChild[node], key, max, depth + 1, count, height);
+        assertEquals(left, right, "every path must contain the same number of black nodes");
+        return left + (tree.isRed.get(node) ? 0 : 1);
+    }
+}
@@ -0,0 +1,78 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the PersistentRedBlackTree class
+ *
+ * @author Naif Abdullah
+ */
+public class TestPersistentRedBlackTree {
+
+    @Test
+    public void testOlderVersionsAreUnchanged() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> reference = new RedBlackTree<>();
+        PersistentRedBlackTree<Candidate> version = PersistentRedBlackTree.empty();
+        List<PersistentRedBlackTree<Candidate>> versions = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            version = version.insert(candidate);
+            reference.insert(candidate);
+            versions.add(version);
+        }
+        assertEquals(reference.toString(), version.toString());
+        assertTrue(version.blackHeight() > 0);
+
+        // Every version still holds exactly the candidates inserted before it
+        for (int i = 0; i < versions.size(); i += 37) {
+            PersistentRedBlackTree<Candidate> older = versions.get(i);
+            assertEquals(i + 1, older.size());
+            assertTrue(older.contains(candidates.get(i)));
+            if (i + 1 < candidates.size()) {
+                assertFalse(older.contains(candidates.get(i + 1)));
+            }
+            assertTrue(older.blackHeight() > 0);
+        }
+
+        assertSame(version, version.snapshot());
+        PersistentRedBlackTree<Candidate> last = version;
+        assertThrows(IllegalArgumentException.class, () -> last.insert(candidates.get(0)));
+        assertThrows(NullPointerException.class, () -> last.insert(null));
+    }
+
+    @Test
+    public void testIteratorIgnoresLaterInserts() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            values.add(i * 2);
+        }
+        Collections.shuffle(values, new Random(5));
+        PersistentRedBlackTree<Integer> tree = PersistentRedBlackTree.empty();
+        for (Integer value : values) {
+            tree = tree.insert(value);
+        }
+        assertTrue(tree.blackHeight() > 0);
+
+        PersistentRedBlackTree<Integer> snapshot = tree.snapshot();
+        Iterator<Integer> iterator = snapshot.iterator();
+        for (int i = 0; i < 5000; i++) {
+            tree = tree.insert(i * 2 + 1); // new versions keep arriving during the iteration
+            assertEquals(i * 2, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        assertEquals(5000, snapshot.size());
+        assertEquals(10000, tree.size());
+        assertTrue(tree.blackHeight() > 0);
+    }
+}
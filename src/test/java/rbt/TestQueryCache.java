@@ -0,0 +1,125 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the QueryCache class, checked against
+ * the same queries run on the tree
+ *
+ * @author Naif Abdullah
+ */
+public class TestQueryCache {
+
+    @Test
+    public void testResultsFollowTheTree() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        int half = candidates.size() / 2;
+        for (int i = 0; i < half; i++) {
+            candidateRBT.insert(candidates.get(i));
+        }
+        QueryCache<Candidate> cache = new QueryCache<>(candidateRBT, 100000);
+        Candidate from = candidateRBT.select(10);
+        Candidate to = candidateRBT.select(60);
+        Predicate<Candidate> young = candidate -> candidate.getAge() < 21;
+
+        List<Candidate> range = cache.range("range", from, to);
+        assertEquals(scan(candidateRBT, candidate -> candidateRBT.subRange(from, to).inRange(candidate)), range);
+        assertSame(range, cache.range("range", from, to));
+        assertEquals(scan(candidateRBT, young), cache.filter("young", young));
+        Integer count = cache.query("count", candidate -> true, candidateRBT::size);
+        assertEquals(half, count);
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(range.size() + 1 + scan(candidateRBT, young).size() + 1 + 1, cache.getWeight());
+
+        // Mutations patch the cached lists and drop the other results
+        for (int i = half; i < candidates.size(); i++) {
+            candidateRBT.insert(candidates.get(i));
+        }
+        candidateRBT.removeIf(candidate -> candidate.getId() % 5 == 0);
+        assertEquals(scan(candidateRBT, candidate -> candidateRBT.subRange(from, to).inRange(candidate)),
+                cache.range("range", from, to));
+        assertEquals(scan(candidateRBT, young), cache.filter("young", young));
+        assertTrue(cache.getPatches() > 0);
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(3, cache.getHits());
+        count = cache.query("count", candidate -> true, candidateRBT::size);
+        assertEquals(candidateRBT.size(), count);
+        assertEquals(4, cache.getMisses());
+
+        // Lists returned earlier are never changed by the patches
+        assertFalse(range.equals(cache.range("range", from, to)));
+        assertThrows(UnsupportedOperationException.class, () -> range.clear());
+
+        assertTrue(cache.invalidate("count"));
+        assertFalse(cache.invalidate("count"));
+        cache.close();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < 100; i++) {
+            tree.insert(i);
+        }
+        QueryCache<Integer> cache = new QueryCache<>(tree, 25);
+        cache.range("a", 0, 10); // weight 11
+        cache.range("b", 10, 20); // weight 11
+        cache.range("a", 0, 10);
+        cache.range("c", 20, 25); // weight 6, evicts b
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(17, cache.getWeight());
+        cache.range("a", 0, 10);
+        assertEquals(2, cache.getHits());
+
+        cache.query("sum", value -> value >= 90, () -> 0); // weight 1
+        tree.remove(95);
+        assertEquals(1, cache.getInvalidations());
+        cache.query("sum", value -> value >= 90, () -> 0);
+        for (int i = -20; i < 0; i++) {
+            tree.insert(i);
+        }
+        cache.range("d", -20, 0); // weight 21, evicts c and a
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getEvictions());
+        assertEquals(-1, (int) cache.range("d", -20, 0).get(19));
+
+        // A patch that takes the total weight over the bound evicts too
+        tree.remove(-5);
+        assertEquals(21, cache.getWeight());
+        cache.range("e", 50, 53); // weight 4
+        tree.insert(-5); // evicts sum
+        assertEquals(25, cache.getWeight());
+        assertEquals(4, cache.getEvictions());
+        assertEquals(2, cache.getPatches());
+        cache.resetCounters();
+        assertEquals(0, cache.getEvictions());
+
+        assertThrows(IllegalArgumentException.class, () -> new QueryCache<>(tree, 0));
+        assertThrows(NullPointerException.class, () -> cache.filter(null, value -> true));
+        assertThrows(NullPointerException.class, () -> cache.query("null", value -> true, () -> null));
+    }
+
+    private static List<Candidate> scan(RedBlackTree<Candidate> tree, Predicate<Candidate> filter) {
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : tree) {
+            if (filter.test(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+}
@@ -2,11 +2,31 @@ package rbt;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
@@ -45,9 +65,607 @@ public class TestRedBlackTree {
         assertTrue(candidateRBT.contains(candidate4));
     }
 
+    @Test
+    public void testInsertKeepsTreeBalanced() {
+        // Ascending input used to rebuild the same side of the tree on every insert
+        RedBlackTree<Integer> ascending = new RedBlackTree<>();
+        for (int i = 0; i < 100000; i++) {
+            ascending.insert(i);
+        }
+        assertValidRedBlackTree(ascending);
+
+        RedBlackTree<Integer> shuffled = new RedBlackTree<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int value = random.nextInt(1000000);
+            try {
+                shuffled.insert(value);
+            } catch (IllegalArgumentException duplicate) {
+                // a value drawn twice must leave the tree unchanged
+            }
+            if (i % 250 == 0) {
+                assertValidRedBlackTree(shuffled);
+            }
+        }
+        assertValidRedBlackTree(shuffled);
+        int size = shuffled.size();
+        assertThrows(IllegalArgumentException.class, () -> shuffled.insert(shuffled.iterator().next()));
+        assertThrows(NullPointerException.class, () -> shuffled.insert(null));
+        assertEquals(size, shuffled.size());
+    }
+
+    @Test
+    public void testRemoveCandidates() {
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        List<Candidate> candidates = readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        for (Candidate candidate : candidates) {
+            candidateRBT.insert(candidate);
+        }
+
+        // Remove every other candidate, checking the tree after each removal
+        for (int i = 0; i < candidates.size(); i += 2) {
+            assertTrue(candidateRBT.remove(candidates.get(i)));
+            assertValidRedBlackTree(candidateRBT);
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            assertEquals(i % 2 != 0, candidateRBT.contains(candidates.get(i)));
+        }
+        assertEquals(candidates.size() / 2, candidateRBT.size());
+        assertFalse(candidateRBT.remove(candidates.get(0)));
+        assertThrows(NullPointerException.class, () -> candidateRBT.remove(null));
+    }
+
+    @Test
+    public void testRemoveRandomIntegers() {
+        Random random = new Random(42);
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, random);
+        for (Integer value : values) {
+            tree.insert(value);
+        }
+        assertValidRedBlackTree(tree);
+
+        Collections.shuffle(values, random);
+        for (int i = 0; i < values.size(); i++) {
+            assertTrue(tree.remove(values.get(i)));
+            if (i % 50 == 0) {
+                assertValidRedBlackTree(tree);
+            }
+        }
+        assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    public void testRemoveAllAndRemoveIf() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(i);
+        }
+
+        // A small batch goes through individual removals
+        assertTrue(tree.removeAll(Arrays.asList(5, 17, 2000)));
+        assertEquals(998, tree.size());
+        assertValidRedBlackTree(tree);
+
+        // A large batch goes through the single merge pass and rebuild
+        List<Integer> multiplesOfThree = new ArrayList<>();
+        for (int i = 999; i >= 0; i -= 3) {
+            multiplesOfThree.add(i);
+        }
+        assertTrue(tree.removeAll(multiplesOfThree));
+        assertValidRedBlackTree(tree);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 != 0 && i != 5 && i != 17) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected.toString().replace("[", "[ ").replace("]", " ]"), tree.toString());
+
+        assertTrue(tree.removeIf(value -> value % 2 == 0));
+        assertFalse(tree.removeIf(value -> value % 2 == 0));
+        assertValidRedBlackTree(tree);
+        Iterator<Integer> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            assertEquals(1, iterator.next() % 2);
+        }
+
+        assertTrue(tree.removeIf(value -> true));
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.removeAll(multiplesOfThree));
+    }
+
+    @Test
+    public void testFromSorted() {
+        List<Candidate> candidates = readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = RedBlackTree.fromSorted(candidates.iterator(), candidates.size());
+        assertValidRedBlackTree(candidateRBT);
+        assertEquals(candidates.size(), candidateRBT.size());
+        for (Candidate candidate : candidates) {
+            assertTrue(candidateRBT.contains(candidate));
+        }
+
+        // Every size up to a few full levels, to cover complete and incomplete trees
+        for (int size = 0; size < 70; size++) {
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                values.add(i);
+            }
+            assertValidRedBlackTree(RedBlackTree.fromSorted(values.iterator(), size));
+            Collections.shuffle(values, new Random(size));
+            RedBlackTree<Integer> tree = RedBlackTree.fromSorted(values.iterator(), size);
+            assertValidRedBlackTree(tree);
+            assertEquals(size, tree.size());
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> RedBlackTree.fromSorted(Arrays.asList(3, 1, 3).iterator(), 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedBlackTree.fromSorted(Arrays.asList(1, 2).iterator(), 3));
+        assertThrows(NullPointerException.class,
+                () -> RedBlackTree.fromSorted(Arrays.asList(1, null).iterator(), 2));
+    }
+
+    @Test
+    public void testRankSelectAndPercentile() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            values.add(i * 2);
+        }
+        Collections.shuffle(values, new Random(9));
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (Integer value : values) {
+            tree.insert(value);
+        }
+        // Remove a third of the values so that removal fixups are covered as well
+        for (int i = 0; i < values.size(); i += 3) {
+            tree.remove(values.get(i));
+        }
+        assertValidRedBlackTree(tree);
+
+        List<Integer> sorted = new ArrayList<>();
+        tree.iterator().forEachRemaining(sorted::add);
+        for (int i = 0; i < sorted.size(); i++) {
+            int value = sorted.get(i);
+            assertEquals(value, tree.select(i));
+            assertEquals(i, tree.rank(value));
+            assertEquals(i + 1, tree.rank(value + 1)); // odd values are never in the tree
+        }
+        assertEquals(0, tree.rank(-1));
+        assertEquals(sorted.get(0), tree.percentile(0));
+        assertEquals(sorted.get(sorted.size() / 2 - 1), tree.percentile(50));
+        assertEquals(sorted.get(sorted.size() - 1), tree.percentile(100));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.select(sorted.size()));
+        assertThrows(IllegalArgumentException.class, () -> tree.percentile(101));
+        assertThrows(NoSuchElementException.class, () -> new RedBlackTree<Integer>().percentile(50));
+
+        RedBlackTree<Integer> built = RedBlackTree.fromSorted(sorted.iterator(), sorted.size());
+        assertValidRedBlackTree(built);
+        assertEquals(sorted.get(123), built.select(123));
+        built.removeIf(value -> value % 4 == 0);
+        assertValidRedBlackTree(built);
+    }
+
+    @Test
+    public void testFloorCeilingAndRanges() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            values.add(i * 10);
+        }
+        Collections.shuffle(values, new Random(11));
+        for (Integer value : values) {
+            tree.insert(value);
+        }
+
+        assertEquals(100, tree.floor(105));
+        assertEquals(100, tree.floor(100));
+        assertEquals(90, tree.lower(100));
+        assertEquals(110, tree.ceiling(105));
+        assertEquals(100, tree.ceiling(100));
+        assertEquals(110, tree.higher(100));
+        assertNull(tree.floor(-1));
+        assertNull(tree.lower(0));
+        assertNull(tree.ceiling(4991));
+        assertNull(tree.higher(4990));
+
+        RangeView<Integer> range = tree.subRange(95, 150);
+        assertEquals("[ 100, 110, 120, 130, 140 ]", range.toString());
+        assertEquals(5, range.size());
+        assertEquals("[ 100, 110, 120, 130, 140, 150 ]", tree.subRange(100, true, 150, true).toString());
+        assertEquals("[ 110, 120, 130, 140 ]", tree.subRange(100, false, 150, false).toString());
+        assertEquals(4, tree.subRange(100, false, 150, false).size());
+        assertEquals("[ 0, 10, 20 ]", tree.headRange(30).toString());
+        assertEquals("[ 4980, 4990 ]", tree.tailRange(4980).toString());
+        assertEquals(500, tree.tailRange(-5).size());
+        assertTrue(tree.subRange(101, 109).isEmpty());
+        assertEquals(0, tree.subRange(101, 109).size());
+
+        // The views are lazy and reflect later changes to the tree
+        tree.insert(125);
+        tree.remove(130);
+        assertEquals("[ 100, 110, 120, 125, 140 ]", range.toString());
+        assertEquals(5, range.size());
+
+        Iterator<Integer> rangeIterator = tree.headRange(5).iterator();
+        assertEquals(0, rangeIterator.next());
+        assertFalse(rangeIterator.hasNext());
+        assertThrows(NoSuchElementException.class, rangeIterator::next);
+        assertThrows(IllegalArgumentException.class, () -> tree.subRange(20, 10));
+        assertThrows(NullPointerException.class, () -> tree.tailRange(null));
+    }
+
+    @Test
+    public void testStreamsAndSpliterator() {
+        List<Candidate> candidates = readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        for (Candidate candidate : candidates) {
+            candidateRBT.insert(candidate);
+        }
+
+        // Average math grade by nationality, sequentially and in parallel
+        Map<String, Double> sequential = candidateRBT.stream()
+                .collect(Collectors.groupingBy(Candidate::getNationality, Collectors.averagingDouble(Candidate::getMathGrade)));
+        Map<String, Double> parallel = candidateRBT.parallelStream()
+                .collect(Collectors.groupingBy(Candidate::getNationality, Collectors.averagingDouble(Candidate::getMathGrade)));
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (String nationality : sequential.keySet()) {
+            assertEquals(sequential.get(nationality), parallel.get(nationality), 1e-9);
+        }
+        List<Candidate> inOrder = new ArrayList<>();
+        for (Candidate candidate : candidateRBT) {
+            inOrder.add(candidate);
+        }
+        assertEquals(inOrder, candidateRBT.parallelStream().collect(Collectors.toList()));
+
+        // Splits halve the remaining positions exactly and cover them in order
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(i);
+        }
+        Spliterator<Integer> suffix = tree.spliterator();
+        assertTrue(suffix.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+                | Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertNull(suffix.getComparator());
+        Spliterator<Integer> prefix = suffix.trySplit();
+        assertEquals(500, prefix.estimateSize());
+        assertEquals(500, suffix.estimateSize());
+        Spliterator<Integer> quarter = suffix.trySplit();
+        assertEquals(250, quarter.getExactSizeIfKnown());
+        assertTrue(quarter.tryAdvance(value -> assertEquals(500, value)));
+        List<Integer> rest = new ArrayList<>();
+        suffix.forEachRemaining(rest::add);
+        assertEquals(750, rest.get(0));
+        assertEquals(999, rest.get(rest.size() - 1));
+        assertEquals(250, rest.size());
+        assertFalse(suffix.tryAdvance(value -> { }));
+        assertEquals(499500L, tree.parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(0, new RedBlackTree<Integer>().stream().count());
+    }
+
+    @Test
+    public void testSetOperations() {
+        Random random = new Random(15);
+        int[][] sizes = {{0, 10}, {10, 0}, {1, 1}, {50, 3}, {3, 50}, {1000, 1000}, {20000, 300}, {300, 20000}, {30000, 30000}};
+        for (int[] size : sizes) {
+            TreeSet<Integer> a = new TreeSet<>();
+            TreeSet<Integer> b = new TreeSet<>();
+            int range = 2 * (size[0] + size[1]) + 1;
+            while (a.size() < size[0]) {
+                a.add(random.nextInt(range));
+            }
+            while (b.size() < size[1]) {
+                b.add(random.nextInt(range));
+            }
+
+            TreeSet<Integer> union = new TreeSet<>(a);
+            union.addAll(b);
+            RedBlackTree<Integer> tree = treeOf(a);
+            RedBlackTree<Integer> other = treeOf(b);
+            assertEquals(!b.isEmpty() && !a.containsAll(b), tree.union(other));
+            assertValidRedBlackTree(tree);
+            assertEquals(new ArrayList<>(union), tree.stream().collect(Collectors.toList()));
+            assertValidRedBlackTree(other);
+            assertEquals(b.size(), other.size(), "the other tree is left unchanged");
+
+            TreeSet<Integer> intersection = new TreeSet<>(a);
+            intersection.retainAll(b);
+            tree = treeOf(a);
+            tree.intersect(treeOf(b));
+            assertValidRedBlackTree(tree);
+            assertEquals(new ArrayList<>(intersection), tree.stream().collect(Collectors.toList()));
+
+            TreeSet<Integer> difference = new TreeSet<>(a);
+            difference.removeAll(b);
+            tree = treeOf(a);
+            tree.difference(treeOf(b));
+            assertValidRedBlackTree(tree);
+            assertEquals(new ArrayList<>(difference), tree.stream().collect(Collectors.toList()));
+        }
+
+        // Listeners are told about every value the operations add or remove
+        RedBlackTree<Integer> tree = treeOf(Arrays.asList(1, 2, 3, 4, 5));
+        List<Integer> inserted = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        tree.addMutationListener(new MutationListener<Integer>() {
+            @Override
+            public void inserted(Integer value) {
+                inserted.add(value);
+            }
+
+            @Override
+            public void removed(Integer value) {
+                removed.add(value);
+            }
+        });
+        tree.union(treeOf(Arrays.asList(0, 3, 6)));
+        assertEquals(Arrays.asList(0, 6), inserted);
+        tree.intersect(treeOf(Arrays.asList(0, 1, 2, 3, 4)));
+        assertEquals(Arrays.asList(5, 6), removed);
+        removed.clear();
+        assertFalse(tree.difference(treeOf(Arrays.asList(7, 8))));
+        assertTrue(tree.difference(treeOf(Arrays.asList(0, 4))));
+        assertEquals(Arrays.asList(0, 4), removed);
+        assertEquals("[ 1, 2, 3 ]", tree.toString());
+    }
+
+    private static RedBlackTree<Integer> treeOf(Collection<Integer> sorted) {
+        return RedBlackTree.fromSorted(sorted.iterator(), sorted.size());
+    }
+
+    @Test
+    public void testComparatorAndKeyedLookup() {
+        // A tree keyed by id finds candidates from their id alone
+        List<Candidate> candidates = readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> byId = RedBlackTree.keyedByInt(Candidate::getId);
+        Collections.shuffle(candidates, new Random(18));
+        for (Candidate candidate : candidates) {
+            byId.insert(candidate);
+        }
+        assertValidRedBlackTree(byId);
+        int previousId = Integer.MIN_VALUE;
+        for (Candidate candidate : byId) {
+            assertTrue(candidate.getId() > previousId);
+            previousId = candidate.getId();
+        }
+        for (Candidate candidate : candidates) {
+            assertSame(candidate, byId.get(candidate.getId()));
+            assertTrue(byId.contains(candidate));
+        }
+        assertNull(byId.get(previousId + 1));
+        assertThrows(IllegalArgumentException.class, () -> byId.insert(candidates.get(0)));
+        assertThrows(IllegalStateException.class, () -> new RedBlackTree<Integer>().get(1));
+
+        // A comparator replaces the natural order everywhere
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(18));
+        RedBlackTree<Integer> descending = new RedBlackTree<>(Collections.reverseOrder());
+        for (Integer value : values) {
+            descending.insert(value);
+        }
+        assertValidRedBlackTree(descending);
+        assertEquals(Integer.valueOf(499), descending.select(0));
+        assertEquals(Integer.valueOf(20), descending.ceiling(20));
+        assertEquals(Integer.valueOf(19), descending.higher(20));
+        assertEquals("[ 12, 11, 10 ]", descending.subRange(12, true, 10, true).toString());
+        assertSame(descending.comparator(), descending.spliterator().getComparator());
+
+        RedBlackTree<Integer> more = RedBlackTree.fromSorted(Arrays.asList(600, 550, 499).iterator(), 3,
+                Collections.reverseOrder());
+        assertTrue(descending.union(more));
+        assertEquals(Integer.valueOf(600), descending.select(0));
+        assertValidRedBlackTree(descending);
+        assertThrows(IllegalArgumentException.class, () -> descending.union(treeOf(Arrays.asList(1, 2))));
+    }
+
+    @Test
+    public void testSetOperationsOnKeyedTrees() {
+        List<Candidate> candidates = readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        // Separate keyedByInt calls, each with its own Candidate::getId
+        RedBlackTree<Candidate> first = RedBlackTree.keyedByInt(Candidate::getId);
+        RedBlackTree<Candidate> second = RedBlackTree.keyedByInt(Candidate::getId);
+        TreeSet<Integer> firstIds = new TreeSet<>();
+        TreeSet<Integer> secondIds = new TreeSet<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i % 2 == 0) {
+                first.insert(candidates.get(i));
+                firstIds.add(candidates.get(i).getId());
+            }
+            if (i % 3 == 0) {
+                second.insert(candidates.get(i));
+                secondIds.add(candidates.get(i).getId());
+            }
+        }
+
+        RedBlackTree<Candidate> union = RedBlackTree.keyedByInt(Candidate::getId);
+        union.union(first);
+        assertTrue(union.union(second));
+        TreeSet<Integer> expected = new TreeSet<>(firstIds);
+        expected.addAll(secondIds);
+        assertEquals(new ArrayList<>(expected), union.stream().map(Candidate::getId).collect(Collectors.toList()));
+        assertValidRedBlackTree(union);
+
+        RedBlackTree<Candidate> intersection = RedBlackTree.keyedByInt(Candidate::getId);
+        intersection.union(first);
+        assertTrue(intersection.intersect(second));
+        expected = new TreeSet<>(firstIds);
+        expected.retainAll(secondIds);
+        assertEquals(new ArrayList<>(expected),
+                intersection.stream().map(Candidate::getId).collect(Collectors.toList()));
+        assertValidRedBlackTree(intersection);
+
+        assertTrue(first.difference(second));
+        expected = new TreeSet<>(firstIds);
+        expected.removeAll(secondIds);
+        assertEquals(new ArrayList<>(expected), first.stream().map(Candidate::getId).collect(Collectors.toList()));
+        assertValidRedBlackTree(first);
+
+        // A tree keyed in another order is still rejected
+        RedBlackTree<Candidate> descending = RedBlackTree.keyedByInt(candidate -> -candidate.getId());
+        descending.insert(candidates.get(0));
+        descending.insert(candidates.get(1));
+        assertThrows(IllegalArgumentException.class, () -> second.union(descending));
+    }
+
+    @Test
+    public void testInsertAll() {
+        // Ascending, descending and nearly sorted feeds, with repeats
+        Random random = new Random(17);
+        List<Integer> feed = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            feed.add(i);
+        }
+        for (int i = 6000; i > 3000; i--) {
+            feed.add(i);
+        }
+        for (int i = 0; i < 2000; i++) {
+            int a = 6001 + i * 2;
+            feed.add((random.nextInt(10) == 0) ? a + random.nextInt(20) : a);
+        }
+        for (int i = 0; i < 500; i++) {
+            feed.add(random.nextInt(10000));
+        }
+        RedBlackTree<Integer> tree = treeOf(Arrays.asList(5, 4000));
+        TreeSet<Integer> expected = new TreeSet<>(Arrays.asList(5, 4000));
+        List<Integer> expectedDuplicates = new ArrayList<>();
+        for (Integer value : feed) {
+            if (!expected.add(value)) {
+                expectedDuplicates.add(value);
+            }
+        }
+        List<Integer> notified = new ArrayList<>();
+        tree.addMutationListener(new MutationListener<Integer>() {
+            @Override
+            public void inserted(Integer value) {
+                notified.add(value);
+            }
+
+            @Override
+            public void removed(Integer value) {
+            }
+        });
+        TreeMetrics metrics = tree.enableMetrics();
+
+        RedBlackTree.InsertAllResult<Integer> result = tree.insertAll(feed);
+        assertEquals(feed.size() - expectedDuplicates.size(), result.getInserted());
+        assertEquals(expectedDuplicates, result.getDuplicates());
+        assertEquals(result.getInserted(), notified.size());
+        assertEquals(result.getInserted(), metrics.getInserts());
+        assertEquals(new ArrayList<>(expected), tree.stream().collect(Collectors.toList()));
+        assertValidRedBlackTree(tree);
+
+        RedBlackTree<Integer> empty = new RedBlackTree<>();
+        assertEquals(0, empty.insertAll(Collections.emptyList()).getInserted());
+        assertEquals(3, empty.insertAll(Arrays.asList(2, 1, 3, 3)).getInserted());
+        assertEquals("[ 1, 2, 3 ]", empty.toString());
+        assertThrows(NullPointerException.class, () -> empty.insertAll(Arrays.asList(4, null)));
+        assertTrue(empty.contains(4));
+        assertThrows(NullPointerException.class, () -> empty.insertAll(null));
+    }
+
+    @Test
+    public void testSnapshotRoundTrip(@TempDir Path directory) throws IOException {
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        for (Candidate candidate : readCandidatesFromCSV("./src/main/resources/candidate-info.csv")) {
+            candidateRBT.insert(candidate);
+        }
+        Path snapshot = directory.resolve("candidates.rbts");
+        candidateRBT.writeSnapshot(snapshot, CandidateCodec.INSTANCE);
+
+        RedBlackTree<Candidate> reopened = RedBlackTree.openSnapshot(snapshot, CandidateCodec.INSTANCE);
+        assertValidRedBlackTree(reopened);
+        assertEquals(candidateRBT.size(), reopened.size());
+        assertEquals(candidateRBT.toString(), reopened.toString());
+
+        Path empty = directory.resolve("empty.rbts");
+        new RedBlackTree<Candidate>().writeSnapshot(empty, CandidateCodec.INSTANCE);
+        assertTrue(RedBlackTree.openSnapshot(empty, CandidateCodec.INSTANCE).isEmpty());
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected(@TempDir Path directory) throws IOException {
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        for (Candidate candidate : readCandidatesFromCSV("./src/main/resources/candidate-info.csv")) {
+            candidateRBT.insert(candidate);
+        }
+        Path snapshot = directory.resolve("candidates.rbts");
+        candidateRBT.writeSnapshot(snapshot, CandidateCodec.INSTANCE);
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        // A flipped bit in a record fails the checksum
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length / 2] ^= 1;
+        Files.write(snapshot, flipped);
+        assertThrows(IOException.class, () -> RedBlackTree.openSnapshot(snapshot, CandidateCodec.INSTANCE));
+
+        // A truncated file no longer matches the payload length of its header
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> RedBlackTree.openSnapshot(snapshot, CandidateCodec.INSTANCE));
+
+        // Any other file is rejected by its magic number
+        assertThrows(IOException.class, () -> RedBlackTree.openSnapshot(
+                Paths.get("./src/main/resources/candidate-info.csv"), CandidateCodec.INSTANCE));
+    }
+
+    /**
+     * Checks the binary search tree ordering, parent references, size and all
+     * red-black tree properties of the given tree.
+     *
+     * @param tree the tree to check
+     */
+    static <T extends Comparable<T>> void assertValidRedBlackTree(RedBlackTree<T> tree) {
+        if (tree.root == null) {
+            assertEquals(0, tree.size());
+            return;
+        }
+        assertTrue(tree.root.isBlack, "the root must be black");
+        assertNull(tree.root.parent, "the root must not have a parent");
+        int[] count = new int[1];
+        blackHeight(tree.root, count);
+        assertEquals(tree.size(), count[0]);
+
+        T previous = null;
+        Iterator<T> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            T next = iterator.next();
+            if (previous != null) {
+                assertTrue(tree.compare(previous, next) < 0, "values must be in strictly ascending order");
+            }
+            previous = next;
+        }
+    }
+
+    private static <T> int blackHeight(RedBlackTree.Node<T> node, int[] count) {
+        if (node == null) {
+            return 1;
+        }
+        count[0]++;
+        int expectedSize = 1 + (node.leftChild == null ? 0 : node.leftChild.subtreeSize)
+                + (node.rightChild == null ? 0 : node.rightChild.subtreeSize);
+        assertEquals(expectedSize, node.subtreeSize, "subtree size must count the node and its descendants");
+        for (RedBlackTree.Node<T> child : Arrays.asList(node.leftChild, node.rightChild)) {
+            if (child != null) {
+                assertSame(node, child.parent, "child must refer back to its parent");
+                assertFalse(!node.isBlack && !child.isBlack, "a red node cannot have a red child");
+            }
+        }
+        int left = blackHeight(node.leftChild, count);
+        int right = blackHeight(node.rightChild, count);
+        assertEquals(left, right, "every path must contain the same number of black nodes");
+        return left + (node.isBlack ? 1 : 0);
+    }
+
     public static List<Candidate> readCandidatesFromCSV(String filePath) {
         List<Candidate> candidates = new ArrayList<>();
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
+        try (CSVReader reader = new CSVReader(new FileReader(filePath, StandardCharsets.UTF_8))) {
             // Read the header line and discard it
             reader.readNext();
             String[] csvLine;
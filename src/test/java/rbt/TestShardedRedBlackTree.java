@@ -0,0 +1,159 @@
+package rbt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the ShardedRedBlackTree class, checked
+ * against a single RedBlackTree
+ *
+ * @author Naif Abdullah
+ */
+public class TestShardedRedBlackTree {
+
+    private static final int WRITERS = 4;
+    private static final int INSERTS_PER_WRITER = 20000;
+
+    @Test
+    public void testShardsBehaveLikeOneTree() {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        ShardedRedBlackTree<Candidate> sharded = ShardedRedBlackTree.ofCandidates(4, candidates.size());
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        List<Candidate> shuffled = new ArrayList<>(candidates);
+        Collections.shuffle(shuffled, new Random(3));
+        for (Candidate candidate : shuffled) {
+            assertTrue(sharded.insert(candidate));
+            candidateRBT.insert(candidate);
+        }
+        assertEquals(4, sharded.shardCount());
+        assertEquals(candidateRBT.size(), sharded.size());
+        assertEquals(candidateRBT.toString(), sharded.toString());
+        assertThrows(IllegalArgumentException.class, () -> sharded.insert(candidates.get(7)));
+
+        assertTrue(sharded.contains(candidates.get(42)));
+        assertEquals(candidates.get(42), sharded.get(candidates.get(42).getId()));
+        assertTrue(sharded.remove(candidates.get(42)));
+        assertFalse(sharded.remove(candidates.get(42)));
+        assertFalse(sharded.contains(candidates.get(42)));
+        assertNull(sharded.get(candidates.get(42).getId()));
+        candidateRBT.remove(candidates.get(42));
+
+        Candidate from = candidateRBT.select(50);
+        Candidate to = candidateRBT.select(250);
+        List<Candidate> expected = new ArrayList<>();
+        candidateRBT.subRange(from, to).forEach(expected::add);
+        assertEquals(expected, sharded.range(from, to));
+
+        // Splits and merges keep every value and the global order
+        assertTrue(sharded.split(1));
+        assertTrue(sharded.split(4));
+        assertEquals(6, sharded.shardCount());
+        assertEquals(candidateRBT.toString(), sharded.toString());
+        assertTrue(sharded.merge(0));
+        assertFalse(sharded.merge(sharded.shardCount() - 1));
+        assertEquals(5, sharded.shardCount());
+        assertEquals(candidateRBT.toString(), sharded.toString());
+        assertEquals(expected, sharded.range(from, to));
+        assertEquals(candidates.get(100), sharded.get(candidates.get(100).getId()));
+        assertEquals(candidateRBT.size(), Arrays.stream(sharded.shardSizes()).sum());
+    }
+
+    @Test
+    public void testRebalance() {
+        ShardedRedBlackTree<Integer> tree = new ShardedRedBlackTree<>(value -> value, 100, 1000, 2000);
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(2000 + i); // every value lands in the last shard
+        }
+        assertArrayEquals(new int[] {0, 0, 1000}, tree.shardSizes());
+        assertTrue(tree.rebalance() > 0);
+        for (int size : tree.shardSizes()) {
+            assertTrue(size <= 200, Arrays.toString(tree.shardSizes()));
+        }
+        assertEquals(1000, tree.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(tree.contains(2000 + i));
+        }
+
+        tree.range(2000, 3000).forEach(tree::remove);
+        assertTrue(tree.isEmpty());
+        tree.rebalance();
+        assertEquals(1, tree.shardCount());
+        assertEquals("[  ]", tree.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedRedBlackTree<Integer>(value -> value, 10, 5, 5));
+        assertThrows(NullPointerException.class, () -> tree.insert(null));
+        assertThrows(IllegalArgumentException.class, () -> tree.range(10, 5));
+    }
+
+    @Test
+    public void testConcurrentWritersDuringRebalance() throws InterruptedException {
+        ShardedRedBlackTree<Integer> tree = new ShardedRedBlackTree<>(value -> value, 2000,
+                WRITERS * INSERTS_PER_WRITER / 2);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < INSERTS_PER_WRITER; i++) {
+                        assertTrue(tree.insert(i * WRITERS + writer));
+                        if (i % 3 == 0) {
+                            assertTrue(tree.remove(i * WRITERS + writer));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        Thread rebalancer = new Thread(() -> {
+            try {
+                start.await();
+                while (writing.get()) {
+                    tree.rebalance();
+                    tree.range(0, 1000);
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        });
+        writers.forEach(Thread::start);
+        rebalancer.start();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        rebalancer.join();
+        assertTrue(failures.isEmpty(), failures.toString());
+
+        int expected = WRITERS * (INSERTS_PER_WRITER - (INSERTS_PER_WRITER + 2) / 3);
+        assertEquals(expected, tree.size());
+        int previous = -1;
+        int count = 0;
+        for (int value : tree) {
+            assertTrue(value > previous);
+            assertTrue((value / WRITERS) % 3 != 0);
+            previous = value;
+            count++;
+        }
+        assertEquals(expected, count);
+        assertTrue(tree.shardCount() > 2);
+    }
+}
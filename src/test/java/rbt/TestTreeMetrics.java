@@ -0,0 +1,157 @@
+package rbt;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains JUnit tests for the metrics of a RedBlackTree and the
+ * Flight Recorder events emitted with them
+ *
+ * @author Naif Abdullah
+ */
+public class TestTreeMetrics {
+
+    @Test
+    public void testCountersAndShape() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        assertNull(tree.getMetrics());
+        assertEquals(0, tree.height());
+        assertEquals(0, tree.blackHeight());
+
+        TreeMetrics metrics = tree.enableMetrics();
+        assertSame(metrics, tree.enableMetrics());
+
+        // Ascending inserts rebalance constantly
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            tree.insert(i);
+        }
+        assertEquals(count, metrics.getInserts());
+        assertTrue(metrics.getRotations() > 0);
+        assertTrue(metrics.getRecolors() > 0);
+        assertTrue(metrics.getFixupSteps() >= metrics.getMaxFixupSteps());
+        assertTrue(metrics.getMaxFixupSteps() > 0);
+        assertEquals(count, metrics.getInsertLatency().getCount());
+
+        int height = tree.height();
+        assertTrue(height <= 2 * (32 - Integer.numberOfLeadingZeros(count + 1)));
+        assertTrue(tree.blackHeight() > 0 && tree.blackHeight() <= height);
+
+        // Lookups compare at most once per level
+        RedBlackTree<Candidate> candidateRBT = new RedBlackTree<>();
+        TreeMetrics candidateMetrics = candidateRBT.enableMetrics();
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        Candidate missing = candidates.remove(candidates.size() - 1);
+        for (Candidate candidate : candidates) {
+            candidateRBT.insert(candidate);
+        }
+        for (Candidate candidate : candidates) {
+            assertTrue(candidateRBT.contains(candidate));
+        }
+        assertFalse(candidateRBT.contains(missing));
+        assertEquals(candidates.size() + 1, candidateMetrics.getLookups());
+        assertTrue(candidateMetrics.getComparisonsPerLookup() >= 1);
+        assertTrue(candidateMetrics.getComparisonsPerLookup() <= candidateRBT.height());
+        assertTrue(candidateMetrics.getLookupLatency().getPercentileNanos(50)
+                <= candidateMetrics.getLookupLatency().getPercentileNanos(100));
+
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(tree.remove(i));
+        }
+        assertFalse(tree.remove(-1));
+        assertEquals(count / 2, metrics.getRemovals());
+
+        metrics.reset();
+        assertEquals(0, metrics.getInserts());
+        assertEquals(0, metrics.getRotations());
+        assertEquals(0, metrics.getInsertLatency().getCount());
+
+        tree.disableMetrics();
+        assertNull(tree.getMetrics());
+        tree.insert(count);
+        assertEquals(0, metrics.getInserts());
+    }
+
+    @Test
+    public void testBulkOperationsAreCounted() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(i);
+        }
+        TreeMetrics metrics = tree.enableMetrics();
+
+        // Large enough for the merge-and-rebuild path of removeAll
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i += 2) {
+            batch.add(i);
+        }
+        assertTrue(tree.removeAll(batch));
+        assertEquals(250, metrics.getRemovals());
+        assertTrue(tree.removeIf(value -> value >= 900));
+        assertEquals(350, metrics.getRemovals());
+
+        RedBlackTree<Integer> other = new RedBlackTree<>();
+        for (int i = 0; i < 1200; i += 3) {
+            other.insert(i);
+        }
+        int before = tree.size();
+        assertTrue(tree.union(other));
+        assertEquals(tree.size() - before, metrics.getInserts());
+        before = tree.size();
+        assertTrue(tree.difference(other));
+        assertEquals(350 + before - tree.size(), metrics.getRemovals());
+        long removals = metrics.getRemovals();
+        before = tree.size();
+        assertTrue(tree.intersect(RedBlackTree.fromSorted(List.of(1, 5, 7).iterator(), 3)));
+        assertEquals(removals + before - tree.size(), metrics.getRemovals());
+        assertEquals(0, metrics.getInsertLatency().getCount());
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("rbt-metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("rbt.TreeOperation").withThreshold(Duration.ZERO);
+            recording.start();
+
+            RedBlackTree<Integer> tree = new RedBlackTree<>();
+            tree.enableMetrics();
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+            tree.remove(50);
+            tree.removeIf(value -> value < 10);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        long inserts = events.stream().filter(e -> e.getString("operation").equals("insert")).count();
+        long removes = events.stream().filter(e -> e.getString("operation").equals("remove")).count();
+        assertEquals(100, inserts);
+        assertEquals(1, removes);
+        assertTrue(events.stream().mapToInt(e -> e.getInt("rotations")).sum() > 0);
+        assertEquals(100, events.stream().filter(e -> e.getString("operation").equals("insert"))
+                .mapToInt(e -> e.getInt("treeSize")).max().getAsInt());
+        RecordedEvent removeIf = events.stream().filter(e -> e.getString("operation").equals("removeIf"))
+                .findFirst().get();
+        assertEquals(10, removeIf.getInt("valuesChanged"));
+        assertEquals(89, removeIf.getInt("treeSize"));
+    }
+}
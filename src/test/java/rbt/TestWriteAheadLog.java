@@ -0,0 +1,111 @@
+package rbt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains JUnit tests for the WriteAheadLog class and the
+ * recovery of a RedBlackTree from its checkpoint and log
+ *
+ * @author Naif Abdullah
+ */
+public class TestWriteAheadLog {
+
+    @Test
+    public void testRecoveryAndCheckpoint(@TempDir Path directory) throws IOException {
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        int half = candidates.size() / 2;
+
+        WriteAheadLog<Candidate> wal = WriteAheadLog.open(directory, CandidateCodec.INSTANCE,
+                WriteAheadLog.SyncPolicy.EVERY_WRITE);
+        RedBlackTree<Candidate> tree = wal.getTree();
+        assertTrue(tree.isEmpty());
+        for (int i = 0; i < half; i++) {
+            tree.insert(candidates.get(i));
+        }
+        tree.remove(candidates.get(0));
+        assertEquals(half + 1, wal.getRecords());
+        assertEquals(half + 1, wal.getSyncs());
+        wal.close();
+
+        wal = WriteAheadLog.open(directory, CandidateCodec.INSTANCE, WriteAheadLog.SyncPolicy.OS_BUFFERED);
+        assertEquals(half + 1, wal.getReplayed());
+        assertEquals(tree.toString(), wal.getTree().toString());
+        tree = wal.getTree();
+
+        // A checkpoint truncates the log, later mutations go to the new log
+        wal.checkpoint();
+        assertEquals(8, Files.size(directory.resolve(WriteAheadLog.LOG_FILE)));
+        for (int i = half; i < candidates.size(); i++) {
+            tree.insert(candidates.get(i));
+        }
+        tree.removeIf(candidate -> candidate.getAge() == 20);
+        wal.close();
+
+        WriteAheadLog<Candidate> reopened = WriteAheadLog.open(directory, CandidateCodec.INSTANCE,
+                WriteAheadLog.SyncPolicy.GROUP_COMMIT);
+        assertTrue(reopened.getReplayed() > candidates.size() - half);
+        assertEquals(tree.toString(), reopened.getTree().toString());
+        TestRedBlackTree.assertValidRedBlackTree(reopened.getTree());
+        reopened.close();
+    }
+
+    @Test
+    public void testCrashRecovery(@TempDir Path directory) throws IOException {
+        WriteAheadLog<Candidate> wal = WriteAheadLog.open(directory, CandidateCodec.INSTANCE,
+                WriteAheadLog.SyncPolicy.GROUP_COMMIT, 1);
+        List<Candidate> candidates = TestRedBlackTree.readCandidatesFromCSV("./src/main/resources/candidate-info.csv");
+        RedBlackTree<Candidate> tree = wal.getTree();
+        for (int i = 0; i < 100; i++) {
+            tree.insert(candidates.get(i));
+        }
+        wal.sync();
+        assertTrue(wal.getSyncs() >= 1);
+
+        // The log a crash would leave behind right before the checkpoint truncates it
+        Path log = directory.resolve(WriteAheadLog.LOG_FILE);
+        byte[] beforeCheckpoint = Files.readAllBytes(log);
+        wal.checkpoint();
+        for (int i = 100; i < 110; i++) {
+            tree.insert(candidates.get(i));
+        }
+        tree.remove(candidates.get(5));
+        wal.sync();
+
+        // Recovery of a log torn in the middle of its last record
+        Path crashed = Files.createDirectory(directory.resolve("crashed"));
+        Files.copy(directory.resolve(WriteAheadLog.CHECKPOINT_FILE), crashed.resolve(WriteAheadLog.CHECKPOINT_FILE));
+        byte[] logBytes = Files.readAllBytes(log);
+        Files.write(crashed.resolve(WriteAheadLog.LOG_FILE), logBytes);
+        Files.write(crashed.resolve(WriteAheadLog.LOG_FILE), new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+        WriteAheadLog<Candidate> recovered = WriteAheadLog.open(crashed, CandidateCodec.INSTANCE,
+                WriteAheadLog.SyncPolicy.EVERY_WRITE);
+        assertEquals(11, recovered.getReplayed());
+        assertEquals(tree.toString(), recovered.getTree().toString());
+        assertEquals(logBytes.length, Files.size(crashed.resolve(WriteAheadLog.LOG_FILE)));
+        recovered.close();
+
+        // Replaying records the checkpoint already holds changes nothing
+        Path stale = Files.createDirectory(directory.resolve("stale"));
+        Files.copy(directory.resolve(WriteAheadLog.CHECKPOINT_FILE), stale.resolve(WriteAheadLog.CHECKPOINT_FILE));
+        Files.write(stale.resolve(WriteAheadLog.LOG_FILE), beforeCheckpoint);
+        recovered = WriteAheadLog.open(stale, CandidateCodec.INSTANCE, WriteAheadLog.SyncPolicy.EVERY_WRITE);
+        assertEquals(100, recovered.getReplayed());
+        assertEquals(100, recovered.getTree().size());
+        recovered.close();
+        wal.close();
+
+        Files.write(stale.resolve(WriteAheadLog.LOG_FILE), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class,
+                () -> WriteAheadLog.open(stale, CandidateCodec.INSTANCE, WriteAheadLog.SyncPolicy.EVERY_WRITE));
+    }
+}